@@ -0,0 +1,91 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the batched tagging of many utterances
+ * ({@link LSTMClassifier#tagBatch(List)}) against tagging each utterance on its
+ * own. The utterances have random lengths between 1 and the given maximal
+ * length, the classifier uses the model of the classpath and synthetic word
+ * vectors.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchTaggingBenchmark {
+
+	@Param({ "100", "400" })
+	public int utterances;
+
+	@Param({ "15", "40" })
+	public int maxLength;
+
+	private File wordVectors;
+	private LSTMClassifier classifier;
+	private List<Utterance> corpus;
+
+	@Setup
+	public void setUp() throws IOException {
+		wordVectors = File.createTempFile("vectors", ".bin");
+		BenchmarkData.writeWordVectors(wordVectors);
+		classifier = new LSTMClassifier(LSTMClassifier.defaultModelPath(), wordVectors.getPath(), 1);
+		Random random = new Random(42);
+		corpus = new ArrayList<>(utterances);
+		for (int u = 0; u < utterances; u++) {
+			BenchmarkData data = BenchmarkData.generate(1 + random.nextInt(maxLength), 0.1, u);
+			corpus.add(new Utterance(data.words, data.posTags, data.chunkIOBTags));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		classifier.close();
+		wordVectors.delete();
+	}
+
+	/**
+	 * Each utterance on its own
+	 * ({@link LSTMClassifier#tagInputSequenceRaw(List, List, List)}).
+	 */
+	@Benchmark
+	public List<List<String>> tagEach() {
+		List<List<String>> tags = new ArrayList<>(corpus.size());
+		for (Utterance utterance : corpus) {
+			tags.add(classifier.tagInputSequenceRaw(utterance.getWords(), utterance.getPosTags(), utterance.getChunkIOBTags()));
+		}
+		return tags;
+	}
+
+	/**
+	 * All utterances in buckets of the same length.
+	 */
+	@Benchmark
+	public List<List<String>> tagBatch() {
+		return classifier.tagBatch(corpus);
+	}
+
+}
@@ -0,0 +1,265 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.BinaryWordVectorConverter;
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.WordVectorLookup;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.InternedUtterance;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.TokenInterner;
+import edu.kit.ipd.pronat.prepipedatamodel.token.ChunkIOB;
+import edu.kit.ipd.pronat.prepipedatamodel.token.POSTag;
+
+/**
+ * Synthetic utterances for the benchmarks. The utterances consist of simple
+ * robot commands; with the given disfluency density a word is followed by a
+ * disfluency (a repetition, a filled pause, a correction with an editing term
+ * or a discourse marker). Each utterance also has the expected disfluency tags
+ * and simulated network outputs that mostly agree with them.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+final class BenchmarkData {
+
+	static final List<String> POS_TAGS;
+	static final List<String> CHUNK_IOB_TAGS;
+	static final List<String> DF_TAGS;
+
+	static {
+		// The same tags as the classifier, the network expects 42 POS tags
+		List<String> posTags = new ArrayList<>();
+		for (int i = 0; i < 42; i++) {
+			posTags.add(POSTag.values()[i].getTag());
+		}
+		List<String> chunkIOBTags = new ArrayList<>();
+		for (ChunkIOB c : ChunkIOB.values()) {
+			chunkIOBTags.add(c.toString());
+		}
+		List<String> dfTags = new ArrayList<>();
+		for (DisfluencyTag d : DisfluencyTag.values()) {
+			dfTags.add(d.toString());
+		}
+		POS_TAGS = Collections.unmodifiableList(posTags);
+		CHUNK_IOB_TAGS = Collections.unmodifiableList(chunkIOBTags);
+		DF_TAGS = Collections.unmodifiableList(dfTags);
+	}
+
+	// word, POS tag and chunk IOB tag
+	private static final String[][] VOCABULARY = { { "put", "VB", "B-VP" }, { "the", "DT", "B-NP" }, { "green", "JJ", "I-NP" },
+			{ "cup", "NN", "I-NP" }, { "in", "IN", "B-PP" }, { "dishwasher", "NN", "B-NP" }, { "go", "VB", "B-VP" }, { "to", "TO", "B-PP" },
+			{ "fridge", "NN", "B-NP" }, { "and", "CC", "O" }, { "open", "VB", "B-VP" }, { "it", "PRP", "B-NP" }, { "take", "VB", "B-VP" },
+			{ "red", "JJ", "I-NP" }, { "plate", "NN", "I-NP" }, { "table", "NN", "B-NP" }, { "cupboard", "NN", "I-NP" } };
+
+	final List<String> words = new ArrayList<>();
+	final List<String> posTags = new ArrayList<>();
+	final List<String> chunkIOBTags = new ArrayList<>();
+	final List<String> tags = new ArrayList<>();
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Generates an utterance.
+	 *
+	 * @param length
+	 *            the number of words
+	 * @param density
+	 *            the probability that a word is followed by a disfluency
+	 * @param seed
+	 *            the seed of the random generator
+	 * @return the utterance
+	 */
+	static BenchmarkData generate(int length, double density, long seed) {
+		Random random = new Random(seed);
+		BenchmarkData data = new BenchmarkData();
+		while (data.words.size() < length) {
+			String[] word = VOCABULARY[random.nextInt(VOCABULARY.length)];
+			if (random.nextDouble() >= density) {
+				data.add(word, "O-DF");
+				continue;
+			}
+			switch (random.nextInt(4)) {
+			case 0:
+				data.add(word, "B-RM");
+				data.add(word, "B-RS");
+				break;
+			case 1:
+				data.add(word, "O-DF");
+				data.add(new String[] { "uh", "UH", "O" }, "FP");
+				break;
+			case 2:
+				data.add(word, "B-RM");
+				data.add(new String[] { "sorry", "JJ", "O" }, "EE");
+				data.add(similarWord(word, random), "B-RS");
+				break;
+			default:
+				data.add(new String[] { "well", "UH", "O" }, "DM");
+				data.add(word, "O-DF");
+				break;
+			}
+		}
+		data.trim(length);
+		return data;
+	}
+
+	// A word of the vocabulary with the same POS tag
+	private static String[] similarWord(String[] word, Random random) {
+		while (true) {
+			String[] similar = VOCABULARY[random.nextInt(VOCABULARY.length)];
+			if (similar[1].equals(word[1])) {
+				return similar;
+			}
+		}
+	}
+
+	private void add(String[] word, String tag) {
+		words.add(word[0]);
+		posTags.add(word[1]);
+		chunkIOBTags.add(word[2]);
+		tags.add(tag);
+	}
+
+	private void trim(int length) {
+		words.subList(length, words.size()).clear();
+		posTags.subList(length, posTags.size()).clear();
+		chunkIOBTags.subList(length, chunkIOBTags.size()).clear();
+		tags.subList(length, tags.size()).clear();
+	}
+
+	InternedUtterance intern(TokenInterner interner) {
+		return interner.intern(words, posTags, chunkIOBTags);
+	}
+
+	/**
+	 * Simulates the predictions of the network: the expected tags with some
+	 * errors.
+	 *
+	 * @param errorRate
+	 *            the probability of a wrong tag
+	 * @param seed
+	 *            the seed of the random generator
+	 * @return the index of the predicted tag of each word
+	 */
+	int[] predictions(double errorRate, long seed) {
+		Random random = new Random(seed);
+		int[] predictions = new int[tags.size()];
+		for (int i = 0; i < predictions.length; i++) {
+			predictions[i] = random.nextDouble() < errorRate ? random.nextInt(DF_TAGS.size()) : DF_TAGS.indexOf(tags.get(i));
+		}
+		return predictions;
+	}
+
+	/**
+	 * Simulates the output of the network for the given predictions. The
+	 * probability of class c of word j is at c + j * number of classes.
+	 *
+	 * @param predictions
+	 *            the most probable class of each word
+	 * @param seed
+	 *            the seed of the random generator
+	 * @return the probabilities
+	 */
+	float[] probabilities(int[] predictions, long seed) {
+		Random random = new Random(seed);
+		int numClasses = DF_TAGS.size();
+		float[] probabilities = new float[predictions.length * numClasses];
+		for (int j = 0; j < predictions.length; j++) {
+			float peak = 0.4f + 0.6f * random.nextFloat();
+			for (int c = 0; c < numClasses; c++) {
+				if (c != predictions[j]) {
+					probabilities[c + j * numClasses] = (1.0f - peak) / (numClasses - 1);
+				}
+			}
+			probabilities[predictions[j] + j * numClasses] = peak;
+		}
+		return probabilities;
+	}
+
+	/**
+	 * Writes the synthetic word vectors of all words of the generated utterances
+	 * into a binary word vector file, for the benchmarks of the classifier.
+	 *
+	 * @param file
+	 *            the binary word vector file
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	static void writeWordVectors(File file) throws IOException {
+		List<String> words = new ArrayList<>();
+		for (String[] word : VOCABULARY) {
+			words.add(word[0]);
+		}
+		words.addAll(Arrays.asList("uh", "sorry", "well"));
+		SyntheticWordVectors wordVectors = new SyntheticWordVectors();
+		List<String> lines = new ArrayList<>(words.size());
+		for (String word : words) {
+			StringBuilder line = new StringBuilder(word);
+			for (double component : wordVectors.getWordVector(word)) {
+				line.append(' ').append((float) component);
+			}
+			lines.add(line.toString());
+		}
+		File text = File.createTempFile("vectors", ".txt");
+		try {
+			Files.write(text.toPath(), lines, StandardCharsets.UTF_8);
+			BinaryWordVectorConverter.convert(text, file);
+		} finally {
+			text.delete();
+		}
+	}
+
+	/**
+	 * Word vectors that are derived from the hash of the word, so that the
+	 * benchmarks do not need the GloVe file.
+	 */
+	static final class SyntheticWordVectors implements WordVectorLookup {
+
+		private static final int VECTOR_SIZE = 50;
+
+		@Override
+		public boolean hasWord(String word) {
+			return true;
+		}
+
+		@Override
+		public int vectorSize() {
+			return VECTOR_SIZE;
+		}
+
+		@Override
+		public double[] getWordVector(String word) {
+			Random random = new Random(word.hashCode());
+			double[] vector = new double[VECTOR_SIZE];
+			for (int i = 0; i < VECTOR_SIZE; i++) {
+				vector[i] = random.nextGaussian();
+			}
+			return vector;
+		}
+
+		@Override
+		public INDArray getWordVectorMatrix(String word) {
+			return Nd4j.create(getWordVector(word));
+		}
+
+		@Override
+		public boolean copyWordVector(String word, float[] target, int offset, int stride) {
+			Random random = new Random(word.hashCode());
+			for (int i = 0; i < VECTOR_SIZE; i++) {
+				target[offset + i * stride] = (float) random.nextGaussian();
+			}
+			return true;
+		}
+	}
+
+}
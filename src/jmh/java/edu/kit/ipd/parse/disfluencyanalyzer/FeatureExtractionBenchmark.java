@@ -0,0 +1,78 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.WordVectorLookup;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.DiscreteFeatureExtractor;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.InternedUtterance;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.TokenInterner;
+
+/**
+ * Benchmarks the creation of the network input of an utterance.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeatureExtractionBenchmark {
+
+	@Param({ "10", "40", "160" })
+	public int length;
+
+	@Param({ "0.0", "0.1", "0.3" })
+	public double density;
+
+	private final WordVectorLookup wordVectors = new BenchmarkData.SyntheticWordVectors();
+	private final TokenInterner interner = new TokenInterner(BenchmarkData.POS_TAGS, BenchmarkData.CHUNK_IOB_TAGS);
+	private InternedUtterance utterance;
+	private float[] features;
+
+	@Setup
+	public void setUp() {
+		utterance = BenchmarkData.generate(length, density, 42).intern(interner);
+		features = new float[DiscreteFeatureExtractor.N_DISCRETE_FEATURES * length];
+	}
+
+	/**
+	 * The features, labels and masks of a single utterance
+	 * (DisfluencyDataSetIterator.next).
+	 */
+	@Benchmark
+	public MultiDataSet iteratorNext() {
+		DisfluencyDataSetIterator iterator = new DisfluencyDataSetIterator(1, 1000, wordVectors, BenchmarkData.POS_TAGS,
+				BenchmarkData.CHUNK_IOB_TAGS, BenchmarkData.DF_TAGS);
+		iterator.addInputSequence(utterance);
+		return iterator.next();
+	}
+
+	/**
+	 * The discrete features of all words (createDiscreteFeatureVector).
+	 */
+	@Benchmark
+	public float[] discreteFeatures() {
+		DiscreteFeatureExtractor extractor = new DiscreteFeatureExtractor(utterance);
+		for (int j = 0; j < length; j++) {
+			extractor.extract(j, features, j * DiscreteFeatureExtractor.N_DISCRETE_FEATURES, 1);
+		}
+		return features;
+	}
+
+}
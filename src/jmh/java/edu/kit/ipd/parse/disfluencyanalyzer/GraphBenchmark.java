@@ -0,0 +1,98 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.util.GraphUtils;
+import edu.kit.ipd.parse.luna.graph.IArcType;
+import edu.kit.ipd.parse.luna.graph.INode;
+import edu.kit.ipd.parse.luna.graph.INodeType;
+import edu.kit.ipd.parse.luna.graph.ParseGraph;
+
+/**
+ * Benchmarks the reading of the input from the PARSE graph and the writing of
+ * the tags to it. The graph is built locally with token nodes and NEXT
+ * relation arcs, like the graph of the graph builder.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBenchmark {
+
+	@Param({ "10", "40", "160" })
+	public int length;
+
+	@Param({ "0.0", "0.1", "0.3" })
+	public double density;
+
+	private ParseGraph graph;
+	private List<INode> tokens;
+	private List<String> tags;
+	private List<String> otherTags;
+	private boolean other = false;
+
+	@Setup
+	public void setUp() {
+		BenchmarkData data = BenchmarkData.generate(length, density, 42);
+		graph = new ParseGraph();
+		INodeType tokenType = graph.createNodeType("token");
+		tokenType.addAttributeToType("String", "value");
+		tokenType.addAttributeToType("String", "pos");
+		tokenType.addAttributeToType("String", "chunkIOB");
+		IArcType relationType = graph.createArcType("relation");
+		relationType.addAttributeToType("String", "value");
+		tokens = new ArrayList<>();
+		for (int i = 0; i < length; i++) {
+			INode token = graph.createNode(tokenType);
+			token.setAttributeValue("value", data.words.get(i));
+			token.setAttributeValue("pos", data.posTags.get(i));
+			token.setAttributeValue("chunkIOB", data.chunkIOBTags.get(i));
+			if (i > 0) {
+				graph.createArc(tokens.get(i - 1), token, relationType).setAttributeValue("value", "NEXT");
+			}
+			tokens.add(token);
+		}
+		tags = data.tags;
+		// Another utterance of the same length and density, so that each print changes tags and arcs
+		otherTags = BenchmarkData.generate(length, density, 43).tags;
+	}
+
+	/**
+	 * Reads the tokens, POS tags and chunk IOB tags from the graph.
+	 */
+	@Benchmark
+	public boolean extractInputFromGraph() {
+		return GraphUtils.extractInputFromGraph(graph, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+	}
+
+	/**
+	 * Writes the tags and repair arcs to the graph. The tags of two utterances are
+	 * written alternately, otherwise the graph would already contain the tags.
+	 */
+	@Benchmark
+	public ParseGraph printToGraph() {
+		other = !other;
+		GraphUtils.printToGraph(graph, tokens, other ? otherTags : tags);
+		return graph;
+	}
+
+}
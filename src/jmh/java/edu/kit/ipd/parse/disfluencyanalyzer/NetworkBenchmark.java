@@ -0,0 +1,68 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.io.ClassPathResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.features.TokenInterner;
+
+/**
+ * Benchmarks the forward pass of the network for a single utterance. The
+ * network is restored from the model of the classifier, the word vectors are
+ * synthetic.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NetworkBenchmark {
+
+	@Param({ "10", "40", "160" })
+	public int length;
+
+	@Param({ "0.0", "0.3" })
+	public double density;
+
+	private ComputationGraph net;
+	private MultiDataSet features;
+
+	@Setup
+	public void setUp() throws IOException {
+		net = ModelSerializer.restoreComputationGraph(new ClassPathResource("DisfluencyModel.net").getInputStream());
+		TokenInterner interner = new TokenInterner(BenchmarkData.POS_TAGS, BenchmarkData.CHUNK_IOB_TAGS);
+		DisfluencyDataSetIterator iterator = new DisfluencyDataSetIterator(1, 1000, new BenchmarkData.SyntheticWordVectors(),
+				BenchmarkData.POS_TAGS, BenchmarkData.CHUNK_IOB_TAGS, BenchmarkData.DF_TAGS);
+		iterator.addInputSequence(BenchmarkData.generate(length, density, 42).intern(interner));
+		features = iterator.next();
+	}
+
+	/**
+	 * The output of the network (ComputationGraph.outputSingle).
+	 */
+	@Benchmark
+	public INDArray outputSingle() {
+		return net.output(false, features.getFeatures(), features.getFeaturesMaskArrays())[0];
+	}
+
+}
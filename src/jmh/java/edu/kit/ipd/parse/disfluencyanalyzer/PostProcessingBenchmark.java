@@ -0,0 +1,96 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.features.InternedUtterance;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.TokenInterner;
+import edu.kit.ipd.parse.disfluencyanalyzer.util.WordUtils;
+
+/**
+ * Benchmarks the post-processing of the network output and the word
+ * comparisons.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PostProcessingBenchmark {
+
+	@Param({ "10", "40", "160" })
+	public int length;
+
+	@Param({ "0.0", "0.1", "0.3" })
+	public double density;
+
+	private final TokenInterner interner = new TokenInterner(BenchmarkData.POS_TAGS, BenchmarkData.CHUNK_IOB_TAGS);
+	private final PredictionAdjuster adjuster = new PredictionAdjuster(interner);
+	private final ConstrainedDecoder decoder = new ConstrainedDecoder();
+	private BenchmarkData data;
+	private InternedUtterance utterance;
+	private int[] predictions;
+	private float[] probabilities;
+
+	@Setup
+	public void setUp() {
+		data = BenchmarkData.generate(length, density, 42);
+		utterance = data.intern(interner);
+		// Some errors for the adjustment to repair
+		predictions = data.predictions(0.1, 43);
+		probabilities = data.probabilities(predictions, 44);
+	}
+
+	/**
+	 * The heuristic adjustment of the predictions (adjustPredictions).
+	 */
+	@Benchmark
+	public int[] adjustPredictions() {
+		return adjuster.adjust(utterance, predictions);
+	}
+
+	/**
+	 * The constrained decoding of the network output.
+	 */
+	@Benchmark
+	public int[] constrainedDecoding() {
+		return decoder.decode(probabilities, 0, 1, BenchmarkData.DF_TAGS.size(), length);
+	}
+
+	/**
+	 * The POS similarity of all neighbouring words.
+	 */
+	@Benchmark
+	public void hasSimilarPOS(Blackhole blackhole) {
+		for (int i = 1; i < length; i++) {
+			blackhole.consume(WordUtils.hasSimilarPOS(data.posTags.get(i - 1), data.posTags.get(i)));
+		}
+	}
+
+	/**
+	 * The number of same characters of all neighbouring words.
+	 */
+	@Benchmark
+	public void getNumSameChars(Blackhole blackhole) {
+		for (int i = 1; i < length; i++) {
+			blackhole.consume(WordUtils.getNumSameChars(data.words.get(i - 1), data.words.get(i)));
+		}
+	}
+
+}
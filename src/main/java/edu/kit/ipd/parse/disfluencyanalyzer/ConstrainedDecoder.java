@@ -0,0 +1,170 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.B_RM;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.B_RS;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.DM;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.EE;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.FP;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.I_RM;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.I_RS;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.O_DF;
+
+/**
+ * Decodes the probabilities of the network into the most probable tag sequence
+ * that has a valid repair structure (Viterbi decoding). A sequence is valid if
+ * <ul>
+ * <li>each reparandum (B-RM, optionally followed by I-RM) is closed by a B-RS,
+ * only filled pauses, editing terms, discourse markers and further reparanda
+ * can be in between,</li>
+ * <li>I-RM only occurs inside of a reparandum and</li>
+ * <li>I-RS only directly follows a B-RS or an I-RS.</li>
+ * </ul>
+ * The decoder runs over states that combine a tag with a flag whether a
+ * reparandum is open, so that the validity of a transition only depends on the
+ * previous state. The valid transitions between the 16 states are precomputed,
+ * the decoding is linear in the length of the sequence. The tags are the
+ * indices of the {@link DisfluencyTag}s. Instances are immutable and can be
+ * shared between threads.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+final class ConstrainedDecoder {
+
+	static final int NUM_TAGS = DisfluencyTag.values().length;
+	// state = tag + NUM_TAGS * open
+	private static final int NUM_STATES = 2 * NUM_TAGS;
+	// Avoids the logarithm of zero
+	private static final float MIN_PROBABILITY = 1e-30f;
+
+	private static final boolean[][] VALID_TRANSITION = new boolean[NUM_STATES][NUM_STATES];
+	private static final boolean[] VALID_START = new boolean[NUM_STATES];
+	private static final boolean[] VALID_END = new boolean[NUM_STATES];
+
+	static {
+		for (int previous = 0; previous < NUM_STATES; previous++) {
+			for (int next = 0; next < NUM_STATES; next++) {
+				VALID_TRANSITION[previous][next] = isValid(previous % NUM_TAGS, previous >= NUM_TAGS, next % NUM_TAGS, next >= NUM_TAGS);
+			}
+		}
+		for (int state = 0; state < NUM_STATES; state++) {
+			// The start behaves like a fluent word before the sequence
+			VALID_START[state] = VALID_TRANSITION[O_DF][state];
+			VALID_END[state] = state < NUM_TAGS;
+		}
+	}
+
+	/*
+	 * Checks whether the tag can follow the previous tag, open is true if a
+	 * reparandum is open after the tag
+	 */
+	private static boolean isValid(int previousTag, boolean previousOpen, int tag, boolean open) {
+		if (tag == O_DF) {
+			return !previousOpen && !open;
+		} else if (tag == B_RM) {
+			return open;
+		} else if (tag == I_RM) {
+			return previousOpen && open;
+		} else if (tag == B_RS) {
+			return previousOpen && !open;
+		} else if (tag == I_RS) {
+			return !previousOpen && !open && (previousTag == B_RS || previousTag == I_RS);
+		} else if (tag == FP || tag == EE || tag == DM) {
+			// Filled pauses, editing terms and discourse markers do not change the repair structure
+			return previousOpen == open;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the given tag sequence has a valid repair structure.
+	 *
+	 * @param tags
+	 *            the tags of the sequence
+	 * @return true if the sequence is valid
+	 */
+	static boolean isValid(int[] tags) {
+		int previousTag = O_DF;
+		boolean open = false;
+		for (int tag : tags) {
+			boolean nextOpen = tag == B_RM || tag == I_RM || (open && (tag == FP || tag == EE || tag == DM));
+			if (!isValid(previousTag, open, tag, nextOpen)) {
+				return false;
+			}
+			previousTag = tag;
+			open = nextOpen;
+		}
+		return !open;
+	}
+
+	/**
+	 * Returns the most probable valid tag sequence. The probability of class c
+	 * of the word j is at probabilities[offset + c * classStride + j *
+	 * wordStride].
+	 *
+	 * @param probabilities
+	 *            the output of the network
+	 * @param offset
+	 *            the offset of the sequence
+	 * @param classStride
+	 *            the distance between the classes of a word
+	 * @param wordStride
+	 *            the distance between the words
+	 * @param length
+	 *            the number of words
+	 * @return the tag of each word
+	 */
+	int[] decode(float[] probabilities, int offset, int classStride, int wordStride, int length) {
+		int[] tags = new int[length];
+		if (length == 0) {
+			return tags;
+		}
+		float[] score = new float[NUM_STATES];
+		float[] nextScore = new float[NUM_STATES];
+		float[] logProbabilities = new float[NUM_TAGS];
+		// The best previous state of each state and word
+		byte[] backPointers = new byte[length * NUM_STATES];
+		logProbabilities(probabilities, offset, classStride, logProbabilities);
+		for (int state = 0; state < NUM_STATES; state++) {
+			score[state] = VALID_START[state] ? logProbabilities[state % NUM_TAGS] : Float.NEGATIVE_INFINITY;
+		}
+		for (int j = 1; j < length; j++) {
+			logProbabilities(probabilities, offset + j * wordStride, classStride, logProbabilities);
+			for (int state = 0; state < NUM_STATES; state++) {
+				float best = Float.NEGATIVE_INFINITY;
+				int bestPrevious = 0;
+				for (int previous = 0; previous < NUM_STATES; previous++) {
+					if (VALID_TRANSITION[previous][state] && score[previous] > best) {
+						best = score[previous];
+						bestPrevious = previous;
+					}
+				}
+				nextScore[state] = best + logProbabilities[state % NUM_TAGS];
+				backPointers[j * NUM_STATES + state] = (byte) bestPrevious;
+			}
+			float[] swap = score;
+			score = nextScore;
+			nextScore = swap;
+		}
+		float best = Float.NEGATIVE_INFINITY;
+		int state = 0;
+		for (int s = 0; s < NUM_STATES; s++) {
+			if (VALID_END[s] && score[s] > best) {
+				best = score[s];
+				state = s;
+			}
+		}
+		for (int j = length - 1; j >= 0; j--) {
+			tags[j] = state % NUM_TAGS;
+			state = backPointers[j * NUM_STATES + state];
+		}
+		return tags;
+	}
+
+	private static void logProbabilities(float[] probabilities, int wordOffset, int classStride, float[] target) {
+		for (int c = 0; c < NUM_TAGS; c++) {
+			target[c] = (float) Math.log(Math.max(probabilities[wordOffset + c * classStride], MIN_PROBABILITY));
+		}
+	}
+
+}
@@ -1,15 +1,20 @@
 package edu.kit.ipd.parse.disfluencyanalyzer;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 import org.kohsuke.MetaInfServices;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import edu.kit.ipd.parse.disfluencyanalyzer.metrics.DisfluencyMetrics;
+import edu.kit.ipd.parse.disfluencyanalyzer.metrics.Stage;
 import edu.kit.ipd.parse.disfluencyanalyzer.util.GraphUtils;
+import edu.kit.ipd.parse.disfluencyanalyzer.util.TokenSequence;
 import edu.kit.ipd.parse.luna.agent.AbstractAgent;
-import edu.kit.ipd.parse.luna.graph.INode;
 
 // TODO: Replace Sysouts with logger.info or logg.debug or remove them
 
@@ -21,51 +26,198 @@ import edu.kit.ipd.parse.luna.graph.INode;
  * part (reparans) of a disfluency with its corresponding erroneous part
  * (reparandum), if there is corresponding part. The class is the main class of
  * the package that is responsible for coordinating all processes.
+ * <p>
+ * The classifier shares the model and the word vectors with the other agents of
+ * the JVM. They are released with {@link #close()}, at the latest when the JVM
+ * shuts down (see {@link ModelRegistry}).
  * 
  * @author Robert Hochweiss
  * @author Sebastian Weigelt
  *
  */
 @MetaInfServices(AbstractAgent.class)
-public class DisfluencyAnalyzer extends AbstractAgent {
+public class DisfluencyAnalyzer extends AbstractAgent implements AutoCloseable {
 
 	private static final Logger logger = LoggerFactory.getLogger(DisfluencyAnalyzer.class);
+	/**
+	 * The system property for the maximal weight (number of words) of the cache
+	 * for the tags of repeated utterances. The cache is shared by all agents of the
+	 * JVM, it is disabled if the property is not set.
+	 */
+	public static final String CACHE_WEIGHT_PROPERTY = "disfluencyanalyzer.cache.weight";
+	/**
+	 * The system property that enables the constrained decoding of the network
+	 * output (true or false, disabled by default).
+	 */
+	public static final String CONSTRAINED_DECODING_PROPERTY = "disfluencyanalyzer.decoding.constrained";
+	/**
+	 * The system property that enables the inference in plain Java instead of
+	 * ND4J (true or false, disabled by default).
+	 */
+	public static final String JAVA_INFERENCE_PROPERTY = "disfluencyanalyzer.inference.java";
+	private static TaggingCache sharedCache;
 	private LSTMClassifier classifier;
-
-	private boolean runBefore = false;
+	private Future<?> warmUp;
+	private volatile boolean ready = false;
+	private volatile long warmUpDuration = -1;
+	private IncrementalTagger incrementalTagger;
 
 	@Override
 	public void init() {
 		setId("disfluencyAnalyzer");
 		/*
-		 * Load pretrained GloVe-model and the pretrained model for the classifier
+		 * Load pretrained GloVe-model and the pretrained model for the classifier.
+		 * Both are shared with all other agent instances of the JVM.
 		 */
+		close();
 		classifier = new LSTMClassifier();
+		classifier.setTaggingCache(sharedCache());
+		classifier.setConstrainedDecoding(Boolean.getBoolean(CONSTRAINED_DECODING_PROPERTY));
+		classifier.setJavaInference(Boolean.getBoolean(JAVA_INFERENCE_PROPERTY));
+		incrementalTagger = new IncrementalTagger(classifier::tagInputSequenceRaw);
+		startWarmUp();
 	}
 
+	/**
+	 * Releases the classifier of the agent and with it the shared model and word
+	 * vectors (if no other agent uses them). A running warm-up is cancelled. The
+	 * agent has to be initialized again before its next execution. Closing an
+	 * agent twice has no effect.
+	 */
 	@Override
-	public void exec() {
-		if (runBefore) {
-			logger.info("Ran before, exiting!");
+	public synchronized void close() {
+		if (classifier == null) {
 			return;
 		}
-		List<INode> wordList = new ArrayList<>();
-		List<String> posList = new ArrayList<>();
-		List<String> chunkIOBList = new ArrayList<>();
-		List<String> dfList = new ArrayList<>();
-		if (GraphUtils.extractInputFromGraph(getGraph(), wordList, posList, chunkIOBList)) {
-			logger.info("Start guessing the disfluency tags for the input utterance...");
-			List<String> words = new ArrayList<>();
-			for (int i = 0; i < wordList.size(); i++) {
-				words.add(wordList.get(i).getAttributeValue("value").toString());
+		/*
+		 * The warm-up thread may still restore the model, it keeps its own
+		 * references to the resources and ends on its own
+		 */
+		if (warmUp != null) {
+			warmUp.cancel(true);
+			warmUp = null;
+		}
+		ready = false;
+		classifier.close();
+		classifier = null;
+		incrementalTagger = null;
+	}
+
+	private static synchronized TaggingCache sharedCache() {
+		String weight = System.getProperty(CACHE_WEIGHT_PROPERTY);
+		if (sharedCache == null && weight != null) {
+			try {
+				sharedCache = new TaggingCache(Long.parseLong(weight.trim()));
+				DisfluencyMetrics.getInstance().setTaggingCache(sharedCache);
+				logger.info("Caching the tags of up to {} words", weight);
+			} catch (IllegalArgumentException e) {
+				logger.warn("Invalid value {} of {}, the cache is disabled", weight, CACHE_WEIGHT_PROPERTY);
+			}
+		}
+		return sharedCache;
+	}
+
+	/**
+	 * Returns whether the classifier is warmed up, i.e. whether the model is
+	 * restored and the first utterance can be tagged without additional delay.
+	 * The state of all agents of the JVM is published with the
+	 * {@link DisfluencyMetrics}.
+	 *
+	 * @return true if the warm-up of the classifier has finished successfully
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Returns the duration of the warm-up of the classifier.
+	 *
+	 * @return the duration of the warm-up in milliseconds or -1 if the warm-up has
+	 *         not finished (successfully) yet
+	 */
+	public long getWarmUpDuration() {
+		return warmUpDuration;
+	}
+
+	/*
+	 * Warms up the classifier in the background, so that the first utterance does
+	 * not have to wait for the restoring of the model
+	 */
+	private void startWarmUp() {
+		ready = false;
+		warmUpDuration = -1;
+		final LSTMClassifier warmUpClassifier = classifier;
+		FutureTask<Void> task = new FutureTask<>(() -> {
+			// Published with the metrics of the JVM (see DisfluencyMetrics#isReady)
+			DisfluencyMetrics metrics = DisfluencyMetrics.getInstance();
+			metrics.warmUpStarted();
+			long duration = -1;
+			try {
+				long start = System.nanoTime();
+				warmUpClassifier.warmUp();
+				if (Thread.currentThread().isInterrupted()) {
+					// Cancelled by close(), the classifier is already released
+					return null;
+				}
+				duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				warmUpDuration = duration;
+				ready = true;
+				logger.info("Classifier warmed up in {} ms", duration);
+				return null;
+			} finally {
+				metrics.warmUpFinished(duration);
 			}
-			dfList.addAll(classifier.tagInputSequenceRaw(words, posList, chunkIOBList));
-			GraphUtils.printToGraph(graph, wordList, dfList);
-			logger.info("All done !");
-		} else {
+		});
+		Thread thread = new Thread(task, "disfluency-analyzer-warm-up");
+		thread.setDaemon(true);
+		thread.start();
+		warmUp = task;
+	}
+
+	private void awaitWarmUp() {
+		if (warmUp != null) {
+			if (!warmUp.isDone()) {
+				logger.info("Waiting for the warm-up of the classifier...");
+			}
+			try {
+				warmUp.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				logger.warn("Warm-up of the classifier failed", e.getCause());
+			}
+			warmUp = null;
+		}
+	}
+
+	@Override
+	public void exec() {
+		awaitWarmUp();
+		DisfluencyMetrics metrics = DisfluencyMetrics.getInstance();
+		long start = metrics.start();
+		TokenSequence sequence = TokenSequence.fromGraph(getGraph());
+		metrics.record(Stage.GRAPH_EXTRACTION, start, sequence.size());
+		if (sequence.size() == 0) {
+			logger.info("No tokens, no disfluency predictions necessary");
+			return;
+		}
+		/*
+		 * The graph can be changed by other agents between the executions. Only the
+		 * tokens that changed since the last execution (and their surroundings) are
+		 * tagged again.
+		 */
+		if (sequence.isTagged() && (incrementalTagger.isUnchanged(sequence) || !incrementalTagger.hasTagged())) {
 			logger.info("No disfluency predictions necessary");
+			return;
 		}
-		runBefore = true;
+		logger.info("Start guessing the disfluency tags for the input utterance...");
+		List<String> dfList = incrementalTagger.tag(sequence);
+		logger.debug("Tagged tokens {} to {} of {}", incrementalTagger.getRetaggedFrom(), incrementalTagger.getRetaggedTo(), sequence.size());
+		start = metrics.start();
+		GraphUtils.printToGraph(graph, sequence.getTokens(), dfList);
+		metrics.record(Stage.GRAPH_WRITE_BACK, start, sequence.size());
+		logger.info("All done !");
 	}
 
 }
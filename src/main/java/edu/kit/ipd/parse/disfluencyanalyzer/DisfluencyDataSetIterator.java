@@ -1,30 +1,33 @@
 package edu.kit.ipd.parse.disfluencyanalyzer;
 
-import static org.nd4j.linalg.indexing.NDArrayIndex.all;
-import static org.nd4j.linalg.indexing.NDArrayIndex.point;
-
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Random;
 
-import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.dataset.api.MultiDataSet;
 import org.nd4j.linalg.dataset.api.MultiDataSetPreProcessor;
 import org.nd4j.linalg.dataset.api.iterator.MultiDataSetIterator;
 import org.nd4j.linalg.factory.Nd4j;
-import org.nd4j.linalg.indexing.INDArrayIndex;
 
-import edu.kit.ipd.parse.disfluencyanalyzer.util.WordUtils;
-import info.debatty.java.stringsimilarity.JaroWinkler;
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.WordVectorLookup;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.DiscreteFeatureExtractor;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.InternedUtterance;
 
-// TODO: Code cleanup, more functionility in other classes (discrete vector creation), sl4j logger instead of sysouts
+// TODO: Code cleanup, sl4j logger instead of sysouts
 
 /**
  * This class is responsible for providing the data set for the training and
  * evaluation process. It extracts the input features of an utterance (input
  * sequence). It also loads prepared features form the cleaned corpus files.
+ * <p>
+ * For the training the sequences can be bucketed by their length (see
+ * {@link #enableLengthBucketing(long)}): the batches then only contain
+ * sequences of the same length, like the batches of
+ * {@link LSTMClassifier#tagBatch(List)}, so that there is no padding, and the
+ * sequences and the batches are shuffled in each epoch.
  * 
  * @author Robert Hochweiss
  * @author Sebastian Weigelt
@@ -38,24 +41,33 @@ public class DisfluencyDataSetIterator implements MultiDataSetIterator {
 	private int vectorSize;
 	private int currentBatch;
 	private int sequenceMaxLength;
-	private int N_DISCRETE_FEATURES = 80;
-	private List<List<String>> wordSequences; // Sequences of all input words,
-												// one list per sequence.
-												// Sequences of all input part of speech tags (input feature), one list per
-												// sequence, one tag per word in the sequence.
-	private List<List<Integer>> posSequences;
-	// Sequences of all input Chunk-IOB tags (input feature), one list per
-	// sequence, one tag per word in the sequence.
-	private List<List<Integer>> chunkIOBSequences;
-	// The corresponding DF tags for the word sequences, one list per sequence,
+	private static final int N_DISCRETE_FEATURES = DiscreteFeatureExtractor.N_DISCRETE_FEATURES;
+	// All input sequences (words, part of speech tags and Chunk-IOB tags as input
+	// features), one interned utterance per sequence.
+	private List<InternedUtterance> sequences;
+	// The corresponding DF tags for the word sequences, one array per sequence,
 	// one tag per word in the sequence.
-	private List<List<Integer>> dfSequences;
+	private List<int[]> dfSequences;
 	private List<String> posTags; // All possible tags for POS
 	private List<String> chunkIOBTags; // All possible tags for the Chunk-IOB
 	private List<String> dfTags; // All possible tags for the DFs.
-	private Map<String, INDArray> unknownWords;
-	private WordVectors wordVectors;
+	private WordVectorLookup wordVectors;
 	private MultiDataSetPreProcessor preProcessor;
+	// Reusable staging buffers for the creation of the INDArrays
+	private static final int WORD_BUFFER = 0;
+	private static final int POS_BUFFER = 1;
+	private static final int CHUNK_IOB_BUFFER = 2;
+	private static final int DISCRETE_BUFFER = 3;
+	private static final int MASK_BUFFER = 4;
+	private static final int DF_BUFFER = 5;
+	private final float[][] stagingBuffers = new float[6][];
+	// The random order of the batches for the length bucketing, null without bucketing
+	private Random bucketRandom;
+	// The indices of the sequences ordered by their length, the start of each batch
+	// in this order (and the end of the last one) and the order of the batches
+	private int[] order;
+	private int[] batchStarts;
+	private int[] batchOrder;
 
 	/**
 	 * 
@@ -72,23 +84,18 @@ public class DisfluencyDataSetIterator implements MultiDataSetIterator {
 	 * @param dfTags
 	 *            all defined disfluency tags
 	 */
-	public DisfluencyDataSetIterator(int batchSize, int sequenceMaxLength, WordVectors wordVectors, List<String> posTags,
+	public DisfluencyDataSetIterator(int batchSize, int sequenceMaxLength, WordVectorLookup wordVectors, List<String> posTags,
 			List<String> chunkIOBTags, List<String> dfTags) {
 		this.batchSize = batchSize;
 		this.sequenceMaxLength = sequenceMaxLength;
 		this.wordVectors = wordVectors;
-		vectorSize = wordVectors.getWordVector(wordVectors.vocab().wordAtIndex(0)).length;
-		unknownWords = new HashMap<>(); // Needed because there is no good way
-										// to extent an non Word2Vec vocab in
-										// the framework.
+		vectorSize = wordVectors.vectorSize();
 		this.posTags = posTags;
 		this.chunkIOBTags = chunkIOBTags;
 		this.dfTags = dfTags;
-		wordSequences = new ArrayList<>();
-		posSequences = new ArrayList<>();
-		chunkIOBSequences = new ArrayList<>();
+		sequences = new ArrayList<>();
 		dfSequences = new ArrayList<>();
-		totalBatches = (int) Math.ceil((double) wordSequences.size() / batchSize);
+		totalBatches = (int) Math.ceil((double) sequences.size() / batchSize);
 	}
 
 	/**
@@ -98,25 +105,158 @@ public class DisfluencyDataSetIterator implements MultiDataSetIterator {
 	 * @param chunkIOBList
 	 */
 	public void addInputSequenceList(List<String> wordList, List<Integer> posList, List<Integer> chunkIOBList) {
-		if (wordList != null) {
-			for (int i = 0; i < wordList.size(); i++) {
-				if (WordUtils.FILLED_PAUSES.contains(wordList.get(i))) {
-					wordList.set(i, "uh");
-				}
+		addInputSequence(InternedUtterance.of(wordList, posList, chunkIOBList));
+	}
+
+	/**
+	 * Adds an input sequence. The filled pauses of the sequence are passed to the
+	 * network as {@link InternedUtterance#FILLED_PAUSE_WORD}.
+	 * 
+	 * @param utterance
+	 *            the interned input sequence
+	 */
+	public void addInputSequence(InternedUtterance utterance) {
+		if (!dfSequences.isEmpty()) {
+			throw new IllegalStateException("Sequences with and without disfluency tags cannot be mixed");
+		}
+		sequences.add(utterance.withNormalizedFilledPauses());
+		totalBatches = (int) Math.ceil((double) sequences.size() / batchSize);
+		order = null;
+	}
+
+	/**
+	 * Adds an input sequence together with its disfluency tags for the training
+	 * or the evaluation. Either all or none of the sequences have tags.
+	 * 
+	 * @param utterance
+	 *            the interned input sequence
+	 * @param dfTagIds
+	 *            the index of the disfluency tag of each word
+	 */
+	public void addLabelledSequence(InternedUtterance utterance, int[] dfTagIds) {
+		if (dfTagIds.length != utterance.size()) {
+			throw new IllegalArgumentException("There must be exactly one disfluency tag per word");
+		}
+		if (dfSequences.size() != sequences.size()) {
+			throw new IllegalStateException("Sequences with and without disfluency tags cannot be mixed");
+		}
+		sequences.add(utterance.withNormalizedFilledPauses());
+		dfSequences.add(dfTagIds.clone());
+		totalBatches = (int) Math.ceil((double) sequences.size() / batchSize);
+		order = null;
+	}
+
+	/**
+	 * Bucket the sequences by their length: each batch only contains sequences of
+	 * the same length, so that a batch may have less than the batch size of
+	 * sequences. Padded time steps would be fed into the backward direction of the
+	 * bidirectional hidden layer. On each reset the sequences of the same length
+	 * are shuffled before they are cut into batches, and the order of the batches
+	 * is shuffled.
+	 * 
+	 * @param seed
+	 *            the seed for the order of the sequences and the batches
+	 */
+	public void enableLengthBucketing(long seed) {
+		bucketRandom = new Random(seed);
+		order = null;
+	}
+
+	/**
+	 * 
+	 * @return the number of sequences
+	 */
+	public int numSequences() {
+		return sequences.size();
+	}
+
+	/**
+	 * 
+	 * @return the number of words of all sequences
+	 */
+	public long numWords() {
+		long words = 0;
+		for (InternedUtterance sequence : sequences) {
+			words += sequence.size();
+		}
+		return words;
+	}
+
+	/*
+	 * Sorts the sequences by length and cuts them into batches at each change of
+	 * the length, if the bucketing is enabled
+	 */
+	private void arrange() {
+		if (bucketRandom == null || (order != null && order.length == sequences.size())) {
+			return;
+		}
+		List<Integer> indices = new ArrayList<>(sequences.size());
+		for (int i = 0; i < sequences.size(); i++) {
+			indices.add(i);
+		}
+		indices.sort((a, b) -> Integer.compare(sequences.get(a).size(), sequences.get(b).size()));
+		order = new int[indices.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = indices.get(i);
+		}
+		List<Integer> starts = new ArrayList<>();
+		int start = 0;
+		while (start < order.length) {
+			starts.add(start);
+			int length = sequences.get(order[start]).size();
+			int end = start + 1;
+			while (end < order.length && end - start < batchSize && sequences.get(order[end]).size() == length) {
+				end++;
 			}
-			wordSequences.add(wordList);
+			start = end;
 		}
-		if (posList != null) {
-			posSequences.add(posList);
+		starts.add(order.length);
+		batchStarts = new int[starts.size()];
+		for (int i = 0; i < batchStarts.length; i++) {
+			batchStarts[i] = starts.get(i);
 		}
-		if (chunkIOBList != null) {
-			chunkIOBSequences.add(chunkIOBList);
+		totalBatches = batchStarts.length - 1;
+		shuffle();
+	}
+
+	/*
+	 * Shuffles the sequences within each run of the same length (the batches stay
+	 * at the same positions) and the order of the batches
+	 */
+	private void shuffle() {
+		int start = 0;
+		while (start < order.length) {
+			int length = sequences.get(order[start]).size();
+			int end = start + 1;
+			while (end < order.length && sequences.get(order[end]).size() == length) {
+				end++;
+			}
+			for (int i = end - 1; i > start; i--) {
+				int j = start + bucketRandom.nextInt(i - start + 1);
+				int swap = order[i];
+				order[i] = order[j];
+				order[j] = swap;
+			}
+			start = end;
+		}
+		List<Integer> batches = new ArrayList<>(totalBatches);
+		for (int i = 0; i < totalBatches; i++) {
+			batches.add(i);
 		}
-		totalBatches = (int) Math.ceil((double) wordSequences.size() / batchSize);
+		Collections.shuffle(batches, bucketRandom);
+		batchOrder = new int[totalBatches];
+		for (int i = 0; i < totalBatches; i++) {
+			batchOrder[i] = batches.get(i);
+		}
+	}
+
+	private int sequenceIndex(int position) {
+		return order != null ? order[position] : position;
 	}
 
 	@Override
 	public boolean hasNext() {
+		arrange();
 		return (currentBatch < totalBatches);
 	}
 
@@ -127,85 +267,94 @@ public class DisfluencyDataSetIterator implements MultiDataSetIterator {
 
 	@Override
 	public MultiDataSet next(int num) {
-		int c = currentBatch * batchSize;
-		int currentBatchSize = Math.min(batchSize, wordSequences.size() - c);
-		List<List<String>> curWordSequences = new ArrayList<>();
-		List<List<Integer>> curPOSSequences = new ArrayList<>();
-		List<List<Integer>> curChunkIOBSequences = new ArrayList<>();
-		List<List<Integer>> curDFSequences = new ArrayList<>();
+		arrange();
+		int c;
+		int currentBatchSize;
+		if (order != null) {
+			int batch = batchOrder[currentBatch];
+			c = batchStarts[batch];
+			currentBatchSize = batchStarts[batch + 1] - c;
+		} else {
+			c = currentBatch * batchSize;
+			currentBatchSize = Math.min(batchSize, sequences.size() - c);
+		}
 		int maxLength = 0;
-		// Get the word sequences and Dfs for the current batch
+		// Get the maximal sequence length of the current batch
 		for (int k = 0; k < currentBatchSize; k++) {
-			curWordSequences.add(wordSequences.get(c + k));
-			curPOSSequences.add(posSequences.get(c + k));
-			curChunkIOBSequences.add(chunkIOBSequences.get(c + k));
-			if (dfSequences.size() > 0) {
-				curDFSequences.add(dfSequences.get(c + k));
-			}
-			maxLength = Math.max(maxLength, curWordSequences.get(k).size());
+			maxLength = Math.max(maxLength, sequences.get(sequenceIndex(c + k)).size());
 		}
-		// INDArray for each input feature (word vectors, POS tags, Chunk-IOB
-		// tags, the hand-crafted discrete features), the output (DF tags) and
-		// the corresponding masks
-		INDArray wordFeatures = Nd4j.create(new int[] { currentBatchSize, vectorSize, maxLength }, 'f');
-		INDArray posFeatures = Nd4j.create(new int[] { currentBatchSize, posTags.size(), maxLength }, 'f');
-		INDArray chunkIOBFeatures = Nd4j.create(new int[] { currentBatchSize, chunkIOBTags.size(), maxLength }, 'f');
-		INDArray discreteFeatures = Nd4j.create(new int[] { currentBatchSize, N_DISCRETE_FEATURES, maxLength }, 'f');
-		INDArray wordFeaturesMask = Nd4j.zeros(new int[] { currentBatchSize, maxLength }, 'f');
-		INDArray posFeaturesMask = Nd4j.zeros(new int[] { currentBatchSize, maxLength }, 'f');
-		INDArray chunkIOBFeaturesMask = Nd4j.zeros(new int[] { currentBatchSize, maxLength }, 'f');
-		INDArray discreteFeaturesMask = Nd4j.zeros(new int[] { currentBatchSize, maxLength }, 'f');
-		INDArray dfOutputTags = null;
-		INDArray dfOutputTagsMask = null;
-		if (curDFSequences.size() > 0) {
-			dfOutputTags = Nd4j.create(new int[] { currentBatchSize, dfTags.size(), maxLength }, 'f');
-			dfOutputTagsMask = Nd4j.zeros(new int[] { currentBatchSize, maxLength }, 'f');
+		/*
+		 * The features, the output (DF tags) and the masks are first written to
+		 * primitive staging buffers that already have the layout ('f' order) of the
+		 * final INDArrays: element [i, k, j] (sequence, feature, time step) is at
+		 * index i + k * batchSize + j * batchSize * numFeatures, element [i, j] of a
+		 * mask at index i + j * batchSize. Then each INDArray is created with one
+		 * bulk copy.
+		 */
+		int b = currentBatchSize;
+		float[] wordData = stagingBuffer(WORD_BUFFER, b * vectorSize * maxLength);
+		float[] posData = stagingBuffer(POS_BUFFER, b * posTags.size() * maxLength);
+		float[] chunkIOBData = stagingBuffer(CHUNK_IOB_BUFFER, b * chunkIOBTags.size() * maxLength);
+		float[] discreteData = stagingBuffer(DISCRETE_BUFFER, b * N_DISCRETE_FEATURES * maxLength);
+		float[] maskData = stagingBuffer(MASK_BUFFER, b * maxLength);
+		float[] dfData = null;
+		if (dfSequences.size() > 0) {
+			dfData = stagingBuffer(DF_BUFFER, b * dfTags.size() * maxLength);
 		}
 
 		// Iterate over all sequences of the current batch
 		for (int i = 0; i < currentBatchSize; i++) {
-			List<String> wordList = curWordSequences.get(i);
-			List<Integer> posList = curPOSSequences.get(i);
-			List<Integer> chunkIOBList = curChunkIOBSequences.get(i);
-			List<Integer> dfList = null;
+			InternedUtterance utterance = sequences.get(sequenceIndex(c + i));
+			int[] dfList = null;
 			/*
 			 * The size is 0 if you want to predict an input sequence where there is no
 			 * solution given
 			 */
-			if (curDFSequences.size() > 0) {
-				dfList = curDFSequences.get(i);
+			if (dfSequences.size() > 0) {
+				dfList = dfSequences.get(sequenceIndex(c + i));
 			}
+			DiscreteFeatureExtractor discreteFeatureExtractor = new DiscreteFeatureExtractor(utterance);
 			// Iterate over all words (and other input features) of the current
-			// sequence and modify the INDArrays accordingly
-			for (int j = 0; j < wordList.size() && j < maxLength; j++) {
-				INDArray wordVector = null;
-				if (wordVectors.hasWord(wordList.get(j))) {
-					wordVector = wordVectors.getWordVectorMatrix(wordList.get(j));
-				} else {
-					wordVector = unknownWords.get(wordList.get(j));
-				}
-				// Word vectors can be put directly in the INDArray at the
-				// specific point
-				wordFeatures.put(new INDArrayIndex[] { point(i), all(), point(j) }, wordVector);
-				wordFeaturesMask.putScalar(new int[] { i, j }, 1.0);
+			// sequence and fill the buffers accordingly
+			for (int j = 0; j < utterance.size() && j < maxLength; j++) {
+				// Word vectors are copied directly from the lookup table to the
+				// specific point, words without a vector keep a zero vector
+				wordVectors.copyWordVector(utterance.word(j), wordData, i + j * b * vectorSize, b);
+				maskData[i + j * b] = 1.0f;
 				/*
-				 * The POS and the ChunkIOB features and the output tags are one-hot encoded in
-				 * the INDArray at the specific point
+				 * The POS and the ChunkIOB features and the output tags are one-hot encoded at
+				 * the specific point (undefined tags have an index of -1)
 				 */
-				posFeatures.putScalar(new int[] { i, posList.get(j), j }, 1.0);
-				posFeaturesMask.putScalar(new int[] { i, j }, 1.0);
-				chunkIOBFeatures.putScalar(new int[] { i, chunkIOBList.get(j), j }, 1.0);
-				chunkIOBFeaturesMask.putScalar(new int[] { i, j }, 1.0);
+				if (utterance.posId(j) >= 0) {
+					posData[i + utterance.posId(j) * b + j * b * posTags.size()] = 1.0f;
+				}
+				if (utterance.chunkIOBId(j) >= 0) {
+					chunkIOBData[i + utterance.chunkIOBId(j) * b + j * b * chunkIOBTags.size()] = 1.0f;
+				}
 				// Generate the discrete features vector
-				INDArray discreteFeaturesVector = createDiscreteFeatureVector(j, wordList, posList, chunkIOBList);
-				discreteFeatures.put(new INDArrayIndex[] { point(i), all(), point(j) }, discreteFeaturesVector);
-				discreteFeaturesMask.putScalar(new int[] { i, j }, 1.0);
+				discreteFeatureExtractor.extract(j, discreteData, i + j * b * N_DISCRETE_FEATURES, b);
 				if (dfList != null) {
-					dfOutputTags.putScalar(new int[] { i, dfList.get(j), j }, 1.0);
-					dfOutputTagsMask.putScalar(new int[] { i, j }, 1.0);
+					dfData[i + dfList[j] * b + j * b * dfTags.size()] = 1.0f;
 				}
 			}
 		}
+		// INDArray for each input feature (word vectors, POS tags, Chunk-IOB
+		// tags, the hand-crafted discrete features), the output (DF tags) and
+		// the corresponding masks
+		INDArray wordFeatures = Nd4j.create(wordData, new int[] { b, vectorSize, maxLength }, 'f');
+		INDArray posFeatures = Nd4j.create(posData, new int[] { b, posTags.size(), maxLength }, 'f');
+		INDArray chunkIOBFeatures = Nd4j.create(chunkIOBData, new int[] { b, chunkIOBTags.size(), maxLength }, 'f');
+		INDArray discreteFeatures = Nd4j.create(discreteData, new int[] { b, N_DISCRETE_FEATURES, maxLength }, 'f');
+		INDArray wordFeaturesMask = Nd4j.create(maskData, new int[] { b, maxLength }, 'f');
+		INDArray posFeaturesMask = Nd4j.create(maskData, new int[] { b, maxLength }, 'f');
+		INDArray chunkIOBFeaturesMask = Nd4j.create(maskData, new int[] { b, maxLength }, 'f');
+		INDArray discreteFeaturesMask = Nd4j.create(maskData, new int[] { b, maxLength }, 'f');
+		INDArray dfOutputTags = null;
+		INDArray dfOutputTagsMask = null;
+		if (dfData != null) {
+			dfOutputTags = Nd4j.create(dfData, new int[] { b, dfTags.size(), maxLength }, 'f');
+			dfOutputTagsMask = Nd4j.create(maskData, new int[] { b, maxLength }, 'f');
+		}
 		currentBatch++;
 		return new org.nd4j.linalg.dataset.MultiDataSet(new INDArray[] { wordFeatures, posFeatures, chunkIOBFeatures, discreteFeatures },
 				new INDArray[] { dfOutputTags },
@@ -213,6 +362,21 @@ public class DisfluencyDataSetIterator implements MultiDataSetIterator {
 				new INDArray[] { dfOutputTagsMask });
 	}
 
+	/*
+	 * Returns the zeroed staging buffer of the given size. The buffers are reused
+	 * as long as the dimensions of the batches do not change.
+	 */
+	private float[] stagingBuffer(int buffer, int size) {
+		float[] data = stagingBuffers[buffer];
+		if (data == null || data.length != size) {
+			data = new float[size];
+			stagingBuffers[buffer] = data;
+		} else {
+			Arrays.fill(data, 0.0f);
+		}
+		return data;
+	}
+
 	@Override
 	public MultiDataSetPreProcessor getPreProcessor() {
 		return preProcessor;
@@ -231,6 +395,9 @@ public class DisfluencyDataSetIterator implements MultiDataSetIterator {
 	@Override
 	public void reset() {
 		currentBatch = 0;
+		if (order != null) {
+			shuffle();
+		}
 	}
 
 	@Override
@@ -238,139 +405,4 @@ public class DisfluencyDataSetIterator implements MultiDataSetIterator {
 		preProcessor = preprocessor;
 	}
 
-	/*
-	 * Method for generating an discrete input vector that contains the hand-crafted
-	 * discrete features
-	 */
-	private INDArray createDiscreteFeatureVector(int curWordPos, List<String> wordList, List<Integer> posList, List<Integer> chunkIOBList) {
-		double[][] featureBits = new double[1][N_DISCRETE_FEATURES];
-		String curWord = wordList.get(curWordPos);
-		int curPOS = posList.get(curWordPos);
-		/*
-		 * Check in the surroundings (15 words on each side) of the current word for
-		 * duplicates regarding the word itself and its part-of-speech
-		 */
-		for (int i = 1; i <= 15; i++) {
-			/*
-			 * The first 30 feature bits are for word matches, the next 30 for
-			 * part-of-speech matches
-			 */
-			if ((curWordPos - i) > 0) {
-				// if (distance.similarity(curWord, wordList.get(curWordPos -
-				// i)) > 0.8) {
-				// featureBits[0][15 - i] = 1.0;
-				// }
-				if (curWord.equals(wordList.get(curWordPos - i))) {
-					featureBits[0][15 - i] = 1.0;
-				} else {
-					String nextWord = wordList.get(curWordPos - i);
-					int numSameChars = (int) WordUtils.getNumSameChars(curWord, nextWord);
-					if (!(WordUtils.FILLED_PAUSES.contains(curWord) || WordUtils.FILLED_PAUSES.contains(nextWord))
-							&& (curWord.startsWith(wordList.get(curWordPos - i)) || wordList.get(curWordPos - i).startsWith(curWord))
-							&& (i < 3) && (curWord.length() > 1) && (wordList.get(curWordPos - i).length() > 1)) {
-						featureBits[0][15 - i] = 1.0;
-					}
-				}
-				if (curPOS == posList.get(curWordPos - i)) {
-					featureBits[0][30 + 15 - i] = 1.0;
-				}
-			}
-			if ((curWordPos + i) < wordList.size()) {
-				// if (distance.similarity(curWord, wordList.get(curWordPos +
-				// i)) > 0.8) {
-				// featureBits[0][15 - 1 + i] = 1.0;
-				// }
-				if (curWord.equals(wordList.get(curWordPos + i))) {
-					featureBits[0][15 - 1 + i] = 1.0;
-				} else {
-					String nextWord = wordList.get(curWordPos + i);
-					//					int numSameChars = (int) WordUtils.getNumSameChars(curWord, nextWord);
-					if (!(WordUtils.FILLED_PAUSES.contains(curWord) || WordUtils.FILLED_PAUSES.contains(nextWord))
-							&& (wordList.get(curWordPos + i).startsWith(curWord) || curWord.startsWith(wordList.get(curWordPos + i)))
-							&& (i < 3) && (curWord.length() > 1) && (wordList.get(curWordPos + i).length() > 1)) {
-						featureBits[0][15 - 1 + i] = 1.0;
-					}
-				}
-				if (curPOS == posList.get(curWordPos + i)) {
-					featureBits[0][30 + 15 - 1 + i] = 1.0;
-				}
-			}
-		}
-		/*
-		 * Now check in the surroundings (4 Words on each side) of the current word and
-		 * the word after it for duplicates regarding both words and their
-		 * part-of-speech (bigram-feature)
-		 */
-		if ((curWordPos + 1) < wordList.size()) {
-			String nextWord = wordList.get(curWordPos + 1);
-			int nextPOS = posList.get(curWordPos + 1);
-
-			for (int i = 1; i <= 4; i++) {
-				/*
-				 * The first 8 feature bits are for bigram word matches, the next 8 for bigram
-				 * part-of-speech matches
-				 */
-				if ((curWordPos - i) > 0) {
-					// if ((distance.similarity(curWord, wordList.get(curWordPos
-					// - i)) > 0.8)
-					// && (distance.similarity(nextWord, wordList.get(curWordPos
-					// + 1 - i)) > 0.8)) {
-					// featureBits[0][60 + 4 - i] = 1.0;
-					// }
-					if ((curWord.equals(wordList.get(curWordPos - i)) && (nextWord.equals(wordList.get(curWordPos + 1 - i))))) {
-						featureBits[0][60 + 4 - i] = 1.0;
-					}
-					if ((curPOS == posList.get(curWordPos - i)) && (nextPOS == posList.get(curWordPos + 1 - i))) {
-						featureBits[0][60 + 8 + 4 - i] = 1.0;
-					}
-				}
-				if ((curWordPos + 1 + i) < wordList.size()) {
-					// if ((distance.similarity(curWord, wordList.get(curWordPos
-					// + i)) > 0.8)
-					// && (distance.similarity(nextWord, wordList.get(curWordPos
-					// + 1 + i)) > 0.8)) {
-					// featureBits[0][60 + 4 - 1 + i] = 1.0;
-					// }
-					if ((curWord.equals(wordList.get(curWordPos + i))) && (nextWord.equals(wordList.get(curWordPos + 1 + i)))) {
-						featureBits[0][60 + 4 - 1 + i] = 1.0;
-					}
-					if ((curPOS == posList.get(curWordPos + i)) && (nextPOS == posList.get(curWordPos + 1 + i))) {
-						featureBits[0][60 + 8 + 4 - 1 + i] = 1.0;
-					}
-				}
-			}
-		}
-		/*
-		 * The Jaro-Winkler-distance(/similarity) works better as similarity metric for
-		 * strings then the original one from the paper (at least for PARSE sequences)
-		 */
-		JaroWinkler distance = new JaroWinkler();
-		/*
-		 * The last 4 feature bits are for checking the close surrounding (2 words on
-		 * each side) of the current word for a similar surface string
-		 */
-		for (int i = 1; i <= 2; i++) {
-			if ((curWordPos - i) > 0) {
-				// double similarity = 2.0 * getNumSameChars(curWord,
-				// wordList.get(curWordPos - i))
-				// / (curWord.length() + wordList.get(curWordPos - i).length());
-				double similarity = distance.similarity(curWord, wordList.get(curWordPos - i));
-				if (similarity > 0.8) {
-					featureBits[0][76 + 2 - i] = 1.0;
-				}
-			}
-			if ((curWordPos + i) < wordList.size()) {
-				// double similarity = 2.0 * getNumSameChars(curWord,
-				// wordList.get(curWordPos + i))
-				// / (curWord.length() + wordList.get(curWordPos + i).length());
-				double similarity = distance.similarity(curWord, wordList.get(curWordPos + i));
-				if (similarity > 0.8) {
-					featureBits[0][76 + 2 - 1 + i] = 1.0;
-				}
-			}
-		}
-		INDArray vector = Nd4j.create(featureBits, 'f');
-		return vector;
-	}
-
-}
\ No newline at end of file
+}
@@ -0,0 +1,366 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Command line tool that evaluates the classifier on a {@link TaggedCorpus}
+ * and reports the quality of the tags together with the speed of the tagging:
+ * <ul>
+ * <li>the precision, recall and F1 score of each {@link DisfluencyTag}, the
+ * accuracy and the macro F1 score,</li>
+ * <li>the p50, p95 and p99 latency of
+ * {@link LSTMClassifier#tagInputSequenceRaw(List, List, List)} per
+ * utterance,</li>
+ * <li>the throughput in tokens per second and</li>
+ * <li>the peak memory: the sum of the peaks of the heap pools during the run and
+ * the peak resident set size of the process (on Linux).</li>
+ * </ul>
+ * The utterances are tagged by a configurable number of threads, the
+ * classifier runs with as many network replicas. The classifier is warmed up
+ * before the measurement.
+ * <p>
+ * Usage:
+ * {@code DisfluencyEvaluator <corpus.txt> [-threads <N>] [-model <model>] [-vectors <word vectors>] [-java] [-constrained]}
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class DisfluencyEvaluator {
+
+	private static final Logger logger = LoggerFactory.getLogger(DisfluencyEvaluator.class);
+
+	private static final String USAGE = "Usage: DisfluencyEvaluator <corpus.txt> [-threads <N>] [-model <model>] [-vectors <word vectors>] "
+			+ "[-java] [-constrained]";
+	private static final String PROCESS_STATUS = "/proc/self/status";
+
+	private DisfluencyEvaluator() {
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		File corpusFile = new File(args[0]);
+		int threads = Runtime.getRuntime().availableProcessors();
+		String modelPath = null;
+		String wordVectorsPath = null;
+		boolean javaInference = false;
+		boolean constrainedDecoding = false;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("-java")) {
+				javaInference = true;
+				continue;
+			}
+			if (args[i].equals("-constrained")) {
+				constrainedDecoding = true;
+				continue;
+			}
+			if (i + 1 == args.length) {
+				System.err.println(USAGE);
+				System.exit(1);
+			}
+			String value = args[++i];
+			switch (args[i - 1]) {
+			case "-threads":
+				threads = Integer.parseInt(value);
+				break;
+			case "-model":
+				modelPath = value;
+				break;
+			case "-vectors":
+				wordVectorsPath = value;
+				break;
+			default:
+				System.err.println(USAGE);
+				System.exit(1);
+			}
+		}
+		TaggedCorpus corpus = TaggedCorpus.read(corpusFile);
+		try (LSTMClassifier classifier = new LSTMClassifier(modelPath != null ? modelPath : LSTMClassifier.defaultModelPath(),
+				wordVectorsPath != null ? wordVectorsPath : LSTMClassifier.defaultWordVectorsPath(), threads)) {
+			classifier.setJavaInference(javaInference);
+			classifier.setConstrainedDecoding(constrainedDecoding);
+			classifier.warmUp();
+			evaluate(classifier, corpus, threads).log();
+		}
+	}
+
+	/**
+	 * Tags the utterances of the corpus and compares the tags with the ones of the
+	 * corpus.
+	 *
+	 * @param classifier
+	 *            the classifier, it should be warmed up
+	 * @param corpus
+	 *            the tagged corpus
+	 * @param threads
+	 *            the number of threads that tag the utterances
+	 * @return the report of the evaluation
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting for the tags
+	 */
+	public static Report evaluate(LSTMClassifier classifier, TaggedCorpus corpus, int threads) throws InterruptedException {
+		List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+				heapPools.add(pool);
+			}
+		}
+		Report report = new Report();
+		long[] latencies = new long[corpus.size()];
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<String>>> futures = new ArrayList<>(corpus.size());
+			long start = System.nanoTime();
+			for (int u = 0; u < corpus.size(); u++) {
+				Utterance utterance = corpus.getUtterances().get(u);
+				int index = u;
+				futures.add(executor.submit(() -> {
+					long utteranceStart = System.nanoTime();
+					List<String> tags = classifier.tagInputSequenceRaw(new ArrayList<>(utterance.getWords()),
+							new ArrayList<>(utterance.getPosTags()), new ArrayList<>(utterance.getChunkIOBTags()));
+					latencies[index] = System.nanoTime() - utteranceStart;
+					return tags;
+				}));
+			}
+			for (int u = 0; u < corpus.size(); u++) {
+				report.add(corpus.getTags().get(u), futures.get(u).get());
+			}
+			report.wallNanos = System.nanoTime() - start;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Tagging failed", e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		Arrays.sort(latencies);
+		report.latencies = latencies;
+		report.threads = threads;
+		for (MemoryPoolMXBean pool : heapPools) {
+			report.peakHeapBytes += pool.getPeakUsage().getUsed();
+		}
+		report.peakResidentBytes = peakResidentBytes();
+		return report;
+	}
+
+	// VmHWM of the process status, -1 if it is not available (not on Linux)
+	private static long peakResidentBytes() {
+		try {
+			for (String line : Files.readAllLines(Paths.get(PROCESS_STATUS), StandardCharsets.UTF_8)) {
+				if (line.startsWith("VmHWM:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+			logger.debug("Cannot read the peak resident set size", e);
+		}
+		return -1;
+	}
+
+	/**
+	 * The result of an evaluation: the counts of the tags and the latencies of the
+	 * utterances.
+	 */
+	public static final class Report {
+
+		private static final DisfluencyTag[] TAGS = DisfluencyTag.values();
+
+		private final long[] truePositives = new long[TAGS.length];
+		private final long[] falsePositives = new long[TAGS.length];
+		private final long[] falseNegatives = new long[TAGS.length];
+		private long tokens;
+		private long correct;
+		// sorted
+		private long[] latencies = new long[0];
+		private long wallNanos;
+		private int threads;
+		private long peakHeapBytes;
+		private long peakResidentBytes = -1;
+
+		Report() {
+		}
+
+		/**
+		 * Counts the predicted tags of an utterance.
+		 *
+		 * @param expected
+		 *            the tags of the corpus
+		 * @param predicted
+		 *            the tags of the classifier
+		 */
+		void add(List<DisfluencyTag> expected, List<String> predicted) {
+			if (expected.size() != predicted.size()) {
+				throw new IllegalArgumentException("The classifier returned " + predicted.size() + " tags for " + expected.size() + " words");
+			}
+			for (int j = 0; j < expected.size(); j++) {
+				DisfluencyTag gold = expected.get(j);
+				DisfluencyTag tag = DisfluencyTag.getTagObject(predicted.get(j));
+				if (gold == tag) {
+					truePositives[gold.ordinal()]++;
+					correct++;
+				} else {
+					falseNegatives[gold.ordinal()]++;
+					if (tag != null) {
+						falsePositives[tag.ordinal()]++;
+					}
+				}
+			}
+			tokens += expected.size();
+		}
+
+		/**
+		 *
+		 * @param tag
+		 *            the disfluency tag
+		 * @return the share of the words predicted with the tag that have the tag,
+		 *         0 if no word was predicted with it
+		 */
+		public double precision(DisfluencyTag tag) {
+			return ratio(truePositives[tag.ordinal()], truePositives[tag.ordinal()] + falsePositives[tag.ordinal()]);
+		}
+
+		/**
+		 *
+		 * @param tag
+		 *            the disfluency tag
+		 * @return the share of the words with the tag that were predicted with it,
+		 *         0 if no word has the tag
+		 */
+		public double recall(DisfluencyTag tag) {
+			return ratio(truePositives[tag.ordinal()], truePositives[tag.ordinal()] + falseNegatives[tag.ordinal()]);
+		}
+
+		/**
+		 *
+		 * @param tag
+		 *            the disfluency tag
+		 * @return the harmonic mean of precision and recall
+		 */
+		public double f1(DisfluencyTag tag) {
+			double precision = precision(tag);
+			double recall = recall(tag);
+			return precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+		}
+
+		/**
+		 *
+		 * @param tag
+		 *            the disfluency tag
+		 * @return the number of words with the tag
+		 */
+		public long support(DisfluencyTag tag) {
+			return truePositives[tag.ordinal()] + falseNegatives[tag.ordinal()];
+		}
+
+		/**
+		 *
+		 * @return the share of the correctly tagged words
+		 */
+		public double accuracy() {
+			return ratio(correct, tokens);
+		}
+
+		/**
+		 *
+		 * @return the mean F1 score of the tags that occur in the corpus
+		 */
+		public double macroF1() {
+			double sum = 0;
+			int count = 0;
+			for (DisfluencyTag tag : TAGS) {
+				if (support(tag) > 0) {
+					sum += f1(tag);
+					count++;
+				}
+			}
+			return count == 0 ? 0 : sum / count;
+		}
+
+		/**
+		 *
+		 * @param quantile
+		 *            the quantile between 0 and 1
+		 * @return the latency of an utterance at the quantile (nearest rank) in
+		 *         nanoseconds
+		 */
+		public long latencyNanos(double quantile) {
+			if (latencies.length == 0) {
+				return 0;
+			}
+			int rank = (int) Math.ceil(quantile * latencies.length);
+			return latencies[Math.min(latencies.length - 1, Math.max(0, rank - 1))];
+		}
+
+		/**
+		 *
+		 * @return the number of tagged words per second of the whole run
+		 */
+		public double tokensPerSecond() {
+			return wallNanos == 0 ? 0 : tokens * 1e9 / wallNanos;
+		}
+
+		/**
+		 *
+		 * @return the number of tagged words
+		 */
+		public long getTokens() {
+			return tokens;
+		}
+
+		/**
+		 *
+		 * @return the sum of the peak usage of the heap pools during the run
+		 */
+		public long getPeakHeapBytes() {
+			return peakHeapBytes;
+		}
+
+		/**
+		 *
+		 * @return the peak resident set size of the process, -1 if it is unknown
+		 */
+		public long getPeakResidentBytes() {
+			return peakResidentBytes;
+		}
+
+		private static double ratio(long numerator, long denominator) {
+			return denominator == 0 ? 0 : (double) numerator / denominator;
+		}
+
+		/**
+		 * Logs the report.
+		 */
+		public void log() {
+			for (DisfluencyTag tag : TAGS) {
+				logger.info(String.format("%-5s precision %.4f, recall %.4f, F1 %.4f (%d words)", tag, precision(tag), recall(tag), f1(tag),
+						support(tag)));
+			}
+			logger.info(String.format("Accuracy %.4f, macro F1 %.4f over %d words of %d utterances", accuracy(), macroF1(), tokens,
+					latencies.length));
+			logger.info(String.format("Latency per utterance: p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms", latencyNanos(0.5) / 1e6,
+					latencyNanos(0.95) / 1e6, latencyNanos(0.99) / 1e6, latencyNanos(1) / 1e6));
+			logger.info(String.format("Throughput with %d threads: %.1f tokens/s", threads, tokensPerSecond()));
+			logger.info("Peak memory: heap {} MB, resident {} MB", peakHeapBytes >> 20,
+					peakResidentBytes >= 0 ? String.valueOf(peakResidentBytes >> 20) : "unknown");
+		}
+	}
+
+}
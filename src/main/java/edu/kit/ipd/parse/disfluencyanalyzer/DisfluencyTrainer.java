@@ -0,0 +1,271 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.deeplearning4j.datasets.iterator.AsyncMultiDataSetIterator;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.optimize.listeners.PerformanceListener;
+import org.deeplearning4j.util.ModelSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.WordVectorLookup;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.InternedUtterance;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.TokenInterner;
+import edu.kit.ipd.parse.disfluencyanalyzer.model.CompactModel;
+
+/**
+ * Command line tool that (re)trains the disfluency network on a
+ * {@link TaggedCorpus}. The network starts from the parameters of an existing
+ * model (by default the model of the classifier) or, with {@code -fresh}, from
+ * newly initialized parameters with the configuration of that model.
+ * <p>
+ * The utterances are prepared like in the classifier (the filled pauses are
+ * removed) and bucketed by their length, so that the batches contain no
+ * padding. The features of the next batches are computed on a background
+ * thread while the network is trained on the current batch, the network itself
+ * uses all cores through the native ND4J backend. After each epoch the network
+ * is written in the ModelSerializer format (with the updater state, so that
+ * the training can be continued), the throughput is logged and, if an
+ * evaluation corpus is given, the accuracy and the macro F1 score of the tags
+ * of the classifier with the network (see {@link DisfluencyEvaluator}).
+ * <p>
+ * Usage:
+ * {@code DisfluencyTrainer <corpus.txt> <output.net> [-model <model>] [-vectors <word vectors>] [-fresh] [-epochs <N>] [-batch <N>] [-prefetch <N>] [-eval <corpus.txt>]}
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class DisfluencyTrainer {
+
+	private static final Logger logger = LoggerFactory.getLogger(DisfluencyTrainer.class);
+
+	private static final String USAGE = "Usage: DisfluencyTrainer <corpus.txt> <output.net> [-model <model>] [-vectors <word vectors>] "
+			+ "[-fresh] [-epochs <N>] [-batch <N>] [-prefetch <N>] [-eval <corpus.txt>]";
+	private static final int DEFAULT_EPOCHS = 10;
+	private static final int DEFAULT_BATCH_SIZE = 32;
+	// The number of batches that are prepared in advance
+	private static final int DEFAULT_PREFETCH = 4;
+	private static final int MAX_SEQUENCE_LENGTH = 1000;
+	private static final long SEED = 42;
+	// The number of iterations between two reports of the performance listener
+	private static final int REPORT_FREQUENCY = 20;
+
+	private DisfluencyTrainer() {
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		File corpusFile = new File(args[0]);
+		File outputFile = new File(args[1]);
+		String modelPath = null;
+		String wordVectorsPath = null;
+		boolean fresh = false;
+		int epochs = DEFAULT_EPOCHS;
+		int batchSize = DEFAULT_BATCH_SIZE;
+		int prefetch = DEFAULT_PREFETCH;
+		File evalFile = null;
+		for (int i = 2; i < args.length; i++) {
+			if (args[i].equals("-fresh")) {
+				fresh = true;
+				continue;
+			}
+			if (i + 1 == args.length) {
+				System.err.println(USAGE);
+				System.exit(1);
+			}
+			String value = args[++i];
+			switch (args[i - 1]) {
+			case "-model":
+				modelPath = value;
+				break;
+			case "-vectors":
+				wordVectorsPath = value;
+				break;
+			case "-epochs":
+				epochs = Integer.parseInt(value);
+				break;
+			case "-batch":
+				batchSize = Integer.parseInt(value);
+				break;
+			case "-prefetch":
+				prefetch = Integer.parseInt(value);
+				break;
+			case "-eval":
+				evalFile = new File(value);
+				break;
+			default:
+				System.err.println(USAGE);
+				System.exit(1);
+			}
+		}
+		if (modelPath == null) {
+			modelPath = LSTMClassifier.defaultModelPath();
+		}
+		if (wordVectorsPath == null) {
+			wordVectorsPath = LSTMClassifier.defaultWordVectorsPath();
+		}
+		ComputationGraph net = loadNetwork(modelPath, fresh);
+		try (ModelRegistry.Handle resources = ModelRegistry.acquire(modelPath, wordVectorsPath)) {
+			WordVectorLookup wordVectors = resources.getWordVectors();
+			DisfluencyDataSetIterator iterator = iterator(TaggedCorpus.read(corpusFile), wordVectors, batchSize);
+			iterator.enableLengthBucketing(SEED);
+			TaggedCorpus evalCorpus = null;
+			if (evalFile != null) {
+				evalCorpus = TaggedCorpus.read(evalFile);
+			}
+			train(net, iterator, evalCorpus, wordVectorsPath, epochs, prefetch, outputFile);
+		}
+	}
+
+	/*
+	 * The parameters of the model or, for a fresh network, only its
+	 * configuration. The updater state of a saved model is restored as well.
+	 */
+	private static ComputationGraph loadNetwork(String modelPath, boolean fresh) throws IOException {
+		ComputationGraph net;
+		if (modelPath.endsWith(CompactModel.EXTENSION)) {
+			net = CompactModel.read(new File(modelPath));
+		} else {
+			net = ModelSerializer.restoreComputationGraph(modelPath, true);
+		}
+		if (fresh) {
+			net = new ComputationGraph(net.getConfiguration().clone());
+			net.init();
+		}
+		return net;
+	}
+
+	/**
+	 * Creates the iterator over the utterances of a corpus. The utterances are
+	 * prepared like in the classifier: the filled pauses are removed.
+	 *
+	 * @param corpus
+	 *            the tagged corpus
+	 * @param wordVectors
+	 *            the word vectors
+	 * @param batchSize
+	 *            the number of sequences per batch
+	 * @return the iterator with the labelled sequences of the corpus
+	 */
+	static DisfluencyDataSetIterator iterator(TaggedCorpus corpus, WordVectorLookup wordVectors, int batchSize) {
+		List<String> posTags = LSTMClassifier.definedPosTags();
+		List<String> chunkIOBTags = LSTMClassifier.definedChunkIOBTags();
+		TokenInterner interner = new TokenInterner(posTags, chunkIOBTags);
+		DisfluencyDataSetIterator iterator = new DisfluencyDataSetIterator(batchSize, MAX_SEQUENCE_LENGTH, wordVectors, posTags, chunkIOBTags,
+				LSTMClassifier.definedDisfluencyTags());
+		for (int u = 0; u < corpus.size(); u++) {
+			Utterance utterance = corpus.getUtterances().get(u);
+			InternedUtterance interned = interner.intern(utterance.getWords(), utterance.getPosTags(), utterance.getChunkIOBTags());
+			int[] positions = interned.positionsWithoutFilledPauses();
+			if (positions.length == 0) {
+				continue;
+			}
+			int[] dfTagIds = new int[positions.length];
+			for (int j = 0; j < positions.length; j++) {
+				dfTagIds[j] = corpus.getTags().get(u).get(positions[j]).ordinal();
+			}
+			iterator.addLabelledSequence(interned.select(positions), dfTagIds);
+		}
+		return iterator;
+	}
+
+	/**
+	 * Trains the network and writes it after each epoch.
+	 *
+	 * @param net
+	 *            the network to be trained
+	 * @param iterator
+	 *            the training data
+	 * @param evalCorpus
+	 *            the corpus that the classifier with the network is evaluated on
+	 *            after each epoch, or null
+	 * @param wordVectorsPath
+	 *            the path of the word vectors of the classifier for the
+	 *            evaluation
+	 * @param epochs
+	 *            the number of epochs
+	 * @param prefetch
+	 *            the number of batches that are prepared in advance
+	 * @param outputFile
+	 *            the file the network is written to
+	 * @throws IOException
+	 *             if the network cannot be written
+	 * @throws InterruptedException
+	 *             if the thread is interrupted during an evaluation
+	 */
+	public static void train(ComputationGraph net, DisfluencyDataSetIterator iterator, TaggedCorpus evalCorpus, String wordVectorsPath,
+			int epochs, int prefetch, File outputFile) throws IOException, InterruptedException {
+		logger.info("Training on {} sequences with {} words, {} processors", iterator.numSequences(), iterator.numWords(),
+				Runtime.getRuntime().availableProcessors());
+		net.setListeners(new PerformanceListener.Builder().reportSample(true).reportBatch(true).reportETL(true).reportScore(true)
+				.setFrequency(REPORT_FREQUENCY).build());
+		for (int epoch = 1; epoch <= epochs; epoch++) {
+			iterator.reset();
+			AsyncMultiDataSetIterator prefetching = new AsyncMultiDataSetIterator(iterator, prefetch, true);
+			long start = System.nanoTime();
+			try {
+				net.fit(prefetching);
+			} finally {
+				prefetching.shutdown();
+			}
+			double seconds = (System.nanoTime() - start) / 1e9;
+			logger.info("Epoch {}: {} s, {} examples/s, {} words/s, score {}", epoch, String.format("%.1f", seconds),
+					String.format("%.1f", iterator.numSequences() / seconds), String.format("%.1f", iterator.numWords() / seconds), net.score());
+			checkpoint(net, outputFile);
+			if (evalCorpus != null) {
+				DisfluencyEvaluator.Report report = evaluate(net, evalCorpus, wordVectorsPath);
+				logger.info("Epoch {}: accuracy {}, macro F1 {}", epoch, report.accuracy(), report.macroF1());
+			}
+		}
+	}
+
+	/**
+	 * Evaluates the classifier with the given network, including the adjustment
+	 * of its predictions, on a tagged corpus. The network is written to a
+	 * temporary file for the classifier: the registry would keep a model of the
+	 * same path that is still in use.
+	 *
+	 * @param net
+	 *            the network
+	 * @param corpus
+	 *            the tagged corpus
+	 * @param wordVectorsPath
+	 *            the path of the word vectors
+	 * @return the report of the evaluation
+	 * @throws IOException
+	 *             if the network cannot be written
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting for the tags
+	 */
+	static DisfluencyEvaluator.Report evaluate(ComputationGraph net, TaggedCorpus corpus, String wordVectorsPath)
+			throws IOException, InterruptedException {
+		File model = File.createTempFile("evaluation", ".net");
+		try {
+			ModelSerializer.writeModel(net, model, false);
+			int threads = Runtime.getRuntime().availableProcessors();
+			try (LSTMClassifier classifier = new LSTMClassifier(model.getPath(), wordVectorsPath, threads)) {
+				return DisfluencyEvaluator.evaluate(classifier, corpus, threads);
+			}
+		} finally {
+			Files.deleteIfExists(model.toPath());
+		}
+	}
+
+	// Written to a temporary file first, so that an interrupted write does not destroy the last checkpoint
+	private static void checkpoint(ComputationGraph net, File outputFile) throws IOException {
+		File absolute = outputFile.getAbsoluteFile();
+		File temporary = new File(absolute.getParentFile(), absolute.getName() + ".tmp");
+		ModelSerializer.writeModel(net, temporary, true);
+		Files.move(temporary.toPath(), absolute.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		logger.info("Wrote checkpoint {}", absolute);
+	}
+
+}
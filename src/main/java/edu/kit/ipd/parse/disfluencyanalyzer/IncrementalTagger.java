@@ -0,0 +1,174 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.util.TokenSequence;
+
+/**
+ * Tags the token sequence of a graph that is changed by other agents between
+ * the executions. The tagger keeps the last tagged sequence and its tags. If the
+ * sequence changes, only a window around the changed tokens is tagged again:
+ * the changed tokens plus {@link #CONTEXT} tokens on each side get new tags, and
+ * the window passed to the classifier has another {@link #CONTEXT} tokens on
+ * each side, so that the discrete features of all re-tagged tokens see their
+ * complete surroundings. The tags outside of the window are kept.
+ * <p>
+ * The bidirectional network sees the whole utterance when tagging it
+ * completely, so a disfluency that crosses a border of the re-tagged tokens
+ * could get inconsistent tags. If the tag on either side of a border is part of
+ * a disfluency (any tag but O-DF), the re-tagged tokens are extended to the
+ * start (or the end) of the utterance. The tags can still differ from a complete
+ * re-tagging if the network relates words that are more than {@link #CONTEXT}
+ * tokens apart while the tags at the borders are fluent; this is rare for the
+ * disfluencies of spoken commands.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class IncrementalTagger {
+
+	/**
+	 * The number of context tokens on each side, the surroundings of a word
+	 * considered by the discrete features.
+	 */
+	public static final int CONTEXT = 15;
+
+	private static final String DISFLUENCY_OUTSIDE = DisfluencyTag.DISFLUENCY_OUTSIDE.toString();
+
+	private final SequenceTagger tagger;
+	private TokenSequence previous;
+	private List<String> previousTags;
+	private int retaggedFrom = -1;
+	private int retaggedTo = -1;
+
+	/**
+	 *
+	 * @param tagger
+	 *            the tagger for the (partial) sequences
+	 */
+	public IncrementalTagger(SequenceTagger tagger) {
+		this.tagger = tagger;
+	}
+
+	/**
+	 * Returns the tags for the given sequence. Only the tokens that changed since
+	 * the last call (and their context) are tagged again.
+	 *
+	 * @param sequence
+	 *            the current token sequence
+	 * @return the disfluency tag of each token
+	 */
+	public List<String> tag(TokenSequence sequence) {
+		int n = sequence.size();
+		if (previous == null) {
+			return tagCompletely(sequence);
+		}
+		if (previous.hasSameInput(sequence)) {
+			retaggedFrom = n;
+			retaggedTo = n;
+			return previousTags;
+		}
+		int m = previous.size();
+		int prefix = sequence.commonPrefixLength(previous);
+		int suffix = sequence.commonSuffixLength(previous, prefix);
+		// The tokens that get new tags and the window that is passed to the classifier
+		int acceptFrom = Math.max(0, prefix - CONTEXT);
+		int acceptTo = Math.min(n, n - suffix + CONTEXT);
+		int windowFrom;
+		List<String> windowTags;
+		while (true) {
+			windowFrom = Math.max(0, acceptFrom - CONTEXT);
+			int windowTo = Math.min(n, acceptTo + CONTEXT);
+			if (windowFrom == 0 && windowTo == n) {
+				return tagCompletely(sequence);
+			}
+			windowTags = tagger.tag(sequence.getWords().subList(windowFrom, windowTo), sequence.getPosTags().subList(windowFrom, windowTo),
+					sequence.getChunkIOBTags().subList(windowFrom, windowTo));
+			// A border inside a disfluency is moved to the start or the end of the utterance
+			boolean cutAtStart = acceptFrom > 0
+					&& (isDisfluent(previousTags.get(acceptFrom - 1)) || isDisfluent(windowTags.get(acceptFrom - windowFrom)));
+			boolean cutAtEnd = acceptTo < n
+					&& (isDisfluent(previousTags.get(acceptTo - n + m)) || isDisfluent(windowTags.get(acceptTo - 1 - windowFrom)));
+			if (!cutAtStart && !cutAtEnd) {
+				break;
+			}
+			acceptFrom = cutAtStart ? 0 : acceptFrom;
+			acceptTo = cutAtEnd ? n : acceptTo;
+		}
+		List<String> tags = new ArrayList<>(n);
+		tags.addAll(previousTags.subList(0, acceptFrom));
+		tags.addAll(windowTags.subList(acceptFrom - windowFrom, acceptTo - windowFrom));
+		tags.addAll(previousTags.subList(acceptTo - n + m, m));
+		remember(sequence, tags, acceptFrom, acceptTo);
+		return previousTags;
+	}
+
+	private static boolean isDisfluent(String tag) {
+		return !DISFLUENCY_OUTSIDE.equals(tag);
+	}
+
+	private List<String> tagCompletely(TokenSequence sequence) {
+		List<String> tags = tagger.tag(sequence.getWords(), sequence.getPosTags(), sequence.getChunkIOBTags());
+		remember(sequence, tags, 0, sequence.size());
+		return previousTags;
+	}
+
+	private void remember(TokenSequence sequence, List<String> tags, int from, int to) {
+		previous = sequence;
+		previousTags = Collections.unmodifiableList(new ArrayList<>(tags));
+		retaggedFrom = from;
+		retaggedTo = to;
+	}
+
+	/**
+	 * Checks whether the given sequence has the same input as the last tagged
+	 * sequence.
+	 *
+	 * @param sequence
+	 *            the current token sequence
+	 * @return true if the sequence did not change since the last call of
+	 *         {@link #tag(TokenSequence)}
+	 */
+	public boolean isUnchanged(TokenSequence sequence) {
+		return previous != null && previous.hasSameInput(sequence);
+	}
+
+	/**
+	 *
+	 * @return true if a sequence was tagged since the creation or the last reset
+	 */
+	public boolean hasTagged() {
+		return previous != null;
+	}
+
+	/**
+	 * Forgets the last tagged sequence, the next sequence is tagged completely.
+	 */
+	public void reset() {
+		previous = null;
+		previousTags = null;
+		retaggedFrom = -1;
+		retaggedTo = -1;
+	}
+
+	/**
+	 *
+	 * @return the first token that got a new tag in the last call or -1 if there
+	 *         was no call
+	 */
+	public int getRetaggedFrom() {
+		return retaggedFrom;
+	}
+
+	/**
+	 *
+	 * @return the token after the last token that got a new tag in the last call
+	 *         or -1 if there was no call
+	 */
+	public int getRetaggedTo() {
+		return retaggedTo;
+	}
+
+}
@@ -2,40 +2,242 @@ package edu.kit.ipd.parse.disfluencyanalyzer;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import edu.kit.ipd.pronat.prepipedatamodel.token.ChunkIOB;
 import edu.kit.ipd.pronat.prepipedatamodel.token.POSTag;
-import org.deeplearning4j.models.embeddings.loader.WordVectorSerializer;
-import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
 import org.deeplearning4j.nn.graph.ComputationGraph;
-import org.deeplearning4j.util.ModelSerializer;
 import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import edu.kit.ipd.parse.disfluencyanalyzer.util.WordUtils;
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.WordVectorLookup;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.DiscreteFeatureExtractor;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.InternedUtterance;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.TokenInterner;
+import edu.kit.ipd.parse.disfluencyanalyzer.metrics.DisfluencyMetrics;
+import edu.kit.ipd.parse.disfluencyanalyzer.metrics.Stage;
+import edu.kit.ipd.parse.disfluencyanalyzer.model.CompactModel;
+import edu.kit.ipd.parse.disfluencyanalyzer.model.LSTMNetwork;
 import org.nd4j.linalg.io.ClassPathResource;
 
 /**
+ * Tags utterances with their disfluency tags. The classifier is thread-safe:
+ * the network runs on a pool of replicas that share the parameters of the
+ * model, so that several threads (e.g. pipelines) can tag their utterances at
+ * the same time with one loaded model.
+ *
  * @author Robert Hochweiss
  * @author Sebastian Weigelt
  *
  */
-public class LSTMClassifier {
+public class LSTMClassifier implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(LSTMClassifier.class);
 
-	public static String wordVectorsPath = "";
-	public static String modelSaveLocation = "";
+	private static final String BINARY_WORD_VECTORS = "glove.twitter.27B.50d.bin";
+	private static final String COMPACT_WORD_VECTORS = "glove.twitter.27B.50d.compact.bin";
+	private static final String TEXT_WORD_VECTORS = "glove.twitter.27B.50d.txt";
+	private static final String MODEL = "DisfluencyModel.net";
+	private static final String COMPACT_MODEL = "DisfluencyModel" + CompactModel.EXTENSION;
+	private static final int MAX_SEQUENCE_LENGTH = 1000;
+	private static final int DEFAULT_BATCH_SIZE = 32;
+	// Removed filled pauses are tagged as FP
+	private static final int FP = PredictionAdjuster.FP;
+
+	private final ModelRegistry.Handle resources;
+	private final ReplicaPool replicas;
 	private List<String> posTags;
 	private List<String> chunkIOBTags;
 	private List<String> dfTags;
-	private WordVectors wordVectors;
-	private ComputationGraph net;
-	private boolean fpToBeRemoved = true;
+	private final TokenInterner interner;
+	private final PredictionAdjuster adjuster;
+	private final ConstrainedDecoder constrainedDecoder = new ConstrainedDecoder();
+	private volatile boolean constrainedDecoding = false;
+	private volatile boolean javaInference = false;
+	// The metrics are not recorded for the synthetic utterances of the warm-up
+	private static final DisfluencyMetrics WARM_UP_METRICS = new DisfluencyMetrics(false);
+	private final ThreadLocal<DisfluencyMetrics> metrics = ThreadLocal.withInitial(DisfluencyMetrics::getInstance);
+	private final WordVectorLookup wordVectors;
+	private final boolean fpToBeRemoved = true;
+	private volatile TaggingCache taggingCache;
+	private volatile long fingerprint;
 
+	/**
+	 * Creates a classifier that uses the model and the word vectors from the
+	 * classpath.
+	 */
 	public LSTMClassifier() {
-		posTags = new ArrayList<>();
+		this(defaultModelPath(), defaultWordVectorsPath());
+	}
+
+	/**
+	 * Creates a classifier for the given model and word vectors with up to one
+	 * network replica per available processor. The model and the word vectors are
+	 * shared with all other classifiers that use the same files.
+	 *
+	 * @param modelPath
+	 *            the path of the saved network model
+	 * @param wordVectorsPath
+	 *            the path of the word vectors
+	 */
+	public LSTMClassifier(String modelPath, String wordVectorsPath) {
+		this(modelPath, wordVectorsPath, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a classifier for the given model and word vectors. The model and
+	 * the word vectors are shared with all other classifiers that use the same
+	 * files.
+	 *
+	 * @param modelPath
+	 *            the path of the saved network model
+	 * @param wordVectorsPath
+	 *            the path of the word vectors
+	 * @param maxReplicas
+	 *            the maximal number of network replicas, i.e. of threads that run
+	 *            the network at the same time
+	 * @throws UncheckedIOException
+	 *             if the word vectors cannot be loaded
+	 */
+	public LSTMClassifier(String modelPath, String wordVectorsPath, int maxReplicas) {
+		posTags = definedPosTags();
+		chunkIOBTags = definedChunkIOBTags();
+		dfTags = definedDisfluencyTags();
+		interner = new TokenInterner(posTags, chunkIOBTags);
+		adjuster = new PredictionAdjuster(interner);
+		resources = ModelRegistry.acquire(modelPath, wordVectorsPath);
+		try {
+			wordVectors = resources.getWordVectors();
+		} catch (IOException e) {
+			resources.release();
+			throw new UncheckedIOException("The word vectors cannot be loaded from " + wordVectorsPath, e);
+		}
+		logger.debug("Word vectors loaded from {}", wordVectorsPath);
+		replicas = new ReplicaPool(resources, maxReplicas);
+	}
+
+	/**
+	 * Releases the shared model and word vectors of this classifier. The
+	 * classifier must not be used afterwards.
+	 */
+	@Override
+	public void close() {
+		resources.release();
+	}
+
+	/**
+	 *
+	 * @return the maximal number of threads that run the network at the same
+	 *         time
+	 */
+	public int getMaxReplicas() {
+		return replicas.getMaxReplicas();
+	}
+
+	/**
+	 *
+	 * @return the number of network replicas created so far
+	 */
+	int getCreatedReplicas() {
+		return replicas.getCreated();
+	}
+
+	/**
+	 * Sets the cache for the tags of complete utterances. Repeated utterances are
+	 * then answered from the cache without running the network. The cache can be
+	 * shared with other classifiers, the entries are separated by the fingerprint
+	 * of the model. If the fingerprint of the model cannot be computed, caching is
+	 * disabled and a warning is logged.
+	 *
+	 * @param taggingCache
+	 *            the cache or null to disable caching
+	 */
+	public void setTaggingCache(TaggingCache taggingCache) {
+		if (taggingCache != null) {
+			try {
+				fingerprint = resources.getFingerprint();
+			} catch (IOException e) {
+				logger.warn("Cannot compute the fingerprint of the model, the tags are not cached", e);
+				this.taggingCache = null;
+				return;
+			}
+		}
+		this.taggingCache = taggingCache;
+	}
+
+	/**
+	 *
+	 * @return the cache for the tags of complete utterances or null if caching
+	 *         is disabled
+	 */
+	public TaggingCache getTaggingCache() {
+		return taggingCache;
+	}
+
+	/**
+	 * Enables or disables the constrained decoding. If it is enabled, the tags are
+	 * the most probable tag sequence with a valid repair structure (see
+	 * {@link ConstrainedDecoder}) instead of the most probable tag of each word
+	 * adjusted by heuristic rules.
+	 *
+	 * @param constrainedDecoding
+	 *            true to enable the constrained decoding
+	 */
+	public void setConstrainedDecoding(boolean constrainedDecoding) {
+		this.constrainedDecoding = constrainedDecoding;
+	}
+
+	/**
+	 *
+	 * @return true if the constrained decoding is enabled
+	 */
+	public boolean isConstrainedDecoding() {
+		return constrainedDecoding;
+	}
+
+	/**
+	 * Enables or disables the inference in plain Java (see {@link LSTMNetwork})
+	 * instead of ND4J. Both compute the same tags. Together with a compact model
+	 * the native ND4J backend is not needed at all.
+	 *
+	 * @param javaInference
+	 *            true to enable the inference in plain Java
+	 */
+	public void setJavaInference(boolean javaInference) {
+		this.javaInference = javaInference;
+	}
+
+	/**
+	 *
+	 * @return true if the inference in plain Java is enabled
+	 */
+	public boolean isJavaInference() {
+		return javaInference;
+	}
+
+	/**
+	 * Starts a new session that tags the words of an utterance while they arrive,
+	 * see {@link StreamingSession}. The windows of the session are not cached.
+	 *
+	 * @return the new session
+	 */
+	public StreamingSession newStreamingSession() {
+		return new StreamingSession((words, pos, chunkIOB) -> toTags(tag(interner.intern(words, pos, chunkIOB))));
+	}
+
+	/**
+	 * Returns the POS tags in the order of the POS input of the network. The
+	 * trainer, the classifier and the exporter of compact models have to use the
+	 * same order.
+	 *
+	 * @return the POS tags of the network
+	 */
+	public static List<String> definedPosTags() {
+		List<String> posTags = new ArrayList<>();
 		// TODO: That's a bit hacky. The classifier expects 42 distinct PoS tags.
 		//  However, the pre-pipeline models has 46, so we use the first 42.
 		//  Don't know how to select the right ones.
@@ -46,241 +248,486 @@ public class LSTMClassifier {
 		//		for (POSTag p : POSTag.values()) {
 		//			posTags.add(p.getTag());
 		//		}
-		chunkIOBTags = new ArrayList<>();
+		return posTags;
+	}
+
+	/**
+	 *
+	 * @return the chunk IOB tags in the order of the chunk IOB input of the
+	 *         network
+	 */
+	public static List<String> definedChunkIOBTags() {
+		List<String> chunkIOBTags = new ArrayList<>();
 		for (ChunkIOB c : ChunkIOB.values()) {
 			chunkIOBTags.add(c.toString());
 		}
-		dfTags = new ArrayList<>();
+		return chunkIOBTags;
+	}
+
+	/**
+	 *
+	 * @return the disfluency tags in the order of the output of the network
+	 */
+	public static List<String> definedDisfluencyTags() {
+		List<String> dfTags = new ArrayList<>();
 		for (DisfluencyTag d : DisfluencyTag.values()) {
 			dfTags.add(d.toString());
 		}
-		try {
-			wordVectorsPath = new ClassPathResource("glove.twitter.27B.50d.txt").getFile().getAbsolutePath();
-			modelSaveLocation = new ClassPathResource("DisfluencyModel.net").getFile().getAbsolutePath();
-		} catch (IOException e) {
-			e.printStackTrace();
+		return dfTags;
+	}
+
+	/**
+	 * Returns the path of the model that is used by default: the compact model
+	 * on the classpath if there is one, otherwise the saved model.
+	 *
+	 * @return the path of the default model
+	 */
+	public static String defaultModelPath() {
+		/*
+		 * The compact model is created once from the saved model with the
+		 * CompactModelExporter, the saved model is only used as fallback
+		 */
+		if (new ClassPathResource(COMPACT_MODEL).exists()) {
+			return resourcePath(COMPACT_MODEL);
 		}
-		System.out.println("Loading word vectors.");
-		wordVectors = WordVectorSerializer.loadStaticModel(new File(wordVectorsPath));
-		System.out.println("Word vectors loaded.");
+		return resourcePath(MODEL);
 	}
 
-	public List<Integer> tagInputSequence(List<String> wordList, List<Integer> posList, List<Integer> chunkIOBList) {
+	static String defaultWordVectorsPath() {
 		/*
-		 * Load the network from a saved model if there is no current network model
-		 * configured and trained
+		 * The binary word vectors are created once from the GloVe text file with the
+		 * BinaryWordVectorConverter, the text file is only used as fallback. The
+		 * compact table of the CompactWordVectorBuilder is preferred, with the full
+		 * binary table as fallback for missing words.
 		 */
-		if (net == null) {
-			try {
-				net = ModelSerializer.restoreComputationGraph(modelSaveLocation);
-				System.out.println("Saved model restored.");
-			} catch (IOException e) {
-				e.printStackTrace();
+		if (new ClassPathResource(COMPACT_WORD_VECTORS).exists()) {
+			if (new ClassPathResource(BINARY_WORD_VECTORS).exists()) {
+				return resourcePath(COMPACT_WORD_VECTORS) + File.pathSeparator + resourcePath(BINARY_WORD_VECTORS);
 			}
+			return resourcePath(COMPACT_WORD_VECTORS);
 		}
-		// the original positions of the FPs, first they have to be removed if
-		// fpausesToBeRemoved is set then after the classification process
-		// they have to be added again at their index
-		List<Integer> fpIdxList = new ArrayList<>();
-		if (fpToBeRemoved) {
-			for (int i = 0; i < wordList.size(); i++) {
-				if (WordUtils.FILLED_PAUSES.contains(wordList.get(i))) {
-					fpIdxList.add(i);
-					wordList.remove(i);
-					posList.remove(i);
-					chunkIOBList.remove(i);
+		if (new ClassPathResource(BINARY_WORD_VECTORS).exists()) {
+			return resourcePath(BINARY_WORD_VECTORS);
+		}
+		return resourcePath(TEXT_WORD_VECTORS);
+	}
+
+	private static String resourcePath(String resource) {
+		try {
+			return new ClassPathResource(resource).getFile().getAbsolutePath();
+		} catch (IOException e) {
+			logger.warn("The resource {} is not a file on the classpath", resource, e);
+			return resource;
+		}
+	}
+
+	/**
+	 * Prepares the classifier for the first real utterance. It restores the
+	 * network model (which also initialises the native ND4J backend) and tags
+	 * some synthetic utterances, so that the first real utterance does not have to
+	 * pay for the deserialisation and the warm-up of the JIT compiler. The
+	 * synthetic utterances are not recorded in the {@link DisfluencyMetrics}.
+	 */
+	public void warmUp() {
+		metrics.set(WARM_UP_METRICS);
+		try {
+			loadModel();
+			String[][] utterances = { { "put", "the", "green", "cup", "uh", "in", "the", "the", "dishwasher" },
+					{ "go", "to", "the", "fridge", "I", "mean", "the", "cupboard", "and", "open", "it", "okay" } };
+			for (int n = 0; n < 3; n++) {
+				for (String[] utterance : utterances) {
+					List<String> words = new ArrayList<>();
+					List<String> pos = new ArrayList<>();
+					List<String> chunkIOB = new ArrayList<>();
+					for (int i = 0; i < utterance.length; i++) {
+						words.add(utterance[i]);
+						pos.add(posTags.get(i % posTags.size()));
+						chunkIOB.add(chunkIOBTags.get(i % chunkIOBTags.size()));
+					}
+					// Not cached, the network has to run for each repetition
+					tag(interner.intern(words, pos, chunkIOB));
 				}
 			}
+		} finally {
+			metrics.remove();
+		}
+	}
+
+	private DisfluencyMetrics metrics() {
+		return metrics.get();
+	}
+
+	/*
+	 * Restores the saved model and creates the first replica if there is none
+	 */
+	private void loadModel() {
+		if (javaInference) {
+			javaNetwork();
+		} else if (replicas.getCreated() == 0) {
+			releaseReplica(acquireReplica());
+			logger.debug("Saved model restored from {}", resources.getModelPath());
+		}
+	}
+
+	/*
+	 * Runs the network on the features with a replica of the pool, the output is
+	 * copied before the replica is used by another thread
+	 */
+	private float[] output(MultiDataSet features) {
+		ComputationGraph net = acquireReplica();
+		try {
+			return outputData(net.output(false, features.getFeatures(), features.getFeaturesMaskArrays())[0]);
+		} finally {
+			releaseReplica(net);
 		}
-		List<Integer> predictionsList = new ArrayList<>();
-		List<Integer> adjustedPredictions = new ArrayList<>();
-		if (!wordList.isEmpty()) {
-			// DisfluencyDataSetIterator for special case: only 1 sequence (for
-			// usage, not for training/eval)
-			DisfluencyDataSetIterator tagIterator = new DisfluencyDataSetIterator(1, 1000, wordVectors, posTags, chunkIOBTags, dfTags);
-			tagIterator.addInputSequenceList(wordList, posList, chunkIOBList);
-			INDArray networkOutput = net.outputSingle(tagIterator);
+	}
+
+	private LSTMNetwork javaNetwork() {
+		LSTMNetwork network;
+		try {
+			network = resources.getJavaNetwork();
+		} catch (IOException e) {
+			throw new IllegalStateException("The saved model cannot be restored", e);
+		}
+		if (network.getWordVectorSize() != wordVectors.vectorSize() || network.getNumPosTags() != posTags.size()
+				|| network.getNumChunkIOBTags() != chunkIOBTags.size() || network.getNumDiscreteFeatures() != DiscreteFeatureExtractor.N_DISCRETE_FEATURES) {
+			throw new IllegalStateException("The model does not fit to the features of the classifier");
+		}
+		return network;
+	}
+
+	/*
+	 * Extracts the features of the sequence into primitive arrays and runs the
+	 * network in plain Java. The output has the layout of the ND4J output of a
+	 * single sequence: the probability of class c of word j is at c + j *
+	 * numClasses.
+	 */
+	private float[] javaOutput(InternedUtterance sequence) {
+		LSTMNetwork network = javaNetwork();
+		int length = sequence.size();
+		long start = metrics().start();
+		int vectorSize = network.getWordVectorSize();
+		int numDiscreteFeatures = network.getNumDiscreteFeatures();
+		float[] words = new float[length * vectorSize];
+		int[] posIds = new int[length];
+		int[] chunkIOBIds = new int[length];
+		float[] discreteFeatures = new float[length * numDiscreteFeatures];
+		DiscreteFeatureExtractor discreteFeatureExtractor = new DiscreteFeatureExtractor(sequence);
+		for (int j = 0; j < length; j++) {
+			wordVectors.copyWordVector(sequence.word(j), words, j * vectorSize, 1);
+			posIds[j] = sequence.posId(j);
+			chunkIOBIds[j] = sequence.chunkIOBId(j);
+			discreteFeatureExtractor.extract(j, discreteFeatures, j * numDiscreteFeatures, 1);
+		}
+		metrics().record(Stage.FEATURIZATION, start, length);
+		start = metrics().start();
+		float[] output = network.output(words, posIds, chunkIOBIds, discreteFeatures, length);
+		metrics().record(Stage.INFERENCE, start, length);
+		return output;
+	}
+
+	private ComputationGraph acquireReplica() {
+		try {
+			return replicas.acquire();
+		} catch (IOException e) {
+			throw new IllegalStateException("The saved model cannot be restored", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a network replica", e);
+		}
+	}
+
+	private void releaseReplica(ComputationGraph net) {
+		replicas.release(net);
+	}
+
+	public List<Integer> tagInputSequence(List<String> wordList, List<Integer> posList, List<Integer> chunkIOBList) {
+		int[] predictions = tag(InternedUtterance.of(wordList, posList, chunkIOBList));
+		List<Integer> predictionsList = new ArrayList<>(predictions.length);
+		for (int prediction : predictions) {
+			predictionsList.add(prediction);
+		}
+		return predictionsList;
+	}
+
+	private int[] tag(InternedUtterance utterance) {
+		return tag(utterance, null);
+	}
+
+	/*
+	 * Tags the utterance, if probabilities is not null it gets the probability of
+	 * the tag of each word
+	 */
+	private int[] tag(InternedUtterance utterance, float[] probabilities) {
+		int[] keptPositions = keptPositions(utterance);
+		InternedUtterance sequence = utterance.select(keptPositions).withNormalizedFilledPauses();
+		int[] adjustedPredictions = new int[0];
+		float[] adjustedProbabilities = new float[0];
+		long start = metrics().start();
+		if (sequence.size() > 0) {
+			float[] output = output(sequence);
+			start = metrics().start();
 			// A row for each sequence, with 1 sequence only 1 row
-			INDArray predictions = networkOutput.getRow(0);
-			// 1 column per word of the sequence, the output prediction values
-			// (probabilities) for the word are the rows
-			for (int i = 0; i < predictions.columns(); i++) {
-				INDArray guessCol = predictions.getColumn(i);
-				// Get the index of the row (df output class) with the highest
-				// probability
-				int guessMaxIdx = Nd4j.getBlasWrapper().iamax(guessCol);
-				predictionsList.add(guessMaxIdx);
+			adjustedPredictions = predict(output, 1, 0, sequence);
+			if (probabilities != null) {
+				adjustedProbabilities = probabilitiesOf(output, 1, 0, adjustedPredictions, dfTags.size());
 			}
-			// Adjust the predictions to remove some simple errors of the
-			// predictions
-			adjustedPredictions.addAll(adjustPredictions(wordList, posList, predictionsList));
 		}
-		if (!fpIdxList.isEmpty()) {
-			for (int i = fpIdxList.size() - 1; i >= 0; i--) {
-				adjustedPredictions.add(fpIdxList.get(i), dfTags.indexOf("FP"));
+		if (probabilities != null) {
+			float[] scattered = InternedUtterance.scatter(adjustedProbabilities, keptPositions, utterance.size(), 1.0f);
+			System.arraycopy(scattered, 0, probabilities, 0, scattered.length);
+		}
+		int[] tags = InternedUtterance.scatter(adjustedPredictions, keptPositions, utterance.size(), FP);
+		metrics().record(Stage.POST_PROCESSING, start, utterance.size());
+		metrics().countUtterances(1, utterance.size());
+		return tags;
+	}
+
+	/*
+	 * Runs the network on a single sequence. The output has the layout of the
+	 * ND4J output of a single sequence: the probability of class c of word j is
+	 * at c + j * numClasses.
+	 */
+	private float[] output(InternedUtterance sequence) {
+		if (javaInference) {
+			return javaOutput(sequence);
+		}
+		int length = sequence.size();
+		long start = metrics().start();
+		// DisfluencyDataSetIterator for special case: only 1 sequence (for
+		// usage, not for training/eval)
+		DisfluencyDataSetIterator tagIterator = new DisfluencyDataSetIterator(1, MAX_SEQUENCE_LENGTH, wordVectors, posTags, chunkIOBTags,
+				dfTags);
+		tagIterator.addInputSequence(sequence);
+		MultiDataSet features = tagIterator.next();
+		metrics().record(Stage.FEATURIZATION, start, length);
+		start = metrics().start();
+		float[] output = output(features);
+		metrics().record(Stage.INFERENCE, start, length);
+		return output;
+	}
+
+	/*
+	 * Returns the network output for the words of the input sequence that are
+	 * passed to the network (all words except the removed filled pauses), for the
+	 * tests of the decoding
+	 */
+	float[] networkOutput(List<String> wordList, List<String> posList, List<String> chunkIOBList) {
+		InternedUtterance utterance = interner.intern(wordList, posList, chunkIOBList);
+		InternedUtterance sequence = utterance.select(keptPositions(utterance)).withNormalizedFilledPauses();
+		return sequence.size() > 0 ? output(sequence) : new float[0];
+	}
+
+	/**
+	 * Tags the input sequence with its disfluency tags, like
+	 * {@link #tagInputSequenceRaw(List, List, List)}, and returns the probability
+	 * of each tag. The result is not cached.
+	 *
+	 * @param wordList
+	 *            the words of the input sequence
+	 * @param posList
+	 *            the POS tag of each word
+	 * @param chunkIOBList
+	 *            the chunk IOB tag of each word
+	 * @return the disfluency tags with their probabilities
+	 */
+	public TaggingResult tagWithConfidence(List<String> wordList, List<String> posList, List<String> chunkIOBList) {
+		float[] probabilities = new float[wordList.size()];
+		int[] predictions = tag(interner.intern(wordList, posList, chunkIOBList), probabilities);
+		return new TaggingResult(toTags(predictions), probabilities);
+	}
+
+	/**
+	 * Tags a batch of utterances with their disfluency tags. The utterances are
+	 * sorted by their length and grouped into buckets of the same length, so that
+	 * no padding positions have to be computed. Each bucket is classified with a
+	 * single pass through the network. This is considerably faster than
+	 * tagging each utterance on its own if many utterances have to be processed
+	 * (e.g. for the offline processing of transcripts).
+	 *
+	 * @param utterances
+	 *            the utterances to be tagged
+	 * @return the disfluency tags for each utterance, in the order of the given
+	 *         utterances
+	 */
+	public List<List<String>> tagBatch(List<Utterance> utterances) {
+		return tagBatch(utterances, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Tags a batch of utterances with their disfluency tags, see
+	 * {@link #tagBatch(List)}.
+	 *
+	 * @param utterances
+	 *            the utterances to be tagged
+	 * @param batchSize
+	 *            the maximal number of utterances that are classified in one pass
+	 *            through the network
+	 * @return the disfluency tags for each utterance, in the order of the given
+	 *         utterances
+	 */
+	public List<List<String>> tagBatch(List<Utterance> utterances, int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The batch size must be positive");
+		}
+		int numUtterances = utterances.size();
+		TaggingCache cache = taggingCache;
+		List<List<String>> resultTags = new ArrayList<>(numUtterances);
+		InternedUtterance[] sequences = new InternedUtterance[numUtterances];
+		int[][] keptPositions = new int[numUtterances][];
+		List<Integer> order = new ArrayList<>(numUtterances);
+		for (int i = 0; i < numUtterances; i++) {
+			Utterance utterance = utterances.get(i);
+			List<String> cached = null;
+			if (cache != null) {
+				cached = cache.get(cacheFingerprint(), utterance.getWords(), utterance.getPosTags(), utterance.getChunkIOBTags());
 			}
+			resultTags.add(cached);
+			if (cached != null) {
+				// Only the utterances that are not cached are classified
+				continue;
+			}
+			InternedUtterance interned = interner.intern(utterance.getWords(), utterance.getPosTags(), utterance.getChunkIOBTags());
+			keptPositions[i] = keptPositions(interned);
+			sequences[i] = interned.select(keptPositions[i]).withNormalizedFilledPauses();
+			order.add(i);
 		}
-		return adjustedPredictions;
-	}
-
-	private List<Integer> adjustPredictions(List<String> wordList, List<Integer> posList, List<Integer> firstPredictions) {
-		List<Integer> adjustedPredictions = new ArrayList<>();
-		adjustedPredictions.addAll(firstPredictions);
-		int idxBRM = dfTags.indexOf("B-RM");
-		int idxIRM = dfTags.indexOf("I-RM");
-		int idxBRS = dfTags.indexOf("B-RS");
-		int idxIRS = dfTags.indexOf("I-RS");
-		List<Integer> skipClasses = Arrays.asList(dfTags.indexOf("FP"), dfTags.indexOf("EE"), dfTags.indexOf("DM"));
-		// Check for unrecognized repetitions
-		for (int i = 0; i < wordList.size() - 1; i++) {
-			if ((i + 1) < ((wordList.size() - 1))) {
-				if (wordList.get(i).equals(wordList.get(i + 1)) || wordList.get(i + 1).startsWith(wordList.get(i))) {
-					if (!(firstPredictions.get(i) == idxBRM)) {
-						adjustedPredictions.set(i, idxBRM);
-					}
-					if (!(firstPredictions.get(i + 1) == idxBRS)) {
-						adjustedPredictions.set(i + 1, idxBRS);
-					}
+		// Sort by length, so that each bucket contains sequences of similar length
+		order.sort((a, b) -> Integer.compare(sequences[a].size(), sequences[b].size()));
+		int[][] results = new int[numUtterances][0];
+		int numSequences = order.size();
+		int start = 0;
+		// Empty sequences (e.g. only filled pauses) are not passed to the network
+		while (start < numSequences && sequences[order.get(start)].size() == 0) {
+			start++;
+		}
+		while (start < numSequences) {
+			/*
+			 * A bucket only contains sequences of the same length: padded time steps
+			 * are fed into the backward direction of the bidirectional hidden layer
+			 * and would change the predictions for the shorter sequences
+			 */
+			int length = sequences[order.get(start)].size();
+			int end = start + 1;
+			while (end < numSequences && end - start < batchSize && sequences[order.get(end)].size() == length) {
+				end++;
+			}
+			List<Integer> bucket = order.subList(start, end);
+			if (javaInference) {
+				// The network in plain Java computes each sequence on its own
+				for (int idx : bucket) {
+					float[] output = javaOutput(sequences[idx]);
+					long stageStart = metrics().start();
+					results[idx] = predict(output, 1, 0, sequences[idx]);
+					metrics().record(Stage.POST_PROCESSING, stageStart, length);
 				}
-				if ((i + 2) < ((wordList.size() - 1))) {
-					if ((skipClasses.contains(firstPredictions.get(i + 1)) && wordList.get(i).equals(wordList.get(i + 2)))
-							|| (skipClasses.contains(firstPredictions.get(i + 1)) && wordList.get(i + 2).startsWith(wordList.get(i)))) {
-						if (!(firstPredictions.get(i) == idxBRM)) {
-							adjustedPredictions.set(i, idxBRM);
-						}
-						if (!(firstPredictions.get(i + 2) == idxBRS)) {
-							adjustedPredictions.set(i + 2, idxBRS);
-						}
-					}
+				start = end;
+				continue;
+			}
+			int bucketTokens = bucket.size() * length;
+			long stageStart = metrics().start();
+			DisfluencyDataSetIterator bucketIterator = new DisfluencyDataSetIterator(bucket.size(), MAX_SEQUENCE_LENGTH, wordVectors, posTags,
+					chunkIOBTags, dfTags);
+			for (int idx : bucket) {
+				bucketIterator.addInputSequence(sequences[idx]);
+			}
+			MultiDataSet features = bucketIterator.next();
+			metrics().record(Stage.FEATURIZATION, stageStart, bucketTokens);
+			stageStart = metrics().start();
+			float[] output = output(features);
+			metrics().record(Stage.INFERENCE, stageStart, bucketTokens);
+			stageStart = metrics().start();
+			// One row per sequence
+			for (int row = 0; row < bucket.size(); row++) {
+				int idx = bucket.get(row);
+				results[idx] = predict(output, bucket.size(), row, sequences[idx]);
+			}
+			metrics().record(Stage.POST_PROCESSING, stageStart, bucketTokens);
+			start = end;
+		}
+		for (int i = 0; i < numUtterances; i++) {
+			if (resultTags.get(i) == null) {
+				Utterance utterance = utterances.get(i);
+				List<String> tags = toTags(InternedUtterance.scatter(results[i], keptPositions[i], utterance.size(), FP));
+				metrics().countUtterances(1, utterance.size());
+				if (cache != null) {
+					cache.put(cacheFingerprint(), utterance.getWords(), utterance.getPosTags(), utterance.getChunkIOBTags(), tags);
 				}
+				resultTags.set(i, tags);
 			}
 		}
+		return resultTags;
+	}
 
-		// Check for not correctly recognized explicit editing terms
-		for (int i = 0; i < wordList.size(); i++) {
-			if (WordUtils.EXPLICIT_EDITING_TERMS.contains(wordList.get(i))) {
-				adjustedPredictions.set(i, dfTags.indexOf("EE"));
-			}
+	/*
+	 * Returns the positions of the words that are passed to the network: all
+	 * words except the filled pauses (if fpToBeRemoved is set). After the
+	 * classification process the predictions are scattered back to these
+	 * positions, the removed filled pauses are tagged as FP.
+	 */
+	private int[] keptPositions(InternedUtterance utterance) {
+		if (fpToBeRemoved) {
+			return utterance.positionsWithoutFilledPauses();
+		}
+		int[] positions = new int[utterance.size()];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = i;
 		}
+		return positions;
+	}
 
-		// Now check for uncompleted RM or RS blocks
-		for (int i = 0; i <= wordList.size() - 1; i++) {
-			List<Integer> newTags = new ArrayList<>();
-			boolean correspondenceReached = false;
-			switch (dfTags.get(firstPredictions.get(i))) {
-			case "B-RM":
-				for (int j = i + 1; j < i + 3; j++) {
-					if (j >= adjustedPredictions.size()) {
-						break;
-					}
-					if (adjustedPredictions.get(j) == idxIRM) {
-						continue;
-					}
-					if (adjustedPredictions.get(j) == idxBRS) {
-						correspondenceReached = true;
-						break;
-					}
-					if (adjustedPredictions.get(j) == idxBRM) {
-						break;
-					}
-					if (wordList.get(i).equals(wordList.get(j))
-							|| WordUtils.hasSimilarPOS(posTags.get(posList.get(i)), posTags.get(posList.get(j)))) {
-						correspondenceReached = true;
-						adjustedPredictions.set(j, idxBRS);
-						break;
-					}
-					// add future probable I-RM tags
-					if (!skipClasses.contains(adjustedPredictions.get(j))) {
-						newTags.add(j);
-					}
-				}
-				if (correspondenceReached) {
-					for (int k : newTags) {
-						adjustedPredictions.set(k, idxIRM);
-					}
-				}
-				break;
-			case "I-RM":
-				if (i > 0) {
-					// There cannot be a I-Tag without the corresponding B-Tag
-					if (!((adjustedPredictions.get(i - 1) == idxBRM) || (adjustedPredictions.get(i - 1) == idxIRM))) {
-						if (!skipClasses.contains(adjustedPredictions.get(i - 1))) {
-							adjustedPredictions.set(i - 1, idxBRM);
-						}
+	/*
+	 * The network output has the shape [sequences, df output classes, time
+	 * steps]. It is copied once into a primitive array in 'f' order, element [i,
+	 * c, j] is at i + c * numSequences + j * numSequences * numClasses, instead of
+	 * reading the column of each word through a separate view.
+	 */
+	static float[] outputData(INDArray networkOutput) {
+		return networkOutput.dup('f').data().asFloat();
+	}
 
-					}
-				}
-				// now search for the next B-RS
-				int k = i + 1;
-				boolean rsReached = false;
-				for (int j = k; j < k + 5; j++) {
-					if (j >= adjustedPredictions.size()) {
-						break;
-					}
-					if (adjustedPredictions.get(j) == idxBRS) {
-						rsReached = true;
-						// save position of the B-RS tag
-						k = j;
-						break;
-					}
-				}
-				if (rsReached) {
-					for (int j = k + 1; j < k + 4; j++) {
-						if (j >= adjustedPredictions.size()) {
-							break;
-						}
-						if ((adjustedPredictions.get(j) == idxIRS) || (skipClasses.contains(adjustedPredictions.get(j)))) {
-							continue;
-						}
-						if ((wordList.get(j).equals(wordList.get(i)))
-								|| WordUtils.hasSimilarPOS(posTags.get(posList.get(j)), posTags.get(posList.get(i)))) {
-							if (firstPredictions.get(j) == dfTags.indexOf("O-DF")) {
-								adjustedPredictions.set(j, idxIRS);
-							}
-							break;
-						}
-					}
-				}
-				break;
-			case "B-RS":
-				for (int j = i - 1; j > i - 4; j--) {
-					if (j < 0) {
-						break;
-					}
-					if ((adjustedPredictions.get(j) == idxIRM)) {
-						continue;
-					}
-					if (adjustedPredictions.get(j) == idxBRM) {
-						correspondenceReached = true;
-						break;
-					}
-					if ((adjustedPredictions.get(j) == idxBRS) || (adjustedPredictions.get(j) == idxIRS)) {
-						break;
-					}
-					if (wordList.get(i).equals(wordList.get(j))
-							|| WordUtils.hasSimilarPOS(posTags.get(posList.get(i)), posTags.get(posList.get(j)))) {
-						correspondenceReached = true;
-						adjustedPredictions.set(j, idxBRM);
-						break;
-					}
-					// add future probable I-RM tags
-					if (!skipClasses.contains(adjustedPredictions.get(j))) {
-						newTags.add(j);
-					}
-				}
-				if (correspondenceReached) {
-					for (int m : newTags) {
-						adjustedPredictions.set(m, idxIRM);
-					}
+	/*
+	 * Returns the tags of the sequence in the given row of the network output.
+	 * Either the most probable valid tag sequence or the most probable tag of
+	 * each word, adjusted to remove some simple errors of the predictions.
+	 */
+	private int[] predict(float[] output, int numSequences, int row, InternedUtterance sequence) {
+		if (constrainedDecoding) {
+			return constrainedDecoder.decode(output, row, numSequences, numSequences * dfTags.size(), sequence.size());
+		}
+		int[] predictions = decodePredictions(output, numSequences, row, sequence.size(), dfTags.size());
+		return adjuster.adjust(sequence, predictions);
+	}
+
+	/*
+	 * Returns the index of the df output class with the highest probability for
+	 * each word of the sequence in the given row of the network output
+	 */
+	static int[] decodePredictions(float[] output, int numSequences, int row, int length, int numClasses) {
+		int[] predictions = new int[length];
+		for (int j = 0; j < length; j++) {
+			int offset = row + j * numSequences * numClasses;
+			int guessMaxIdx = 0;
+			float max = output[offset];
+			for (int c = 1; c < numClasses; c++) {
+				float probability = output[offset + c * numSequences];
+				if (probability > max) {
+					max = probability;
+					guessMaxIdx = c;
 				}
-				break;
-			// I-RS is too seldom correctly recognized to consider using it for
-			// adjusting
-			default:
-				break;
 			}
+			predictions[j] = guessMaxIdx;
 		}
-		return adjustedPredictions;
+		return predictions;
+	}
+
+	// Returns the probability of the given class of each word
+	static float[] probabilitiesOf(float[] output, int numSequences, int row, int[] predictions, int numClasses) {
+		float[] probabilities = new float[predictions.length];
+		for (int j = 0; j < predictions.length; j++) {
+			probabilities[j] = output[row + predictions[j] * numSequences + j * numSequences * numClasses];
+		}
+		return probabilities;
 	}
 
 	/**
@@ -295,19 +742,30 @@ public class LSTMClassifier {
 	 * @param chunkIOBList
 	 */
 	public List<String> tagInputSequenceRaw(List<String> wordList, List<String> posList, List<String> chunkIOBList) {
-		List<Integer> posIndexList = new ArrayList<>();
-		List<Integer> chunkIOBIndexList = new ArrayList<>();
-		for (String s : posList) {
-			posIndexList.add(posTags.indexOf(s));
+		TaggingCache cache = taggingCache;
+		if (cache != null) {
+			List<String> cached = cache.get(cacheFingerprint(), wordList, posList, chunkIOBList);
+			if (cached != null) {
+				return cached;
+			}
 		}
-		for (String s : chunkIOBList) {
-			chunkIOBIndexList.add(chunkIOBTags.indexOf(s));
+		List<String> tags = toTags(tag(interner.intern(wordList, posList, chunkIOBList)));
+		if (cache != null) {
+			cache.put(cacheFingerprint(), wordList, posList, chunkIOBList, tags);
 		}
-		List<Integer> resultIndexes = tagInputSequence(wordList, posIndexList, chunkIOBIndexList);
-		List<String> resultTags = new ArrayList<>();
-		for (int i = 0; i < resultIndexes.size(); i++) {
-			resultTags.add(dfTags.get(resultIndexes.get(i)));
+		return tags;
+	}
+
+	// The tags of both decodings are cached separately
+	private long cacheFingerprint() {
+		return constrainedDecoding ? 31 * fingerprint + 1 : fingerprint;
+	}
+
+	private List<String> toTags(int[] indexes) {
+		List<String> resultTags = new ArrayList<>(indexes.length);
+		for (int index : indexes) {
+			resultTags.add(dfTags.get(index));
 		}
 		return resultTags;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,350 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.deeplearning4j.models.embeddings.loader.WordVectorSerializer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.util.ModelSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.DL4JWordVectorLookup;
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.FallbackWordVectors;
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.MappedWordVectors;
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.OOVWordVectors;
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.WordVectorLookup;
+import edu.kit.ipd.parse.disfluencyanalyzer.model.CompactModel;
+import edu.kit.ipd.parse.disfluencyanalyzer.model.LSTMNetwork;
+
+/**
+ * Process-wide registry for the word vectors and the trained network models of
+ * the classifier. Several classifiers (e.g. of agents in different pipelines of
+ * the same JVM) that use the same files share one instance of the (immutable)
+ * word vectors and one set of model parameters. The resources are reference
+ * counted per file and dropped as soon as the last {@link Handle} is released,
+ * at the latest when the JVM shuts down.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class ModelRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(ModelRegistry.class);
+
+	private static final Map<String, SharedResource<WordVectorLookup>> wordVectors = new HashMap<>();
+	private static final Map<String, SharedModel> models = new HashMap<>();
+
+	static {
+		// A single hook for all classifiers, it does not keep them reachable
+		Runtime.getRuntime().addShutdownHook(new Thread(ModelRegistry::releaseAll, "model-registry-shutdown"));
+	}
+
+	private ModelRegistry() {
+	}
+
+	/**
+	 * Acquires the shared resources for the given model and word vector files. The
+	 * resources are loaded lazily on first access through the returned handle.
+	 *
+	 * @param modelPath
+	 *            the path of the saved network model
+	 * @param wordVectorsPath
+	 *            the path of the word vectors, either a binary word vector file
+	 *            (*.bin) or a text file that can be read by DL4J. Several paths
+	 *            separated by {@link File#pathSeparator} are looked up one after
+	 *            another (e.g. a compact table with the full table as fallback).
+	 * @return the handle to access the shared resources, it has to be released
+	 *         if it is not needed anymore
+	 */
+	public static synchronized Handle acquire(String modelPath, String wordVectorsPath) {
+		String modelKey = new File(modelPath).getAbsolutePath();
+		String wordVectorsKey = absolutePaths(wordVectorsPath);
+		SharedModel model = models.get(modelKey);
+		if (model == null) {
+			model = new SharedModel(modelKey);
+			models.put(modelKey, model);
+		}
+		SharedResource<WordVectorLookup> vectors = wordVectors.get(wordVectorsKey);
+		if (vectors == null) {
+			vectors = new SharedResource<>(wordVectorsKey, ModelRegistry::loadWordVectors, ModelRegistry::fileFingerprint);
+			wordVectors.put(wordVectorsKey, vectors);
+		}
+		model.references++;
+		vectors.references++;
+		return new Handle(model, vectors);
+	}
+
+	/*
+	 * The resources of the handle may already have been dropped by releaseAll,
+	 * then a resource of the same path that was acquired afterwards is kept
+	 */
+	private static synchronized void release(Handle handle) {
+		if (--handle.model.references == 0 && models.get(handle.model.path) == handle.model) {
+			models.remove(handle.model.path);
+			logger.debug("Released model {}", handle.model.path);
+		}
+		if (--handle.wordVectors.references == 0 && wordVectors.get(handle.wordVectors.path) == handle.wordVectors) {
+			wordVectors.remove(handle.wordVectors.path);
+			logger.debug("Released word vectors {}", handle.wordVectors.path);
+		}
+	}
+
+	/*
+	 * Drops all resources, regardless of the handles that are not released yet.
+	 * Called when the JVM shuts down.
+	 */
+	static synchronized void releaseAll() {
+		if (!models.isEmpty() || !wordVectors.isEmpty()) {
+			logger.debug("Releasing {} models and {} word vector tables", models.size(), wordVectors.size());
+		}
+		models.clear();
+		wordVectors.clear();
+	}
+
+	private static String absolutePaths(String paths) {
+		StringBuilder absolute = new StringBuilder();
+		for (String path : paths.split(File.pathSeparator)) {
+			if (absolute.length() > 0) {
+				absolute.append(File.pathSeparator);
+			}
+			absolute.append(new File(path).getAbsolutePath());
+		}
+		return absolute.toString();
+	}
+
+	private static ComputationGraph loadModel(String path) throws IOException {
+		logger.info("Restoring model from {}", path);
+		if (path.endsWith(CompactModel.EXTENSION)) {
+			return CompactModel.read(new File(path));
+		}
+		// The updater state is only needed for training
+		return ModelSerializer.restoreComputationGraph(path, false);
+	}
+
+	/*
+	 * The vectors of unknown words are derived from the known words, their cache
+	 * is shared like the word vectors themselves
+	 */
+	private static WordVectorLookup loadWordVectors(String paths) throws IOException {
+		String[] chain = paths.split(File.pathSeparator);
+		WordVectorLookup lookup = loadWordVectorTable(chain[chain.length - 1]);
+		for (int i = chain.length - 2; i >= 0; i--) {
+			lookup = new FallbackWordVectors(loadWordVectorTable(chain[i]), lookup);
+		}
+		return new OOVWordVectors(lookup);
+	}
+
+	private static WordVectorLookup loadWordVectorTable(String path) throws IOException {
+		logger.info("Loading word vectors from {}", path);
+		if (path.endsWith(".bin")) {
+			return MappedWordVectors.open(new File(path));
+		}
+		return new DL4JWordVectorLookup(WordVectorSerializer.loadStaticModel(new File(path)));
+	}
+
+	// The CRC of the content of the file
+	private static long contentFingerprint(String path) throws IOException {
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[1 << 16];
+		try (InputStream in = Files.newInputStream(Paths.get(path))) {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				crc.update(buffer, 0, read);
+			}
+		}
+		return crc.getValue();
+	}
+
+	// Reading the (large) word vector files would take too long
+	private static long fileFingerprint(String paths) throws IOException {
+		long fingerprint = 0;
+		for (String path : paths.split(File.pathSeparator)) {
+			File file = new File(path);
+			if (!file.exists()) {
+				throw new IOException("File not found: " + path);
+			}
+			fingerprint = 31 * fingerprint + 31 * (31 * path.hashCode() + file.length()) + file.lastModified();
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * A handle to the shared resources of one classifier.
+	 */
+	public static final class Handle implements AutoCloseable {
+
+		private final SharedModel model;
+		private final SharedResource<WordVectorLookup> wordVectors;
+		private boolean released = false;
+
+		private Handle(SharedModel model, SharedResource<WordVectorLookup> wordVectors) {
+			this.model = model;
+			this.wordVectors = wordVectors;
+		}
+
+		/**
+		 * Returns the shared word vectors, they are loaded on first access.
+		 *
+		 * @return the word vectors
+		 * @throws IOException
+		 *             if the word vectors cannot be loaded
+		 */
+		public WordVectorLookup getWordVectors() throws IOException {
+			return wordVectors.get();
+		}
+
+		/**
+		 * Creates a new instance of the network that uses the shared parameters of
+		 * the model (no copy). Each instance has its own layer state, the parameters
+		 * must not be modified. The model is restored on first access.
+		 *
+		 * @return a network instance backed by the shared parameters
+		 * @throws IOException
+		 *             if the model cannot be restored
+		 */
+		public ComputationGraph newModelInstance() throws IOException {
+			ComputationGraph template = model.get();
+			ComputationGraph instance = new ComputationGraph(template.getConfiguration().clone());
+			instance.init(template.params(), false);
+			return instance;
+		}
+
+		/**
+		 * Returns the shared network for the inference in plain Java, see
+		 * {@link LSTMNetwork}. It is created on first access, a compact model is
+		 * read without ND4J, a saved model of the ModelSerializer is restored first.
+		 *
+		 * @return the network
+		 * @throws IOException
+		 *             if the model cannot be restored or is not the disfluency
+		 *             network
+		 */
+		public LSTMNetwork getJavaNetwork() throws IOException {
+			return model.javaNetwork();
+		}
+
+		/**
+		 * Returns a fingerprint of the model and the word vectors. Classifiers with
+		 * equal fingerprints produce the same tags. The fingerprint is computed on
+		 * first access from the content of the model file and the size and the
+		 * modification time of the word vector file.
+		 *
+		 * @return the fingerprint of the model and the word vectors
+		 * @throws IOException
+		 *             if the files cannot be read
+		 */
+		public long getFingerprint() throws IOException {
+			return 31 * model.fingerprint() + wordVectors.fingerprint();
+		}
+
+		/**
+		 * Returns the path of the model file.
+		 *
+		 * @return the absolute path of the model
+		 */
+		public String getModelPath() {
+			return model.path;
+		}
+
+		/**
+		 * Returns the path of the word vector file.
+		 *
+		 * @return the absolute path of the word vectors
+		 */
+		public String getWordVectorsPath() {
+			return wordVectors.path;
+		}
+
+		/**
+		 * Releases the handle. The shared resources are dropped if this was the last
+		 * handle to them. Releasing a handle twice has no effect.
+		 */
+		public synchronized void release() {
+			if (!released) {
+				released = true;
+				ModelRegistry.release(this);
+			}
+		}
+
+		@Override
+		public void close() {
+			release();
+		}
+	}
+
+	private interface ResourceLoader<T> {
+		T load(String path) throws IOException;
+	}
+
+	private interface Fingerprinter {
+		long fingerprint(String path) throws IOException;
+	}
+
+	private static class SharedResource<T> {
+
+		final String path;
+		private final ResourceLoader<T> loader;
+		private final Fingerprinter fingerprinter;
+		// guarded by the registry
+		int references = 0;
+		private T value;
+		private Long fingerprint;
+
+		private SharedResource(String path, ResourceLoader<T> loader, Fingerprinter fingerprinter) {
+			this.path = path;
+			this.loader = loader;
+			this.fingerprinter = fingerprinter;
+		}
+
+		synchronized long fingerprint() throws IOException {
+			if (fingerprint == null) {
+				fingerprint = fingerprinter.fingerprint(path);
+			}
+			return fingerprint;
+		}
+
+		synchronized T get() throws IOException {
+			if (value == null) {
+				value = loader.load(path);
+			}
+			return value;
+		}
+	}
+
+
+	/*
+	 * The network model, the Java network is kept with the ComputationGraph so
+	 * that all handles of the model share one instance
+	 */
+	private static final class SharedModel extends SharedResource<ComputationGraph> {
+
+		private LSTMNetwork javaNetwork;
+
+		private SharedModel(String path) {
+			super(path, ModelRegistry::loadModel, ModelRegistry::contentFingerprint);
+		}
+
+		private synchronized LSTMNetwork javaNetwork() throws IOException {
+			if (javaNetwork == null) {
+				if (path.endsWith(CompactModel.EXTENSION)) {
+					javaNetwork = LSTMNetwork.load(new File(path));
+				} else {
+					try {
+						javaNetwork = LSTMNetwork.of(get());
+					} catch (IllegalArgumentException e) {
+						throw new IOException("The model " + path + " cannot be run in plain Java", e);
+					}
+				}
+			}
+			return javaNetwork;
+		}
+	}
+
+}
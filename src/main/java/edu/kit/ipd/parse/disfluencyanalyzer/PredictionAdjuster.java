@@ -0,0 +1,244 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.features.InternedUtterance;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.TokenInterner;
+
+/**
+ * Adjusts the predictions of the network to remove some simple errors: it marks
+ * unrecognized repetitions as B-RM and B-RS, tags explicit editing terms as EE
+ * and completes RM and RS blocks whose beginning or end was not recognized.
+ * <p>
+ * The three rules are applied in a single pass over the sequence. The
+ * repetition and editing term rules only look up to two positions ahead, the
+ * completion rules read and write at most {@link #LAG} positions ahead of the
+ * position they complete. The completion therefore runs {@link #LAG} positions
+ * behind the other rules, so it sees the same tags as if the rules were applied
+ * one after another. The scans of the completion rules are driven by
+ * precomputed tables that map each tag to the action of the scan. The tags are
+ * the indices of the {@link DisfluencyTag}s. Instances are immutable and can be
+ * shared between threads.
+ *
+ * @author Robert Hochweiss
+ * @author Sebastian Weigelt
+ *
+ */
+final class PredictionAdjuster {
+
+	// The indices of the disfluency tags (their ordinal in DisfluencyTag)
+	static final int O_DF = 0;
+	static final int B_RM = 1;
+	static final int I_RM = 2;
+	static final int B_RS = 3;
+	static final int I_RS = 4;
+	static final int FP = 5;
+	static final int EE = 6;
+	static final int DM = 7;
+
+	/**
+	 * The number of positions the completion rules look ahead.
+	 */
+	static final int LAG = 8;
+
+	// The actions of a scan for the tag at the scanned position
+	private static final byte CHECK = 0;
+	private static final byte SKIP = 1;
+	private static final byte FOUND = 2;
+	private static final byte STOP = 3;
+
+	// The scans of the completion rules
+	private static final int RS_AFTER_B_RM = 0;
+	private static final int RM_BEFORE_B_RS = 1;
+	private static final int I_RS_AFTER_B_RS = 2;
+
+	private static final int NUM_TAGS = DisfluencyTag.values().length;
+	private static final boolean[] SKIP_CLASSES = new boolean[NUM_TAGS];
+	private static final byte[][] SCAN_ACTION = new byte[3][NUM_TAGS];
+
+	static {
+		// Filled pauses, editing terms and discourse markers can be inside of RM and RS blocks
+		SKIP_CLASSES[FP] = true;
+		SKIP_CLASSES[EE] = true;
+		SKIP_CLASSES[DM] = true;
+		SCAN_ACTION[RS_AFTER_B_RM][I_RM] = SKIP;
+		SCAN_ACTION[RS_AFTER_B_RM][B_RS] = FOUND;
+		SCAN_ACTION[RS_AFTER_B_RM][B_RM] = STOP;
+		SCAN_ACTION[RM_BEFORE_B_RS][I_RM] = SKIP;
+		SCAN_ACTION[RM_BEFORE_B_RS][B_RM] = FOUND;
+		SCAN_ACTION[RM_BEFORE_B_RS][B_RS] = STOP;
+		SCAN_ACTION[RM_BEFORE_B_RS][I_RS] = STOP;
+		SCAN_ACTION[I_RS_AFTER_B_RS][I_RS] = SKIP;
+		for (int tag = 0; tag < NUM_TAGS; tag++) {
+			if (SKIP_CLASSES[tag]) {
+				SCAN_ACTION[I_RS_AFTER_B_RS][tag] = SKIP;
+			}
+		}
+	}
+
+	private final TokenInterner interner;
+
+	/**
+	 *
+	 * @param interner
+	 *            the interner of the classifier, it provides the similarity of the
+	 *            POS tags
+	 */
+	PredictionAdjuster(TokenInterner interner) {
+		this.interner = interner;
+	}
+
+	/**
+	 * Adjusts the given predictions.
+	 *
+	 * @param sequence
+	 *            the sequence that was classified
+	 * @param firstPredictions
+	 *            the predictions of the network for each word
+	 * @return the adjusted predictions, the given predictions are not changed
+	 */
+	int[] adjust(InternedUtterance sequence, int[] firstPredictions) {
+		int size = sequence.size();
+		int[] adjusted = firstPredictions.clone();
+		for (int i = 0; i < size; i++) {
+			adjustRepetition(sequence, firstPredictions, adjusted, i);
+			// Check for not correctly recognized explicit editing terms
+			if (sequence.isEditingTerm(i)) {
+				adjusted[i] = EE;
+			}
+			// All positions up to i are final for the repetition and editing term rules
+			if (i >= LAG) {
+				complete(sequence, firstPredictions, adjusted, i - LAG);
+			}
+		}
+		for (int i = Math.max(0, size - LAG); i < size; i++) {
+			complete(sequence, firstPredictions, adjusted, i);
+		}
+		return adjusted;
+	}
+
+	/*
+	 * Check for unrecognized repetitions. A word that the network already tagged
+	 * as B-RM (B-RS) is not changed, it keeps a B-RS (B-RM) of a preceding
+	 * repetition.
+	 */
+	private static void adjustRepetition(InternedUtterance sequence, int[] firstPredictions, int[] adjusted, int i) {
+		int size = sequence.size();
+		if (i + 1 >= size - 1) {
+			return;
+		}
+		if (sequence.sameWord(i, i + 1) || sequence.startsWith(i + 1, i)) {
+			markRepetition(firstPredictions, adjusted, i, i + 1);
+		}
+		if (i + 2 < size - 1 && SKIP_CLASSES[firstPredictions[i + 1]] && (sequence.sameWord(i, i + 2) || sequence.startsWith(i + 2, i))) {
+			markRepetition(firstPredictions, adjusted, i, i + 2);
+		}
+	}
+
+	private static void markRepetition(int[] firstPredictions, int[] adjusted, int rm, int rs) {
+		if (firstPredictions[rm] != B_RM) {
+			adjusted[rm] = B_RM;
+		}
+		if (firstPredictions[rs] != B_RS) {
+			adjusted[rs] = B_RS;
+		}
+	}
+
+	// Check for uncompleted RM or RS blocks
+	private void complete(InternedUtterance sequence, int[] firstPredictions, int[] adjusted, int i) {
+		int tag = firstPredictions[i];
+		if (tag == B_RM) {
+			completeRM(sequence, adjusted, i, i + 1, Math.min(i + 3, adjusted.length), 1, RS_AFTER_B_RM, B_RS);
+		} else if (tag == I_RM) {
+			completeRS(sequence, firstPredictions, adjusted, i);
+		} else if (tag == B_RS) {
+			completeRM(sequence, adjusted, i, i - 1, Math.max(i - 4, -1), -1, RM_BEFORE_B_RS, B_RM);
+		}
+		// I-RS is too seldom correctly recognized to consider using it for adjusting
+	}
+
+	/*
+	 * Scans from a B-RM for its B-RS (or from a B-RS for its B-RM). The scanned
+	 * words before a corresponding word become I-RM.
+	 */
+	private void completeRM(InternedUtterance sequence, int[] adjusted, int i, int from, int to, int step, int scan, int correspondence) {
+		// future probable I-RM tags (at most 3)
+		int first = -1;
+		int second = -1;
+		int third = -1;
+		boolean correspondenceReached = false;
+		for (int j = from; j != to; j += step) {
+			byte action = SCAN_ACTION[scan][adjusted[j]];
+			if (action == SKIP) {
+				continue;
+			}
+			if (action == FOUND) {
+				correspondenceReached = true;
+				break;
+			}
+			if (action == STOP) {
+				break;
+			}
+			if (related(sequence, i, j)) {
+				correspondenceReached = true;
+				adjusted[j] = correspondence;
+				break;
+			}
+			if (!SKIP_CLASSES[adjusted[j]]) {
+				if (first < 0) {
+					first = j;
+				} else if (second < 0) {
+					second = j;
+				} else {
+					third = j;
+				}
+			}
+		}
+		if (correspondenceReached) {
+			if (first >= 0) {
+				adjusted[first] = I_RM;
+			}
+			if (second >= 0) {
+				adjusted[second] = I_RM;
+			}
+			if (third >= 0) {
+				adjusted[third] = I_RM;
+			}
+		}
+	}
+
+	/*
+	 * An I-RM needs a preceding B-RM, and the word of the RS that corresponds to
+	 * it becomes I-RS
+	 */
+	private void completeRS(InternedUtterance sequence, int[] firstPredictions, int[] adjusted, int i) {
+		// There cannot be a I-Tag without the corresponding B-Tag
+		if (i > 0 && adjusted[i - 1] != B_RM && adjusted[i - 1] != I_RM && !SKIP_CLASSES[adjusted[i - 1]]) {
+			adjusted[i - 1] = B_RM;
+		}
+		// now search for the next B-RS
+		int end = Math.min(i + 6, adjusted.length);
+		int k = i + 1;
+		while (k < end && adjusted[k] != B_RS) {
+			k++;
+		}
+		if (k == end) {
+			return;
+		}
+		end = Math.min(k + 4, adjusted.length);
+		for (int j = k + 1; j < end; j++) {
+			if (SCAN_ACTION[I_RS_AFTER_B_RS][adjusted[j]] == SKIP) {
+				continue;
+			}
+			if (related(sequence, j, i)) {
+				if (firstPredictions[j] == O_DF) {
+					adjusted[j] = I_RS;
+				}
+				return;
+			}
+		}
+	}
+
+	private boolean related(InternedUtterance sequence, int a, int b) {
+		return sequence.sameWord(a, b) || interner.isSimilarPOS(sequence.posId(a), sequence.posId(b));
+	}
+
+}
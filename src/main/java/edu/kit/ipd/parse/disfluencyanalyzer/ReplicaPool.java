@@ -0,0 +1,100 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+
+/**
+ * A bounded pool of network instances for the concurrent classification. The
+ * instances are replicas of the shared model: they use the same (read-only)
+ * parameters, but each has its own layer state and activations, so that
+ * several threads can run the network at the same time. A replica is used by
+ * one thread at a time. The replicas are created on demand, a thread that
+ * needs a replica while all of them are in use waits for the next free one.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+final class ReplicaPool {
+
+	private final ModelRegistry.Handle resources;
+	private final int maxReplicas;
+	private final BlockingQueue<ComputationGraph> idle;
+	// guarded by this
+	private int created = 0;
+
+	/**
+	 *
+	 * @param resources
+	 *            the shared model
+	 * @param maxReplicas
+	 *            the maximal number of replicas, i.e. of concurrent
+	 *            classifications
+	 */
+	ReplicaPool(ModelRegistry.Handle resources, int maxReplicas) {
+		if (maxReplicas < 1) {
+			throw new IllegalArgumentException("There must be at least one replica");
+		}
+		this.resources = resources;
+		this.maxReplicas = maxReplicas;
+		idle = new ArrayBlockingQueue<>(maxReplicas);
+	}
+
+	/**
+	 * Takes a replica from the pool. It has to be returned with
+	 * {@link #release(ComputationGraph)} after its use.
+	 *
+	 * @return a replica that is not used by another thread
+	 * @throws IOException
+	 *             if the model cannot be restored
+	 * @throws InterruptedException
+	 *             if the thread is interrupted while waiting for a replica
+	 */
+	ComputationGraph acquire() throws IOException, InterruptedException {
+		ComputationGraph replica = idle.poll();
+		if (replica != null) {
+			return replica;
+		}
+		synchronized (this) {
+			if (created < maxReplicas) {
+				created++;
+				try {
+					return resources.newModelInstance();
+				} catch (IOException | RuntimeException e) {
+					created--;
+					throw e;
+				}
+			}
+		}
+		return idle.take();
+	}
+
+	/**
+	 * Returns a replica to the pool.
+	 *
+	 * @param replica
+	 *            the replica taken with {@link #acquire()}
+	 */
+	void release(ComputationGraph replica) {
+		idle.offer(replica);
+	}
+
+	/**
+	 *
+	 * @return the maximal number of replicas
+	 */
+	int getMaxReplicas() {
+		return maxReplicas;
+	}
+
+	/**
+	 *
+	 * @return the number of replicas created so far
+	 */
+	synchronized int getCreated() {
+		return created;
+	}
+
+}
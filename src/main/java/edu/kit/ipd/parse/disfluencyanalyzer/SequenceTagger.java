@@ -0,0 +1,26 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.List;
+
+/**
+ * Tags a complete input sequence with its disfluency tags, e.g.
+ * {@link LSTMClassifier#tagInputSequenceRaw(List, List, List)}.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public interface SequenceTagger {
+
+	/**
+	 *
+	 * @param words
+	 *            the words of the sequence
+	 * @param posTags
+	 *            the POS tag of each word
+	 * @param chunkIOBTags
+	 *            the chunk IOB tag of each word
+	 * @return the disfluency tag of each word
+	 */
+	List<String> tag(List<String> words, List<String> posTags, List<String> chunkIOBTags);
+
+}
@@ -0,0 +1,148 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tags the words of an utterance while they arrive from the speech recognition.
+ * The tag of a word is final as soon as {@link #LOOKAHEAD} further words have
+ * arrived: then the discrete features of the word see their complete
+ * surroundings. Until then the session provides provisional tags.
+ * <p>
+ * The hidden layer of the network is bidirectional, so its recurrent state
+ * cannot be advanced word by word. Instead each new word triggers one
+ * classification of a bounded window: the last not final word, its
+ * {@link #LOOKAHEAD} following words and {@link #LOOKAHEAD} preceding words as
+ * left context. The costs per word are therefore constant and do not grow with
+ * the length of the utterance, and only the words of the window are kept. The
+ * final tags can differ slightly from the tags of the complete utterance, since
+ * the network only sees the window.
+ * <p>
+ * A session is not thread-safe.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class StreamingSession {
+
+	/**
+	 * The number of following words after which the tag of a word is final, and
+	 * the number of preceding words that are passed as context.
+	 */
+	public static final int LOOKAHEAD = IncrementalTagger.CONTEXT;
+
+	private final SequenceTagger tagger;
+	// The words of the current window, the first one has the index offset
+	private final List<String> words = new ArrayList<>();
+	private final List<String> posTags = new ArrayList<>();
+	private final List<String> chunkIOBTags = new ArrayList<>();
+	private int offset = 0;
+	// The index of the first word without a final tag
+	private int nextFinal = 0;
+	private List<String> provisionalTags = Collections.emptyList();
+	private boolean finished = false;
+
+	/**
+	 *
+	 * @param tagger
+	 *            the tagger for the windows, e.g. a classifier
+	 */
+	public StreamingSession(SequenceTagger tagger) {
+		this.tagger = tagger;
+	}
+
+	/**
+	 * Adds the next word of the utterance.
+	 *
+	 * @param word
+	 *            the word
+	 * @param posTag
+	 *            the POS tag of the word
+	 * @param chunkIOBTag
+	 *            the chunk IOB tag of the word
+	 * @return the tags that became final with this word (at most one), in the
+	 *         order of the words
+	 */
+	public List<String> addWord(String word, String posTag, String chunkIOBTag) {
+		if (finished) {
+			throw new IllegalStateException("The session is already finished");
+		}
+		words.add(word);
+		posTags.add(posTag);
+		chunkIOBTags.add(chunkIOBTag);
+		int size = offset + words.size();
+		List<String> tags = tagger.tag(words, posTags, chunkIOBTags);
+		List<String> finalTags = new ArrayList<>(1);
+		while (nextFinal < size - LOOKAHEAD) {
+			finalTags.add(tags.get(nextFinal - offset));
+			nextFinal++;
+		}
+		provisionalTags = Collections.unmodifiableList(new ArrayList<>(tags.subList(nextFinal - offset, tags.size())));
+		/*
+		 * The words before the left context of the next not final word are not
+		 * needed anymore, the window starts at most LOOKAHEAD words before it
+		 */
+		int drop = Math.max(0, nextFinal - LOOKAHEAD - offset);
+		if (drop > 0) {
+			words.subList(0, drop).clear();
+			posTags.subList(0, drop).clear();
+			chunkIOBTags.subList(0, drop).clear();
+			offset += drop;
+		}
+		return finalTags;
+	}
+
+	/**
+	 * Ends the utterance. All remaining words get their final tags.
+	 *
+	 * @return the tags that became final, in the order of the words
+	 */
+	public List<String> finish() {
+		if (finished) {
+			return Collections.emptyList();
+		}
+		finished = true;
+		// The last window already contains all words, its provisional tags become final
+		List<String> finalTags = provisionalTags;
+		nextFinal = offset + words.size();
+		provisionalTags = Collections.emptyList();
+		return finalTags;
+	}
+
+	/**
+	 * Returns the provisional tags of the words that do not have a final tag yet.
+	 * They are the result of the classification of the last window and can still
+	 * change.
+	 *
+	 * @return the provisional tags, in the order of the words
+	 */
+	public List<String> getProvisionalTags() {
+		return provisionalTags;
+	}
+
+	/**
+	 *
+	 * @return the number of words with a final tag
+	 */
+	public int getFinalCount() {
+		return nextFinal;
+	}
+
+	/**
+	 *
+	 * @return the number of words that were added
+	 */
+	public int size() {
+		return offset + words.size();
+	}
+
+	/**
+	 *
+	 * @return true if the session is finished
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+}
@@ -0,0 +1,48 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+/**
+ * The disfluency tag of a word together with the probability that the network
+ * assigned to it. Instances are immutable.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class TagPrediction {
+
+	private final String tag;
+	private final float probability;
+
+	/**
+	 *
+	 * @param tag
+	 *            the disfluency tag
+	 * @param probability
+	 *            the probability of the tag
+	 */
+	public TagPrediction(String tag, float probability) {
+		this.tag = tag;
+		this.probability = probability;
+	}
+
+	/**
+	 *
+	 * @return the disfluency tag
+	 */
+	public String getTag() {
+		return tag;
+	}
+
+	/**
+	 *
+	 * @return the probability of the tag
+	 */
+	public float getProbability() {
+		return probability;
+	}
+
+	@Override
+	public String toString() {
+		return tag + " (" + probability + ")";
+	}
+
+}
@@ -0,0 +1,123 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A corpus of utterances with their disfluency tags, e.g. for the training and
+ * the evaluation of the network. A corpus file contains one utterance per line,
+ * the tokens are separated by whitespace and consist of the word, its POS tag,
+ * its chunk IOB tag and its disfluency tag separated by slashes:
+ *
+ * <pre>
+ * go/VB/B-VP/B-RM uh/UH/O/FP go/VB/B-VP/B-RS to/TO/B-PP/O-DF
+ * </pre>
+ *
+ * The word may contain slashes itself, the tags are taken from the end of the
+ * token. Empty lines and lines starting with # are skipped. Instances are
+ * immutable.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class TaggedCorpus {
+
+	private static final char SEPARATOR = '/';
+
+	private final List<Utterance> utterances;
+	private final List<List<DisfluencyTag>> tags;
+
+	private TaggedCorpus(List<Utterance> utterances, List<List<DisfluencyTag>> tags) {
+		this.utterances = Collections.unmodifiableList(utterances);
+		this.tags = Collections.unmodifiableList(tags);
+	}
+
+	/**
+	 * Reads a corpus file.
+	 *
+	 * @param file
+	 *            the corpus file
+	 * @return the corpus
+	 * @throws IOException
+	 *             if the file cannot be read or a token is malformed
+	 */
+	public static TaggedCorpus read(File file) throws IOException {
+		List<Utterance> utterances = new ArrayList<>();
+		List<List<DisfluencyTag>> tags = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				List<String> words = new ArrayList<>();
+				List<String> posTags = new ArrayList<>();
+				List<String> chunkIOBTags = new ArrayList<>();
+				List<DisfluencyTag> dfTags = new ArrayList<>();
+				for (String token : line.split("\\s+")) {
+					int dfSeparator = token.lastIndexOf(SEPARATOR);
+					int chunkSeparator = dfSeparator > 0 ? token.lastIndexOf(SEPARATOR, dfSeparator - 1) : -1;
+					int posSeparator = chunkSeparator > 0 ? token.lastIndexOf(SEPARATOR, chunkSeparator - 1) : -1;
+					DisfluencyTag dfTag = dfSeparator >= 0 ? DisfluencyTag.getTagObject(token.substring(dfSeparator + 1)) : null;
+					if (posSeparator <= 0 || dfTag == null) {
+						throw new IOException("Malformed token '" + token + "' in line " + lineNumber + " of " + file);
+					}
+					words.add(token.substring(0, posSeparator));
+					posTags.add(token.substring(posSeparator + 1, chunkSeparator));
+					chunkIOBTags.add(token.substring(chunkSeparator + 1, dfSeparator));
+					dfTags.add(dfTag);
+				}
+				utterances.add(new Utterance(words, posTags, chunkIOBTags));
+				tags.add(Collections.unmodifiableList(dfTags));
+			}
+		}
+		return new TaggedCorpus(utterances, tags);
+	}
+
+	/**
+	 *
+	 * @return the utterances of the corpus
+	 */
+	public List<Utterance> getUtterances() {
+		return utterances;
+	}
+
+	/**
+	 *
+	 * @return the disfluency tags of each utterance, one per word
+	 */
+	public List<List<DisfluencyTag>> getTags() {
+		return tags;
+	}
+
+	/**
+	 *
+	 * @return the number of utterances
+	 */
+	public int size() {
+		return utterances.size();
+	}
+
+	/**
+	 *
+	 * @return the number of words of all utterances
+	 */
+	public long numWords() {
+		long words = 0;
+		for (Utterance utterance : utterances) {
+			words += utterance.size();
+		}
+		return words;
+	}
+
+}
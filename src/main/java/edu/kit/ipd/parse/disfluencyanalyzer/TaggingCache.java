@@ -0,0 +1,206 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache for the disfluency tags of complete utterances. Spoken robot commands
+ * are often repeated verbatim, a repeated utterance is then answered from the
+ * cache without extracting the features or running the network. The entries
+ * are keyed by the words, the POS tags and the chunk IOB tags of the utterance
+ * and the fingerprint of the model (and word vectors) that produced the tags,
+ * so that one cache can be shared by classifiers with different models.
+ * <p>
+ * The size of the cache is limited by the total weight of its entries, the
+ * weight of an entry is the number of words of the utterance plus one. If the
+ * limit is exceeded, the least recently used entries are evicted. Instances are
+ * thread-safe.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class TaggingCache {
+
+	/**
+	 * The default maximal total weight of the cached entries.
+	 */
+	public static final long DEFAULT_MAX_WEIGHT = 100000;
+
+	private final long maxWeight;
+	// access order, the eldest entry is the least recently used one
+	private final Map<Key, List<String>> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long weight = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	/**
+	 * Creates a cache with the {@link #DEFAULT_MAX_WEIGHT}.
+	 */
+	public TaggingCache() {
+		this(DEFAULT_MAX_WEIGHT);
+	}
+
+	/**
+	 *
+	 * @param maxWeight
+	 *            the maximal total weight (number of words plus one per entry) of
+	 *            the cached entries
+	 */
+	public TaggingCache(long maxWeight) {
+		if (maxWeight < 1) {
+			throw new IllegalArgumentException("The maximal weight must be positive");
+		}
+		this.maxWeight = maxWeight;
+	}
+
+	/**
+	 * Returns the cached disfluency tags of the given utterance.
+	 *
+	 * @param fingerprint
+	 *            the fingerprint of the model that tags the utterance
+	 * @param words
+	 *            the words of the utterance
+	 * @param posTags
+	 *            the POS tag of each word
+	 * @param chunkIOBTags
+	 *            the chunk IOB tag of each word
+	 * @return a copy of the cached tags or null if the utterance is not cached
+	 */
+	public synchronized List<String> get(long fingerprint, List<String> words, List<String> posTags, List<String> chunkIOBTags) {
+		List<String> tags = entries.get(new Key(fingerprint, words, posTags, chunkIOBTags));
+		if (tags == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return new ArrayList<>(tags);
+	}
+
+	/**
+	 * Adds the disfluency tags of the given utterance to the cache.
+	 *
+	 * @param fingerprint
+	 *            the fingerprint of the model that tagged the utterance
+	 * @param words
+	 *            the words of the utterance
+	 * @param posTags
+	 *            the POS tag of each word
+	 * @param chunkIOBTags
+	 *            the chunk IOB tag of each word
+	 * @param tags
+	 *            the disfluency tag of each word
+	 */
+	public synchronized void put(long fingerprint, List<String> words, List<String> posTags, List<String> chunkIOBTags, List<String> tags) {
+		Key key = new Key(fingerprint, new ArrayList<>(words), new ArrayList<>(posTags), new ArrayList<>(chunkIOBTags));
+		if (key.weight() > maxWeight) {
+			return;
+		}
+		if (entries.put(key, Collections.unmodifiableList(new ArrayList<>(tags))) == null) {
+			weight += key.weight();
+		}
+		Iterator<Key> eldest = entries.keySet().iterator();
+		while (weight > maxWeight) {
+			Key evicted = eldest.next();
+			eldest.remove();
+			weight -= evicted.weight();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes all entries, the counters are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	/**
+	 *
+	 * @return the number of cached utterances
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 *
+	 * @return the total weight of the cached utterances
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 *
+	 * @return the number of lookups that were answered from the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 *
+	 * @return the number of lookups of utterances that were not cached
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 *
+	 * @return the number of entries that were evicted to stay below the maximal
+	 *         weight
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	private static final class Key {
+
+		private final long fingerprint;
+		private final List<String> words;
+		private final List<String> posTags;
+		private final List<String> chunkIOBTags;
+		private final int hash;
+
+		private Key(long fingerprint, List<String> words, List<String> posTags, List<String> chunkIOBTags) {
+			this.fingerprint = fingerprint;
+			this.words = words;
+			this.posTags = posTags;
+			this.chunkIOBTags = chunkIOBTags;
+			int h = Long.hashCode(fingerprint);
+			h = 31 * h + words.hashCode();
+			h = 31 * h + posTags.hashCode();
+			hash = 31 * h + chunkIOBTags.hashCode();
+		}
+
+		private int weight() {
+			return words.size() + 1;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && fingerprint == other.fingerprint && words.equals(other.words) && posTags.equals(other.posTags)
+					&& chunkIOBTags.equals(other.chunkIOBTags);
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The disfluency tags of an utterance with the probability of each tag. The
+ * probability is the output of the network for the final tag of the word. If
+ * the tag was changed by the adjustment of the predictions, it is the (lower)
+ * probability the network assigned to the changed tag. Filled pauses that are
+ * removed before the classification have the probability 1. Downstream agents
+ * can use the probabilities to skip work on words that are fluent with high
+ * confidence. Instances are immutable.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class TaggingResult {
+
+	private final List<String> tags;
+	private final float[] probabilities;
+
+	/**
+	 *
+	 * @param tags
+	 *            the disfluency tag of each word
+	 * @param probabilities
+	 *            the probability of each tag
+	 */
+	public TaggingResult(List<String> tags, float[] probabilities) {
+		if (tags.size() != probabilities.length) {
+			throw new IllegalArgumentException("There must be exactly one probability per tag");
+		}
+		this.tags = Collections.unmodifiableList(new ArrayList<>(tags));
+		this.probabilities = probabilities.clone();
+	}
+
+	/**
+	 *
+	 * @return the number of words
+	 */
+	public int size() {
+		return probabilities.length;
+	}
+
+	/**
+	 *
+	 * @return the disfluency tag of each word
+	 */
+	public List<String> getTags() {
+		return tags;
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            the position of the word
+	 * @return the disfluency tag of the word
+	 */
+	public String getTag(int i) {
+		return tags.get(i);
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            the position of the word
+	 * @return the probability of the tag of the word
+	 */
+	public float getProbability(int i) {
+		return probabilities[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            the position of the word
+	 * @return the tag of the word with its probability
+	 */
+	public TagPrediction getPrediction(int i) {
+		return new TagPrediction(tags.get(i), probabilities[i]);
+	}
+
+	/**
+	 *
+	 * @return the tag of each word with its probability
+	 */
+	public List<TagPrediction> getPredictions() {
+		List<TagPrediction> predictions = new ArrayList<>(probabilities.length);
+		for (int i = 0; i < probabilities.length; i++) {
+			predictions.add(getPrediction(i));
+		}
+		return predictions;
+	}
+
+}
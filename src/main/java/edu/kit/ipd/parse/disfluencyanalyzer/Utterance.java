@@ -0,0 +1,71 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An input utterance for the classifier. It consists of the words of the
+ * utterance and for each word its part of speech (POS) tag and its chunk IOB
+ * tag. Instances are immutable.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class Utterance {
+
+	private final List<String> words;
+	private final List<String> posTags;
+	private final List<String> chunkIOBTags;
+
+	/**
+	 *
+	 * @param words
+	 *            the words of the utterance
+	 * @param posTags
+	 *            the part of speech tag of each word
+	 * @param chunkIOBTags
+	 *            the chunk IOB tag of each word
+	 */
+	public Utterance(List<String> words, List<String> posTags, List<String> chunkIOBTags) {
+		if (words.size() != posTags.size() || words.size() != chunkIOBTags.size()) {
+			throw new IllegalArgumentException("There must be exactly one POS tag and one chunk IOB tag per word");
+		}
+		this.words = Collections.unmodifiableList(new ArrayList<>(words));
+		this.posTags = Collections.unmodifiableList(new ArrayList<>(posTags));
+		this.chunkIOBTags = Collections.unmodifiableList(new ArrayList<>(chunkIOBTags));
+	}
+
+	/**
+	 *
+	 * @return the words of the utterance
+	 */
+	public List<String> getWords() {
+		return words;
+	}
+
+	/**
+	 *
+	 * @return the part of speech tags of the words
+	 */
+	public List<String> getPosTags() {
+		return posTags;
+	}
+
+	/**
+	 *
+	 * @return the chunk IOB tags of the words
+	 */
+	public List<String> getChunkIOBTags() {
+		return chunkIOBTags;
+	}
+
+	/**
+	 *
+	 * @return the number of words of the utterance
+	 */
+	public int size() {
+		return words.size();
+	}
+
+}
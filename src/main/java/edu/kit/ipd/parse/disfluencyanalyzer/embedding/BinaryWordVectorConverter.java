@@ -0,0 +1,235 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.embedding;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One-time converter that turns a word vector text file (e.g. the GloVe files
+ * with one word and its vector components per line) into the binary format that
+ * is read by {@link MappedWordVectors}.
+ * <p>
+ * Usage: {@code BinaryWordVectorConverter <input.txt> <output.bin>}
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class BinaryWordVectorConverter {
+
+	private static final Logger logger = LoggerFactory.getLogger(BinaryWordVectorConverter.class);
+
+	private BinaryWordVectorConverter() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: BinaryWordVectorConverter <input.txt> <output.bin>");
+			System.exit(1);
+		}
+		long start = System.currentTimeMillis();
+		convert(new File(args[0]), new File(args[1]));
+		logger.info("Conversion took {} ms", System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Converts the given word vector text file into the binary format. Lines with
+	 * a wrong number of vector components and duplicate words are skipped.
+	 *
+	 * @param textFile
+	 *            the word vector text file
+	 * @param binaryFile
+	 *            the binary file to be written
+	 * @throws IOException
+	 *             if one of the files cannot be read or written
+	 */
+	public static void convert(File textFile, File binaryFile) throws IOException {
+		List<String> words = new ArrayList<>();
+		float[] vectors = new float[1 << 16];
+		int vectorSize = -1;
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(Files.newInputStream(textFile.toPath()), StandardCharsets.UTF_8))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				String[] parts = line.trim().split(" ");
+				if (vectorSize < 0) {
+					vectorSize = parts.length - 1;
+				}
+				if (parts.length - 1 != vectorSize || parts[0].isEmpty()) {
+					logger.warn("Skipping malformed line {}", lineNumber);
+					continue;
+				}
+				int offset = words.size() * vectorSize;
+				if (offset + vectorSize > vectors.length) {
+					vectors = Arrays.copyOf(vectors, Math.max(vectors.length * 2, offset + vectorSize));
+				}
+				for (int i = 0; i < vectorSize; i++) {
+					vectors[offset + i] = Float.parseFloat(parts[i + 1]);
+				}
+				words.add(parts[0]);
+			}
+		}
+		if (words.isEmpty()) {
+			throw new IOException("No word vectors found in " + textFile);
+		}
+		write(binaryFile, words, vectors, vectorSize);
+	}
+
+	/**
+	 * Writes the given words and vectors to a binary word vector file.
+	 *
+	 * @param binaryFile
+	 *            the binary file to be written
+	 * @param words
+	 *            the vocabulary, the order is kept
+	 * @param vectors
+	 *            the word vectors, one row of vectorSize elements per word
+	 * @param vectorSize
+	 *            the dimension of the vectors
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	static void write(File binaryFile, List<String> words, float[] vectors, int vectorSize) throws IOException {
+		write(binaryFile, words, vectors, vectorSize, null);
+	}
+
+	/**
+	 * Writes the given words and vectors to a binary word vector file, the
+	 * vectors are stored as codes of the given quantizer.
+	 *
+	 * @param binaryFile
+	 *            the binary file to be written
+	 * @param words
+	 *            the vocabulary, the order is kept
+	 * @param vectors
+	 *            the word vectors, one row of vectorSize elements per word
+	 * @param vectorSize
+	 *            the dimension of the vectors
+	 * @param quantizer
+	 *            the quantizer that was trained for the vectors, or null to store
+	 *            the vectors in float32
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	static void write(File binaryFile, List<String> words, float[] vectors, int vectorSize, ProductQuantizer quantizer) throws IOException {
+		int tableSize = Integer.highestOneBit(Math.max(words.size(), 1) * 2 - 1) << 1;
+		int[] hashTable = new int[tableSize];
+		Arrays.fill(hashTable, -1);
+		List<byte[]> encodedWords = new ArrayList<>(words.size());
+		List<String> keptWords = new ArrayList<>(words.size());
+		int[] keptRows = new int[words.size()];
+		for (int i = 0; i < words.size(); i++) {
+			String word = words.get(i);
+			byte[] encoded = word.getBytes(StandardCharsets.UTF_8);
+			int slot = MappedWordVectors.hash(word) & (tableSize - 1);
+			boolean duplicate = false;
+			while (hashTable[slot] >= 0) {
+				if (keptWords.get(hashTable[slot]).equals(word)) {
+					duplicate = true;
+					break;
+				}
+				slot = (slot + 1) & (tableSize - 1);
+			}
+			if (duplicate) {
+				logger.warn("Skipping duplicate word {}", word);
+				continue;
+			}
+			hashTable[slot] = keptWords.size();
+			keptRows[keptWords.size()] = i;
+			keptWords.add(word);
+			encodedWords.add(encoded);
+		}
+		int poolSize = 0;
+		for (byte[] encoded : encodedWords) {
+			poolSize += encoded.length;
+		}
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryFile), 1 << 16))) {
+			out.writeInt(MappedWordVectors.MAGIC);
+			out.writeInt(MappedWordVectors.VERSION);
+			out.writeInt(keptWords.size());
+			out.writeInt(vectorSize);
+			out.writeInt(tableSize);
+			out.writeInt(poolSize);
+			out.writeInt(quantizer != null ? quantizer.subspaces() : 0);
+			for (int slot : hashTable) {
+				out.writeInt(slot);
+			}
+			int offset = 0;
+			for (byte[] encoded : encodedWords) {
+				out.writeInt(offset);
+				offset += encoded.length;
+			}
+			out.writeInt(offset);
+			for (byte[] encoded : encodedWords) {
+				out.write(encoded);
+			}
+			for (int i = poolSize; i < MappedWordVectors.pad(poolSize); i++) {
+				out.writeByte(0);
+			}
+			if (quantizer != null) {
+				writeQuantized(out, vectors, keptRows, keptWords.size(), quantizer);
+			} else {
+				for (int k = 0; k < keptWords.size(); k++) {
+					int rowOffset = keptRows[k] * vectorSize;
+					for (int i = 0; i < vectorSize; i++) {
+						out.writeFloat(vectors[rowOffset + i]);
+					}
+				}
+			}
+			for (int index : sortedIndices(encodedWords)) {
+				out.writeInt(index);
+			}
+		}
+		logger.info("Wrote {} word vectors of size {} to {}", keptWords.size(), vectorSize, binaryFile);
+	}
+
+	private static void writeQuantized(DataOutputStream out, float[] vectors, int[] rows, int count, ProductQuantizer quantizer)
+			throws IOException {
+		for (float value : quantizer.codebooks()) {
+			out.writeFloat(value);
+		}
+		byte[] codes = new byte[quantizer.subspaces()];
+		for (int k = 0; k < count; k++) {
+			quantizer.encode(vectors, rows[k], codes);
+			out.write(codes);
+		}
+		int size = count * codes.length;
+		for (int i = size; i < MappedWordVectors.pad(size); i++) {
+			out.writeByte(0);
+		}
+	}
+
+	// The indices of the words in the (unsigned) order of their UTF-8 bytes
+	private static List<Integer> sortedIndices(List<byte[]> encodedWords) {
+		List<Integer> indices = new ArrayList<>(encodedWords.size());
+		for (int i = 0; i < encodedWords.size(); i++) {
+			indices.add(i);
+		}
+		indices.sort((a, b) -> {
+			byte[] left = encodedWords.get(a);
+			byte[] right = encodedWords.get(b);
+			for (int i = 0; i < left.length && i < right.length; i++) {
+				int cmp = MappedWordVectors.compareBytes(left[i], right[i]);
+				if (cmp != 0) {
+					return cmp;
+				}
+			}
+			return Integer.compare(left.length, right.length);
+		});
+		return indices;
+	}
+
+}
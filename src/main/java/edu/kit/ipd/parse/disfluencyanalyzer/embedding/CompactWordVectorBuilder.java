@@ -0,0 +1,295 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.embedding;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.LSTMClassifier;
+
+/**
+ * Build step that creates a compact word vector table from a binary word vector
+ * file (see {@link BinaryWordVectorConverter}). The compact table only contains
+ * the most frequent words of the full table and the words of a domain word list
+ * (one word per line), the vectors can additionally be product quantized (see
+ * {@link ProductQuantizer}), which stores a vector of 50 floats in e.g. 10
+ * bytes. The classifier uses the compact table with the full table as fallback
+ * for missing words if both are given as word vector path (see
+ * {@link FallbackWordVectors}).
+ * <p>
+ * After the build it reports the differences to the full table: the cosine
+ * similarity of the quantized vectors and the agreement of the tags of the
+ * classifier on random utterances of the domain words, the most frequent words
+ * and some words that are only in the full table.
+ * <p>
+ * Usage:
+ * {@code CompactWordVectorBuilder <full.bin> <output.bin> [-domain <words.txt>] [-top <N>] [-pq <subspaces>] [-model <model>]}
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class CompactWordVectorBuilder {
+
+	private static final Logger logger = LoggerFactory.getLogger(CompactWordVectorBuilder.class);
+
+	private static final String USAGE = "Usage: CompactWordVectorBuilder <full.bin> <output.bin> [-domain <words.txt>] [-top <N>] "
+			+ "[-pq <subspaces>] [-model <model>]";
+	private static final int DEFAULT_TOP_WORDS = 20000;
+	private static final int KMEANS_ITERATIONS = 15;
+	private static final long SEED = 42;
+	private static final int REPORT_UTTERANCES = 500;
+	private static final int REPORT_MAX_LENGTH = 20;
+	// The share of the words of the report utterances that are only in the full table
+	private static final double REPORT_FALLBACK_WORDS = 0.1;
+	// The share of the words of the report utterances that repeat one of the previous words
+	private static final double REPORT_REPETITIONS = 0.15;
+
+	private CompactWordVectorBuilder() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length % 2 != 0) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		File fullFile = new File(args[0]);
+		File compactFile = new File(args[1]);
+		List<String> domainWords = new ArrayList<>();
+		int topWords = DEFAULT_TOP_WORDS;
+		int subspaces = 0;
+		String modelPath = null;
+		for (int i = 2; i < args.length; i += 2) {
+			switch (args[i]) {
+			case "-domain":
+				domainWords = readWords(new File(args[i + 1]));
+				break;
+			case "-top":
+				topWords = Integer.parseInt(args[i + 1]);
+				break;
+			case "-pq":
+				subspaces = Integer.parseInt(args[i + 1]);
+				break;
+			case "-model":
+				modelPath = args[i + 1];
+				break;
+			default:
+				System.err.println(USAGE);
+				System.exit(1);
+			}
+		}
+		long start = System.currentTimeMillis();
+		build(fullFile, compactFile, domainWords, topWords, subspaces);
+		logger.info("Build took {} ms", System.currentTimeMillis() - start);
+		logger.info("{}: {} bytes", fullFile, fullFile.length());
+		logger.info("{}: {} bytes", compactFile, compactFile.length());
+		reportVectors(fullFile, compactFile);
+		reportTags(fullFile, compactFile, modelPath != null ? modelPath : LSTMClassifier.defaultModelPath());
+	}
+
+	/**
+	 * Reads a word list with one word per line, empty lines and lines starting
+	 * with # are skipped.
+	 *
+	 * @param file
+	 *            the word list
+	 * @return the words
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static List<String> readWords(File file) throws IOException {
+		List<String> words = new ArrayList<>();
+		for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+			String word = line.trim();
+			if (!word.isEmpty() && !word.startsWith("#")) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Builds the compact table. It contains the topWords first words of the full
+	 * table and the domain words (and their lower case forms) that are in the full
+	 * table, in the order of the full table.
+	 *
+	 * @param fullFile
+	 *            the binary word vector file of the full table
+	 * @param compactFile
+	 *            the binary word vector file to be written
+	 * @param domainWords
+	 *            the words of the domain
+	 * @param topWords
+	 *            the number of most frequent words
+	 * @param subspaces
+	 *            the number of subspaces of the product quantization (the bytes
+	 *            per vector), it has to divide the vector size; 0 to keep the
+	 *            vectors in float32
+	 * @throws IOException
+	 *             if one of the files cannot be read or written
+	 */
+	public static void build(File fullFile, File compactFile, List<String> domainWords, int topWords, int subspaces) throws IOException {
+		MappedWordVectors full = MappedWordVectors.open(fullFile);
+		TreeSet<Integer> indices = new TreeSet<>();
+		for (int index = 0; index < Math.min(topWords, full.vocabSize()); index++) {
+			indices.add(index);
+		}
+		int missing = 0;
+		for (String word : domainWords) {
+			int index = full.indexOf(word);
+			int lowerCaseIndex = full.indexOf(word.toLowerCase(Locale.ROOT));
+			if (index >= 0) {
+				indices.add(index);
+			}
+			if (lowerCaseIndex >= 0) {
+				indices.add(lowerCaseIndex);
+			}
+			if (index < 0 && lowerCaseIndex < 0) {
+				missing++;
+			}
+		}
+		if (indices.isEmpty()) {
+			throw new IOException("The compact table would not contain any words of " + fullFile);
+		}
+		logger.info("{} domain words, {} of them are not in the full table", domainWords.size(), missing);
+		int vectorSize = full.vectorSize();
+		List<String> words = new ArrayList<>(indices.size());
+		float[] vectors = new float[indices.size() * vectorSize];
+		for (int index : indices) {
+			full.readVector(index, vectors, words.size() * vectorSize, 1);
+			words.add(full.wordAtIndex(index));
+		}
+		ProductQuantizer quantizer = null;
+		if (subspaces > 0) {
+			quantizer = ProductQuantizer.train(vectors, words.size(), vectorSize, subspaces, KMEANS_ITERATIONS, SEED);
+		}
+		BinaryWordVectorConverter.write(compactFile, words, vectors, vectorSize, quantizer);
+	}
+
+	/**
+	 * Logs the cosine similarity between the vectors of the compact and the full
+	 * table.
+	 *
+	 * @param fullFile
+	 *            the binary word vector file of the full table
+	 * @param compactFile
+	 *            the binary word vector file of the compact table
+	 * @throws IOException
+	 *             if one of the files cannot be read
+	 */
+	public static void reportVectors(File fullFile, File compactFile) throws IOException {
+		MappedWordVectors full = MappedWordVectors.open(fullFile);
+		MappedWordVectors compact = MappedWordVectors.open(compactFile);
+		int vectorSize = full.vectorSize();
+		float[] expected = new float[vectorSize];
+		float[] actual = new float[vectorSize];
+		double sumSimilarity = 0;
+		double minSimilarity = 1;
+		for (int index = 0; index < compact.vocabSize(); index++) {
+			compact.readVector(index, actual, 0, 1);
+			full.copyWordVector(compact.wordAtIndex(index), expected, 0, 1);
+			double similarity = cosineSimilarity(expected, actual);
+			sumSimilarity += similarity;
+			minSimilarity = Math.min(minSimilarity, similarity);
+		}
+		logger.info("{} of {} words in the compact table ({}quantized): mean cosine similarity {}, min cosine similarity {}",
+				compact.vocabSize(), full.vocabSize(), compact.isQuantized() ? "" : "not ", sumSimilarity / compact.vocabSize(),
+				minSimilarity);
+	}
+
+	private static double cosineSimilarity(float[] left, float[] right) {
+		double dot = 0;
+		double leftNorm = 0;
+		double rightNorm = 0;
+		for (int i = 0; i < left.length; i++) {
+			dot += left[i] * right[i];
+			leftNorm += left[i] * left[i];
+			rightNorm += right[i] * right[i];
+		}
+		if (leftNorm == 0 || rightNorm == 0) {
+			return leftNorm == rightNorm ? 1 : 0;
+		}
+		return dot / Math.sqrt(leftNorm * rightNorm);
+	}
+
+	/**
+	 * Logs the agreement of the tags of a classifier that uses the compact table
+	 * (with the full table as fallback) with the tags of a classifier that only
+	 * uses the full table. The random utterances mostly consist of words of the
+	 * compact table, some words are only in the full table.
+	 *
+	 * @param fullFile
+	 *            the binary word vector file of the full table
+	 * @param compactFile
+	 *            the binary word vector file of the compact table
+	 * @param modelPath
+	 *            the path of the network model
+	 * @throws IOException
+	 *             if one of the files cannot be read
+	 */
+	public static void reportTags(File fullFile, File compactFile, String modelPath) throws IOException {
+		MappedWordVectors full = MappedWordVectors.open(fullFile);
+		MappedWordVectors compact = MappedWordVectors.open(compactFile);
+		List<String> posTags = LSTMClassifier.definedPosTags();
+		List<String> chunkIOBTags = LSTMClassifier.definedChunkIOBTags();
+		Random random = new Random(SEED);
+		long words = 0;
+		long sameTags = 0;
+		int sameUtterances = 0;
+		try (LSTMClassifier fullClassifier = new LSTMClassifier(modelPath, fullFile.getPath(), 1);
+				LSTMClassifier compactClassifier = new LSTMClassifier(modelPath,
+						compactFile.getPath() + File.pathSeparator + fullFile.getPath(), 1)) {
+			// Both run the same network, the forward pass in Java is faster for single utterances
+			fullClassifier.setJavaInference(true);
+			compactClassifier.setJavaInference(true);
+			for (int u = 0; u < REPORT_UTTERANCES; u++) {
+				int length = 1 + random.nextInt(REPORT_MAX_LENGTH);
+				List<String> wordList = new ArrayList<>(length);
+				List<String> posList = new ArrayList<>(length);
+				List<String> chunkIOBList = new ArrayList<>(length);
+				for (int i = 0; i < length; i++) {
+					wordList.add(randomWord(random, full, compact, wordList));
+					posList.add(posTags.get(random.nextInt(posTags.size())));
+					chunkIOBList.add(chunkIOBTags.get(random.nextInt(chunkIOBTags.size())));
+				}
+				List<String> expected = fullClassifier.tagInputSequenceRaw(wordList, posList, chunkIOBList);
+				List<String> actual = compactClassifier.tagInputSequenceRaw(wordList, posList, chunkIOBList);
+				for (int i = 0; i < length; i++) {
+					if (expected.get(i).equals(actual.get(i))) {
+						sameTags++;
+					}
+				}
+				if (expected.equals(actual)) {
+					sameUtterances++;
+				}
+				words += length;
+			}
+		}
+		logger.info("Same tags for {} of {} words ({}%) and {} of {} utterances", sameTags, words, 100.0 * sameTags / words, sameUtterances,
+				REPORT_UTTERANCES);
+	}
+
+	private static String randomWord(Random random, MappedWordVectors full, MappedWordVectors compact, List<String> previous) {
+		if (!previous.isEmpty() && random.nextDouble() < REPORT_REPETITIONS) {
+			return previous.get(previous.size() - 1 - random.nextInt(Math.min(previous.size(), 3)));
+		}
+		if (compact.vocabSize() < full.vocabSize() && random.nextDouble() < REPORT_FALLBACK_WORDS) {
+			// Some tries to find a word that is only in the full table
+			for (int n = 0; n < 10; n++) {
+				String word = full.wordAtIndex(random.nextInt(full.vocabSize()));
+				if (!compact.hasWord(word)) {
+					return word;
+				}
+			}
+		}
+		return compact.wordAtIndex(random.nextInt(compact.vocabSize()));
+	}
+
+}
@@ -0,0 +1,61 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.embedding;
+
+import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * Adapter that provides a {@link WordVectorLookup} for word vectors that were
+ * loaded with the DL4J {@code WordVectorSerializer} (e.g. the original GloVe
+ * text files).
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class DL4JWordVectorLookup implements WordVectorLookup {
+
+	private final WordVectors wordVectors;
+	private final int vectorSize;
+
+	/**
+	 *
+	 * @param wordVectors
+	 *            the loaded DL4J word vectors
+	 */
+	public DL4JWordVectorLookup(WordVectors wordVectors) {
+		this.wordVectors = wordVectors;
+		vectorSize = wordVectors.getWordVector(wordVectors.vocab().wordAtIndex(0)).length;
+	}
+
+	@Override
+	public boolean hasWord(String word) {
+		return wordVectors.hasWord(word);
+	}
+
+	@Override
+	public int vectorSize() {
+		return vectorSize;
+	}
+
+	@Override
+	public double[] getWordVector(String word) {
+		return wordVectors.getWordVector(word);
+	}
+
+	@Override
+	public INDArray getWordVectorMatrix(String word) {
+		return wordVectors.getWordVectorMatrix(word);
+	}
+
+	@Override
+	public boolean copyWordVector(String word, float[] target, int offset, int stride) {
+		if (!wordVectors.hasWord(word)) {
+			return false;
+		}
+		double[] vector = wordVectors.getWordVector(word);
+		for (int i = 0; i < vectorSize; i++) {
+			target[offset + i * stride] = (float) vector[i];
+		}
+		return true;
+	}
+
+}
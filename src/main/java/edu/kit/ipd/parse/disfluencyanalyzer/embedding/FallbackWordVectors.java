@@ -0,0 +1,92 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.embedding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * A {@link WordVectorLookup} that looks up the words in a primary lookup (e.g.
+ * a compact table of the domain vocabulary built by the
+ * {@link CompactWordVectorBuilder}) and only falls back to a second lookup
+ * (e.g. the full table) for the words that are missing in the primary one. Most
+ * words of an utterance are then found in the small table, the pages of the
+ * full table are only touched for rare words. Instances are immutable and can
+ * be shared between threads if both lookups can.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class FallbackWordVectors implements WordVectorLookup {
+
+	private final WordVectorLookup primary;
+	private final WordVectorLookup fallback;
+
+	/**
+	 *
+	 * @param primary
+	 *            the lookup that is asked first
+	 * @param fallback
+	 *            the lookup for the words that are missing in the primary lookup,
+	 *            its vectors must have the same size
+	 */
+	public FallbackWordVectors(WordVectorLookup primary, WordVectorLookup fallback) {
+		if (primary.vectorSize() != fallback.vectorSize()) {
+			throw new IllegalArgumentException(
+					"The vector sizes of the lookups differ: " + primary.vectorSize() + " and " + fallback.vectorSize());
+		}
+		this.primary = primary;
+		this.fallback = fallback;
+	}
+
+	@Override
+	public boolean hasWord(String word) {
+		return primary.hasWord(word) || fallback.hasWord(word);
+	}
+
+	@Override
+	public int vectorSize() {
+		return primary.vectorSize();
+	}
+
+	@Override
+	public double[] getWordVector(String word) {
+		double[] vector = primary.getWordVector(word);
+		return vector != null ? vector : fallback.getWordVector(word);
+	}
+
+	@Override
+	public INDArray getWordVectorMatrix(String word) {
+		INDArray vector = primary.getWordVectorMatrix(word);
+		return vector != null ? vector : fallback.getWordVectorMatrix(word);
+	}
+
+	@Override
+	public boolean copyWordVector(String word, float[] target, int offset, int stride) {
+		return primary.copyWordVector(word, target, offset, stride) || fallback.copyWordVector(word, target, offset, stride);
+	}
+
+	/**
+	 * Returns the words of the fallback lookup first: if it is the full table, the
+	 * same words are found as without the primary lookup. Words of the primary
+	 * lookup fill up the remaining places.
+	 */
+	@Override
+	public List<String> wordsWithPrefix(String prefix, int limit) {
+		List<String> words = fallback.wordsWithPrefix(prefix, limit);
+		if (words.size() >= limit) {
+			return words;
+		}
+		List<String> merged = new ArrayList<>(words);
+		for (String word : primary.wordsWithPrefix(prefix, limit)) {
+			if (merged.size() >= limit) {
+				break;
+			}
+			if (!merged.contains(word)) {
+				merged.add(word);
+			}
+		}
+		return merged;
+	}
+
+}
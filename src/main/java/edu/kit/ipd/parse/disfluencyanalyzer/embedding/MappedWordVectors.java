@@ -0,0 +1,370 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.embedding;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * A {@link WordVectorLookup} that memory-maps a binary word vector file created
+ * by the {@link BinaryWordVectorConverter}. Nothing but the file header is read
+ * on opening; the vocabulary hash index, the words and the vectors are read
+ * directly from the mapped region on each lookup. Instances are immutable and
+ * can be shared between threads.
+ * <p>
+ * The file layout (big endian) is:
+ *
+ * <pre>
+ * int      magic number
+ * int      format version
+ * int      vocabulary size (V)
+ * int      vector size (D)
+ * int      hash table size (T, power of two)
+ * int      size of the word pool in bytes (P)
+ * int      number of subspaces of quantized vectors (M, since version 3, 0 if
+ *          the vectors are not quantized)
+ * int[T]   hash table: index of the word in the slot or -1
+ * int[V+1] start offsets of the words in the word pool
+ * byte[P]  word pool (UTF-8), padded to a multiple of four bytes
+ * M = 0:   float[V*D] the word vectors, one row per word
+ * M > 0:   float[M*256*D/M] the centroids of each subspace,
+ *          byte[V*M] the centroid of each subspace per word,
+ *          padded to a multiple of four bytes
+ * int[V]   indices of the words in the order of their UTF-8 bytes (since version 2)
+ * </pre>
+ *
+ * The sorted word indices are used for prefix searches, files of version 1 can
+ * still be read but do not support them. Quantized vectors (see
+ * {@link CompactWordVectorBuilder}) are decoded on each lookup.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class MappedWordVectors implements WordVectorLookup {
+
+	static final int MAGIC = 0x44465756; // "DFWV"
+	static final int VERSION = 3;
+	static final int HEADER_SIZE = 7 * Integer.BYTES;
+	// The header of the files before version 3 has no number of subspaces
+	private static final int OLD_HEADER_SIZE = 6 * Integer.BYTES;
+
+	private final ByteBuffer pool;
+	private final IntBuffer hashTable;
+	private final IntBuffer poolOffsets;
+	// null for quantized vectors
+	private final FloatBuffer vectors;
+	// null for vectors that are not quantized
+	private final FloatBuffer codebooks;
+	private final ByteBuffer codes;
+	// null for files of version 1
+	private final IntBuffer sortedIndices;
+	private final int vocabSize;
+	private final int vectorSize;
+	private final int subspaces;
+	private final int subspaceSize;
+	private final int tableMask;
+
+	private MappedWordVectors(ByteBuffer buffer) throws IOException {
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a binary word vector file");
+		}
+		int version = buffer.getInt(Integer.BYTES);
+		if (version < 1 || version > VERSION) {
+			throw new IOException("Unsupported binary word vector file version " + buffer.getInt(Integer.BYTES));
+		}
+		vocabSize = buffer.getInt(2 * Integer.BYTES);
+		vectorSize = buffer.getInt(3 * Integer.BYTES);
+		int tableSize = buffer.getInt(4 * Integer.BYTES);
+		int poolSize = buffer.getInt(5 * Integer.BYTES);
+		subspaces = version >= 3 ? buffer.getInt(6 * Integer.BYTES) : 0;
+		if (subspaces < 0 || (subspaces > 0 && vectorSize % subspaces != 0)) {
+			throw new IOException("Invalid number of subspaces " + subspaces + " for the vector size " + vectorSize);
+		}
+		subspaceSize = subspaces > 0 ? vectorSize / subspaces : vectorSize;
+		tableMask = tableSize - 1;
+		int position = version >= 3 ? HEADER_SIZE : OLD_HEADER_SIZE;
+		hashTable = slice(buffer, position, tableSize * Integer.BYTES).asIntBuffer();
+		position += tableSize * Integer.BYTES;
+		poolOffsets = slice(buffer, position, (vocabSize + 1) * Integer.BYTES).asIntBuffer();
+		position += (vocabSize + 1) * Integer.BYTES;
+		pool = slice(buffer, position, poolSize);
+		position += pad(poolSize);
+		if (subspaces > 0) {
+			vectors = null;
+			codebooks = slice(buffer, position, subspaces * ProductQuantizer.CENTROIDS * subspaceSize * Float.BYTES).asFloatBuffer();
+			position += subspaces * ProductQuantizer.CENTROIDS * subspaceSize * Float.BYTES;
+			codes = slice(buffer, position, vocabSize * subspaces);
+			position += pad(vocabSize * subspaces);
+		} else {
+			vectors = slice(buffer, position, vocabSize * vectorSize * Float.BYTES).asFloatBuffer();
+			position += vocabSize * vectorSize * Float.BYTES;
+			codebooks = null;
+			codes = null;
+		}
+		sortedIndices = version >= 2 ? slice(buffer, position, vocabSize * Integer.BYTES).asIntBuffer() : null;
+	}
+
+	/**
+	 * Memory-maps the given binary word vector file.
+	 *
+	 * @param file
+	 *            the binary word vector file
+	 * @return the lookup for the word vectors of the file
+	 * @throws IOException
+	 *             if the file cannot be mapped or has an invalid format
+	 */
+	public static MappedWordVectors open(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Binary word vector file is too large to be mapped: " + file);
+			}
+			// The mapping stays valid after the channel is closed
+			return new MappedWordVectors(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	@Override
+	public boolean hasWord(String word) {
+		return indexOf(word) >= 0;
+	}
+
+	@Override
+	public int vectorSize() {
+		return vectorSize;
+	}
+
+	/**
+	 * Returns the number of words in the vocabulary.
+	 *
+	 * @return the vocabulary size
+	 */
+	public int vocabSize() {
+		return vocabSize;
+	}
+
+	/**
+	 * Returns whether the vectors are product quantized.
+	 *
+	 * @return true if the vectors are stored as codes of centroids
+	 */
+	public boolean isQuantized() {
+		return subspaces > 0;
+	}
+
+	/**
+	 * Returns the index of the given word in the vocabulary. The words keep the
+	 * order of the original file, i.e. for GloVe they are ordered by frequency.
+	 *
+	 * @param word
+	 *            the word to look up
+	 * @return the index of the word or -1 if the word is unknown
+	 */
+	public int indexOf(String word) {
+		byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+		int slot = hash(word) & tableMask;
+		int index;
+		while ((index = hashTable.get(slot)) >= 0) {
+			if (matches(index, bytes)) {
+				return index;
+			}
+			slot = (slot + 1) & tableMask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the word at the given index of the vocabulary.
+	 *
+	 * @param index
+	 *            the index of the word
+	 * @return the word
+	 */
+	public String wordAtIndex(int index) {
+		int start = poolOffsets.get(index);
+		byte[] bytes = new byte[poolOffsets.get(index + 1) - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = pool.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public double[] getWordVector(String word) {
+		int index = indexOf(word);
+		if (index < 0) {
+			return null;
+		}
+		float[] components = new float[vectorSize];
+		readVector(index, components, 0, 1);
+		double[] vector = new double[vectorSize];
+		for (int i = 0; i < vectorSize; i++) {
+			vector[i] = components[i];
+		}
+		return vector;
+	}
+
+	@Override
+	public INDArray getWordVectorMatrix(String word) {
+		int index = indexOf(word);
+		if (index < 0) {
+			return null;
+		}
+		float[] vector = new float[vectorSize];
+		readVector(index, vector, 0, 1);
+		return Nd4j.create(vector);
+	}
+
+	@Override
+	public boolean copyWordVector(String word, float[] target, int offset, int stride) {
+		int index = indexOf(word);
+		if (index < 0) {
+			return false;
+		}
+		readVector(index, target, offset, stride);
+		return true;
+	}
+
+	/**
+	 * Copies the vector of the word at the given index into
+	 * target[offset + i * stride] for each component i.
+	 *
+	 * @param index
+	 *            the index of the word
+	 * @param target
+	 *            the array that receives the vector
+	 * @param offset
+	 *            the position of the first component
+	 * @param stride
+	 *            the distance between the components
+	 */
+	void readVector(int index, float[] target, int offset, int stride) {
+		if (codes == null) {
+			int vectorOffset = index * vectorSize;
+			for (int i = 0; i < vectorSize; i++) {
+				target[offset + i * stride] = vectors.get(vectorOffset + i);
+			}
+			return;
+		}
+		int codeOffset = index * subspaces;
+		for (int s = 0; s < subspaces; s++) {
+			int centroid = (s * ProductQuantizer.CENTROIDS + (codes.get(codeOffset + s) & 0xFF)) * subspaceSize;
+			int component = offset + s * subspaceSize * stride;
+			for (int i = 0; i < subspaceSize; i++) {
+				target[component + i * stride] = codebooks.get(centroid + i);
+			}
+		}
+	}
+
+	@Override
+	public List<String> wordsWithPrefix(String prefix, int limit) {
+		if (sortedIndices == null || limit <= 0) {
+			return Collections.emptyList();
+		}
+		byte[] bytes = prefix.getBytes(StandardCharsets.UTF_8);
+		// The words with the prefix are a contiguous range of the sorted words
+		int from = firstSorted(bytes, 0);
+		int to = firstSorted(bytes, 1);
+		// Keep the ones with the lowest indices
+		int[] best = new int[limit];
+		int found = 0;
+		for (int i = from; i < to; i++) {
+			int index = sortedIndices.get(i);
+			if (found < limit) {
+				best[found++] = index;
+			} else if (index < best[limit - 1]) {
+				best[limit - 1] = index;
+			} else {
+				continue;
+			}
+			for (int k = found - 1; k > 0 && best[k] < best[k - 1]; k--) {
+				int tmp = best[k];
+				best[k] = best[k - 1];
+				best[k - 1] = tmp;
+			}
+		}
+		List<String> words = new ArrayList<>(found);
+		for (int k = 0; k < found; k++) {
+			words.add(wordAtIndex(best[k]));
+		}
+		return words;
+	}
+
+	/*
+	 * Binary search for the first sorted word whose comparison with the prefix
+	 * is at least the given bound: 0 for the first word with the prefix (or
+	 * after it), 1 for the first word after all words with the prefix
+	 */
+	private int firstSorted(byte[] prefix, int bound) {
+		int low = 0;
+		int high = vocabSize;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (comparePrefix(sortedIndices.get(mid), prefix) < bound) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/*
+	 * Compares the beginning of the word at the given index with the prefix
+	 * (unsigned, lexicographically), 0 if the word starts with the prefix
+	 */
+	private int comparePrefix(int index, byte[] prefix) {
+		int start = poolOffsets.get(index);
+		int length = poolOffsets.get(index + 1) - start;
+		for (int i = 0; i < length && i < prefix.length; i++) {
+			int cmp = compareBytes(pool.get(start + i), prefix[i]);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return length < prefix.length ? -1 : 0;
+	}
+
+	static int compareBytes(byte left, byte right) {
+		return Integer.compare(left & 0xFF, right & 0xFF);
+	}
+
+	private boolean matches(int index, byte[] bytes) {
+		int start = poolOffsets.get(index);
+		if (poolOffsets.get(index + 1) - start != bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			if (pool.get(start + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static int hash(String word) {
+		int h = word.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	static int pad(int size) {
+		return (size + 3) & ~3;
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(position);
+		duplicate.limit(position + length);
+		return duplicate.slice();
+	}
+
+}
@@ -0,0 +1,182 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.embedding;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.commons.collections4.map.LRUMap;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * A {@link WordVectorLookup} that also provides vectors for words that are not
+ * in the vocabulary of the underlying lookup (e.g. partial words or
+ * misspellings from the speech recognition). The vector of an unknown word is
+ * derived from known words:
+ * <ol>
+ * <li>the lower case form of the word,</li>
+ * <li>the average vector of the most frequent words that start with the word
+ * (for truncated words like "dishw"),</li>
+ * <li>the vector of the longest known prefix of the word (for inflections and
+ * misspellings at the end of the word).</li>
+ * </ol>
+ * GloVe has no vectors for character n-grams, so there is no further subword
+ * fallback; words without any match keep the zero vector. The derived vectors
+ * (and the misses) are kept in a bounded LRU cache, so that a repeated unknown
+ * word only costs one hash lookup and the memory stays capped in long-running
+ * processes. Instances are thread-safe.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class OOVWordVectors implements WordVectorLookup {
+
+	/**
+	 * The default maximal number of cached unknown words.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 10000;
+	// Shorter prefixes match too many unrelated words
+	private static final int MIN_PREFIX_LENGTH = 3;
+	// The number of words with the prefix that are averaged
+	private static final int PREFIX_MATCHES = 5;
+	// Marks a cached word without any match
+	private static final float[] NO_VECTOR = new float[0];
+
+	private final WordVectorLookup wordVectors;
+	private final int vectorSize;
+	private final Map<String, float[]> cache;
+
+	/**
+	 *
+	 * @param wordVectors
+	 *            the lookup for the known words
+	 */
+	public OOVWordVectors(WordVectorLookup wordVectors) {
+		this(wordVectors, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 *
+	 * @param wordVectors
+	 *            the lookup for the known words
+	 * @param cacheSize
+	 *            the maximal number of cached unknown words
+	 */
+	public OOVWordVectors(WordVectorLookup wordVectors, int cacheSize) {
+		this.wordVectors = wordVectors;
+		vectorSize = wordVectors.vectorSize();
+		cache = Collections.synchronizedMap(new LRUMap<>(cacheSize));
+	}
+
+	@Override
+	public boolean hasWord(String word) {
+		return wordVectors.hasWord(word) || unknownWordVector(word) != null;
+	}
+
+	@Override
+	public int vectorSize() {
+		return vectorSize;
+	}
+
+	@Override
+	public double[] getWordVector(String word) {
+		double[] vector = wordVectors.getWordVector(word);
+		if (vector == null) {
+			float[] derived = unknownWordVector(word);
+			if (derived != null) {
+				vector = new double[vectorSize];
+				for (int i = 0; i < vectorSize; i++) {
+					vector[i] = derived[i];
+				}
+			}
+		}
+		return vector;
+	}
+
+	@Override
+	public INDArray getWordVectorMatrix(String word) {
+		INDArray vector = wordVectors.getWordVectorMatrix(word);
+		if (vector == null) {
+			float[] derived = unknownWordVector(word);
+			if (derived != null) {
+				vector = Nd4j.create(derived.clone());
+			}
+		}
+		return vector;
+	}
+
+	@Override
+	public boolean copyWordVector(String word, float[] target, int offset, int stride) {
+		if (wordVectors.copyWordVector(word, target, offset, stride)) {
+			return true;
+		}
+		float[] derived = unknownWordVector(word);
+		if (derived == null) {
+			return false;
+		}
+		for (int i = 0; i < vectorSize; i++) {
+			target[offset + i * stride] = derived[i];
+		}
+		return true;
+	}
+
+	@Override
+	public List<String> wordsWithPrefix(String prefix, int limit) {
+		return wordVectors.wordsWithPrefix(prefix, limit);
+	}
+
+	/**
+	 * Returns the number of unknown words in the cache.
+	 *
+	 * @return the number of cached unknown words
+	 */
+	public int cachedWords() {
+		return cache.size();
+	}
+
+	/*
+	 * Returns the cached or derived vector for a word that is not in the
+	 * vocabulary. The cached vectors must not be modified.
+	 */
+	private float[] unknownWordVector(String word) {
+		float[] vector = cache.get(word);
+		if (vector == null) {
+			// Computed outside of the lock, concurrent misses may derive the vector twice
+			vector = deriveVector(word);
+			cache.put(word, vector);
+		}
+		return vector == NO_VECTOR ? null : vector;
+	}
+
+	private float[] deriveVector(String word) {
+		float[] vector = new float[vectorSize];
+		String lowerCase = word.toLowerCase(Locale.ROOT);
+		if (!lowerCase.equals(word) && wordVectors.copyWordVector(lowerCase, vector, 0, 1)) {
+			return vector;
+		}
+		if (lowerCase.length() >= MIN_PREFIX_LENGTH) {
+			List<String> matches = wordVectors.wordsWithPrefix(lowerCase, PREFIX_MATCHES);
+			if (!matches.isEmpty()) {
+				float[] matchVector = new float[vectorSize];
+				for (String match : matches) {
+					wordVectors.copyWordVector(match, matchVector, 0, 1);
+					for (int i = 0; i < vectorSize; i++) {
+						vector[i] += matchVector[i];
+					}
+				}
+				for (int i = 0; i < vectorSize; i++) {
+					vector[i] /= matches.size();
+				}
+				return vector;
+			}
+		}
+		for (int length = lowerCase.length() - 1; length >= MIN_PREFIX_LENGTH; length--) {
+			if (wordVectors.copyWordVector(lowerCase.substring(0, length), vector, 0, 1)) {
+				return vector;
+			}
+		}
+		return NO_VECTOR;
+	}
+
+}
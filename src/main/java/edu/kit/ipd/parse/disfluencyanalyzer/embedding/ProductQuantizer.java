@@ -0,0 +1,182 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.embedding;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Product quantization of word vectors: a vector is split into subspaces of
+ * equal size, and each part is replaced by the index of the nearest of
+ * {@link #CENTROIDS} centroids of its subspace. A vector is then stored in one
+ * byte per subspace. The centroids of each subspace are computed with k-means
+ * over (a sample of) the vectors. Instances are immutable.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+final class ProductQuantizer {
+
+	/**
+	 * The number of centroids per subspace, the codes are unsigned bytes.
+	 */
+	static final int CENTROIDS = 256;
+	// k-means over more vectors hardly changes the centroids, but takes longer
+	private static final int MAX_TRAINING_VECTORS = 50000;
+
+	private final int vectorSize;
+	private final int subspaces;
+	private final int subspaceSize;
+	// The number of used centroids per subspace, less than CENTROIDS for few vectors
+	private final int centroids;
+	// subspace, centroid, component
+	private final float[] codebooks;
+
+	private ProductQuantizer(int vectorSize, int subspaces, int centroids, float[] codebooks) {
+		this.vectorSize = vectorSize;
+		this.subspaces = subspaces;
+		subspaceSize = vectorSize / subspaces;
+		this.centroids = centroids;
+		this.codebooks = codebooks;
+	}
+
+	/**
+	 * Computes the centroids of the subspaces for the given vectors.
+	 *
+	 * @param vectors
+	 *            the vectors, one row of vectorSize elements per vector
+	 * @param count
+	 *            the number of vectors
+	 * @param vectorSize
+	 *            the dimension of the vectors
+	 * @param subspaces
+	 *            the number of subspaces, it has to divide the vector size
+	 * @param iterations
+	 *            the maximal number of k-means iterations per subspace
+	 * @param seed
+	 *            the seed for the choice of the initial centroids
+	 * @return the quantizer
+	 */
+	static ProductQuantizer train(float[] vectors, int count, int vectorSize, int subspaces, int iterations, long seed) {
+		if (subspaces <= 0 || vectorSize % subspaces != 0) {
+			throw new IllegalArgumentException("The number of subspaces " + subspaces + " does not divide the vector size " + vectorSize);
+		}
+		if (count == 0) {
+			throw new IllegalArgumentException("No vectors to train the quantizer");
+		}
+		int[] sample = sample(count, new Random(seed));
+		int subspaceSize = vectorSize / subspaces;
+		float[] codebooks = new float[subspaces * CENTROIDS * subspaceSize];
+		for (int s = 0; s < subspaces; s++) {
+			kMeans(vectors, vectorSize, sample, s * subspaceSize, subspaceSize, iterations, codebooks, s * CENTROIDS * subspaceSize);
+		}
+		return new ProductQuantizer(vectorSize, subspaces, Math.min(CENTROIDS, sample.length), codebooks);
+	}
+
+	// A random sample of the rows, the first CENTROIDS rows are the initial centroids
+	private static int[] sample(int count, Random random) {
+		int[] rows = new int[count];
+		for (int i = 0; i < count; i++) {
+			rows[i] = i;
+		}
+		int size = Math.min(count, MAX_TRAINING_VECTORS);
+		for (int i = 0; i < size; i++) {
+			int j = i + random.nextInt(count - i);
+			int tmp = rows[i];
+			rows[i] = rows[j];
+			rows[j] = tmp;
+		}
+		int[] sample = new int[size];
+		System.arraycopy(rows, 0, sample, 0, size);
+		return sample;
+	}
+
+	private static void kMeans(float[] vectors, int vectorSize, int[] sample, int component, int size, int iterations, float[] codebooks,
+			int codebookOffset) {
+		int k = Math.min(CENTROIDS, sample.length);
+		for (int c = 0; c < k; c++) {
+			System.arraycopy(vectors, sample[c] * vectorSize + component, codebooks, codebookOffset + c * size, size);
+		}
+		int[] assignment = new int[sample.length];
+		float[] sums = new float[k * size];
+		int[] counts = new int[k];
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			boolean changed = iteration == 0;
+			for (int i = 0; i < sample.length; i++) {
+				int nearest = nearest(vectors, sample[i] * vectorSize + component, size, codebooks, codebookOffset, k);
+				changed |= nearest != assignment[i];
+				assignment[i] = nearest;
+			}
+			if (!changed) {
+				break;
+			}
+			Arrays.fill(sums, 0);
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < sample.length; i++) {
+				int offset = sample[i] * vectorSize + component;
+				for (int d = 0; d < size; d++) {
+					sums[assignment[i] * size + d] += vectors[offset + d];
+				}
+				counts[assignment[i]]++;
+			}
+			// Centroids without vectors keep their position
+			for (int c = 0; c < k; c++) {
+				if (counts[c] > 0) {
+					for (int d = 0; d < size; d++) {
+						codebooks[codebookOffset + c * size + d] = sums[c * size + d] / counts[c];
+					}
+				}
+			}
+		}
+	}
+
+	private static int nearest(float[] vectors, int offset, int size, float[] codebooks, int codebookOffset, int k) {
+		int nearest = 0;
+		float best = Float.POSITIVE_INFINITY;
+		for (int c = 0; c < k; c++) {
+			float distance = 0;
+			int centroid = codebookOffset + c * size;
+			for (int d = 0; d < size; d++) {
+				float diff = vectors[offset + d] - codebooks[centroid + d];
+				distance += diff * diff;
+			}
+			if (distance < best) {
+				best = distance;
+				nearest = c;
+			}
+		}
+		return nearest;
+	}
+
+	/**
+	 *
+	 * @return the number of subspaces (the bytes per vector)
+	 */
+	int subspaces() {
+		return subspaces;
+	}
+
+	/**
+	 *
+	 * @return the centroids, ordered by subspace, centroid and component
+	 */
+	float[] codebooks() {
+		return codebooks;
+	}
+
+	/**
+	 * Computes the codes of a vector.
+	 *
+	 * @param vectors
+	 *            the vectors, one row of vectorSize elements per vector
+	 * @param row
+	 *            the row of the vector
+	 * @param codes
+	 *            receives the code of each subspace
+	 */
+	void encode(float[] vectors, int row, byte[] codes) {
+		for (int s = 0; s < subspaces; s++) {
+			int codebookOffset = s * CENTROIDS * subspaceSize;
+			codes[s] = (byte) nearest(vectors, row * vectorSize + s * subspaceSize, subspaceSize, codebooks, codebookOffset, centroids);
+		}
+	}
+
+}
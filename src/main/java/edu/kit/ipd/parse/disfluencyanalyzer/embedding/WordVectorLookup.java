@@ -0,0 +1,87 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.embedding;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * A read-only lookup table for word vectors (embeddings). The method names
+ * follow the ones of the DL4J {@code WordVectors} interface, so that a lookup
+ * can be used wherever the classifier only needs to access the vectors of single
+ * words.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public interface WordVectorLookup {
+
+	/**
+	 * Checks whether the lookup table contains a vector for the given word.
+	 *
+	 * @param word
+	 *            the word to look up
+	 * @return true if there is a vector for the word otherwise false
+	 */
+	boolean hasWord(String word);
+
+	/**
+	 * Returns the dimension of the word vectors.
+	 *
+	 * @return the number of elements of each word vector
+	 */
+	int vectorSize();
+
+	/**
+	 * Returns the vector of the given word.
+	 *
+	 * @param word
+	 *            the word to look up
+	 * @return the vector of the word or null if the word is unknown
+	 */
+	double[] getWordVector(String word);
+
+	/**
+	 * Returns the vector of the given word as row vector.
+	 *
+	 * @param word
+	 *            the word to look up
+	 * @return the vector of the word or null if the word is unknown
+	 */
+	INDArray getWordVectorMatrix(String word);
+
+	/**
+	 * Copies the vector of the given word into the target array without creating
+	 * intermediate objects. Element k of the vector is written to
+	 * {@code target[offset + k * stride]}.
+	 *
+	 * @param word
+	 *            the word to look up
+	 * @param target
+	 *            the array the vector is copied to
+	 * @param offset
+	 *            the index of the first element of the vector in the target array
+	 * @param stride
+	 *            the distance between two elements of the vector in the target
+	 *            array
+	 * @return true if the word is known otherwise false (the target array is not
+	 *         modified)
+	 */
+	boolean copyWordVector(String word, float[] target, int offset, int stride);
+
+	/**
+	 * Returns known words that start with the given prefix, the most frequent
+	 * words (the ones with the lowest index in the vocabulary) first. Lookups
+	 * without an index for prefix searches return no words.
+	 *
+	 * @param prefix
+	 *            the prefix of the words
+	 * @param limit
+	 *            the maximal number of returned words
+	 * @return the words with the prefix, at most limit words
+	 */
+	default List<String> wordsWithPrefix(String prefix, int limit) {
+		return Collections.emptyList();
+	}
+
+}
@@ -0,0 +1,191 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.features;
+
+import info.debatty.java.stringsimilarity.JaroWinkler;
+
+/**
+ * This class generates the hand-crafted discrete input features of the
+ * classifier for all words of an input sequence. The features of a word
+ * describe whether the word and its part of speech (POS) re-occur in its
+ * surroundings.
+ * <p>
+ * The pairwise relations between the words of the sequence are computed only
+ * once per sequence and stored as banded bitsets: bit {@code d - 1} of the
+ * entry for position {@code a} describes the relation between the words at
+ * position {@code a} and {@code a + d}. The 80 feature bits of each position are
+ * then read from these shared relations instead of comparing the words again
+ * for every position.
+ *
+ * @author Robert Hochweiss
+ * @author Sebastian Weigelt
+ *
+ */
+public class DiscreteFeatureExtractor {
+
+	/**
+	 * The number of discrete features per word.
+	 */
+	public static final int N_DISCRETE_FEATURES = 80;
+
+	// Surroundings (on each side) of a word for word and POS matches
+	private static final int WORD_WINDOW = 15;
+	// Surroundings (on each side) of a word for bigram matches
+	private static final int BIGRAM_WINDOW = 4;
+	// Surroundings (on each side) of a word for similar surface strings
+	private static final int SIMILARITY_WINDOW = 2;
+	// Only the closest surroundings allow a prefix instead of an equal word
+	private static final int PREFIX_WINDOW = 2;
+	private static final double SIMILARITY_THRESHOLD = 0.8;
+	/*
+	 * The Jaro-Winkler-distance(/similarity) works better as similarity metric for
+	 * strings then the original one from the paper (at least for PARSE sequences)
+	 */
+	private static final JaroWinkler JARO_WINKLER = new JaroWinkler();
+
+	private final int size;
+	// the words are equal
+	private final int[] wordEquals;
+	// the words are equal or one is a prefix of the other one
+	private final int[] wordMatches;
+	// the POS tags are equal
+	private final int[] posEquals;
+	/*
+	 * The words are similar (Jaro-Winkler), bit d - 1 of similarLeft[a] for the
+	 * word at a - d and of similarRight[a] for the word at a + d
+	 */
+	private final int[] similarLeft;
+	private final int[] similarRight;
+
+	/**
+	 * Computes the relations between the words of the given sequence.
+	 *
+	 * @param utterance
+	 *            the interned sequence
+	 */
+	public DiscreteFeatureExtractor(InternedUtterance utterance) {
+		size = utterance.size();
+		boolean[] prefixCandidate = new boolean[size];
+		for (int a = 0; a < size; a++) {
+			prefixCandidate[a] = utterance.word(a).length() > 1 && !utterance.isFilledPause(a);
+		}
+		wordEquals = new int[size];
+		wordMatches = new int[size];
+		posEquals = new int[size];
+		similarLeft = new int[size];
+		similarRight = new int[size];
+		for (int a = 0; a < size; a++) {
+			for (int d = 1; d <= WORD_WINDOW && a + d < size; d++) {
+				int b = a + d;
+				int bit = 1 << (d - 1);
+				if (utterance.sameWord(a, b)) {
+					wordEquals[a] |= bit;
+					wordMatches[a] |= bit;
+				} else if (d <= PREFIX_WINDOW && prefixCandidate[a] && prefixCandidate[b]
+						&& (utterance.startsWith(a, b) || utterance.startsWith(b, a))) {
+					wordMatches[a] |= bit;
+				}
+				if (utterance.posId(a) == utterance.posId(b)) {
+					posEquals[a] |= bit;
+				}
+			}
+			for (int d = 1; d <= SIMILARITY_WINDOW; d++) {
+				if (a - d > 0 && JARO_WINKLER.similarity(utterance.word(a), utterance.word(a - d)) > SIMILARITY_THRESHOLD) {
+					similarLeft[a] |= 1 << (d - 1);
+				}
+				if (a + d < size && JARO_WINKLER.similarity(utterance.word(a), utterance.word(a + d)) > SIMILARITY_THRESHOLD) {
+					similarRight[a] |= 1 << (d - 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of words of the sequence.
+	 *
+	 * @return the length of the sequence
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Writes the discrete features of the word at the given position into the
+	 * target array. Feature k is written to {@code target[offset + k * stride]},
+	 * only the set feature bits are written.
+	 *
+	 * @param curWordPos
+	 *            the position of the word in the sequence
+	 * @param target
+	 *            the array the features are written to
+	 * @param offset
+	 *            the index of the first feature in the target array
+	 * @param stride
+	 *            the distance between two features in the target array
+	 */
+	public void extract(int curWordPos, float[] target, int offset, int stride) {
+		/*
+		 * Check in the surroundings (15 words on each side) of the current word for
+		 * duplicates regarding the word itself and its part-of-speech. The first 30
+		 * feature bits are for word matches, the next 30 for part-of-speech matches.
+		 */
+		for (int i = 1; i <= WORD_WINDOW; i++) {
+			int bit = 1 << (i - 1);
+			if ((curWordPos - i) > 0) {
+				if ((wordMatches[curWordPos - i] & bit) != 0) {
+					target[offset + (15 - i) * stride] = 1.0f;
+				}
+				if ((posEquals[curWordPos - i] & bit) != 0) {
+					target[offset + (30 + 15 - i) * stride] = 1.0f;
+				}
+			}
+			if ((curWordPos + i) < size) {
+				if ((wordMatches[curWordPos] & bit) != 0) {
+					target[offset + (15 - 1 + i) * stride] = 1.0f;
+				}
+				if ((posEquals[curWordPos] & bit) != 0) {
+					target[offset + (30 + 15 - 1 + i) * stride] = 1.0f;
+				}
+			}
+		}
+		/*
+		 * Now check in the surroundings (4 Words on each side) of the current word and
+		 * the word after it for duplicates regarding both words and their
+		 * part-of-speech (bigram-feature). The first 8 feature bits are for bigram
+		 * word matches, the next 8 for bigram part-of-speech matches.
+		 */
+		if ((curWordPos + 1) < size) {
+			for (int i = 1; i <= BIGRAM_WINDOW; i++) {
+				int bit = 1 << (i - 1);
+				if ((curWordPos - i) > 0) {
+					if ((wordEquals[curWordPos - i] & wordEquals[curWordPos + 1 - i] & bit) != 0) {
+						target[offset + (60 + 4 - i) * stride] = 1.0f;
+					}
+					if ((posEquals[curWordPos - i] & posEquals[curWordPos + 1 - i] & bit) != 0) {
+						target[offset + (60 + 8 + 4 - i) * stride] = 1.0f;
+					}
+				}
+				if ((curWordPos + 1 + i) < size) {
+					if ((wordEquals[curWordPos] & wordEquals[curWordPos + 1] & bit) != 0) {
+						target[offset + (60 + 4 - 1 + i) * stride] = 1.0f;
+					}
+					if ((posEquals[curWordPos] & posEquals[curWordPos + 1] & bit) != 0) {
+						target[offset + (60 + 8 + 4 - 1 + i) * stride] = 1.0f;
+					}
+				}
+			}
+		}
+		/*
+		 * The last 4 feature bits are for checking the close surrounding (2 words on
+		 * each side) of the current word for a similar surface string
+		 */
+		for (int i = 1; i <= SIMILARITY_WINDOW; i++) {
+			int bit = 1 << (i - 1);
+			if ((curWordPos - i) > 0 && (similarLeft[curWordPos] & bit) != 0) {
+				target[offset + (76 + 2 - i) * stride] = 1.0f;
+			}
+			if ((curWordPos + i) < size && (similarRight[curWordPos] & bit) != 0) {
+				target[offset + (76 + 2 - 1 + i) * stride] = 1.0f;
+			}
+		}
+	}
+
+}
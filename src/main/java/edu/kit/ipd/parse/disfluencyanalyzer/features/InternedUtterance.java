@@ -0,0 +1,305 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.features;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.util.WordUtils;
+
+/**
+ * An input sequence whose words and tags are interned to dense integer ids. The
+ * ids of the words are only valid within the utterance: two positions have the
+ * same word id if and only if they contain the same word. The POS and chunk IOB
+ * ids are the indices of the tags in the tag lists of the classifier (-1 for
+ * undefined tags), see {@link TokenInterner}. Instances are immutable.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class InternedUtterance {
+
+	/**
+	 * The word that replaces all filled pauses that are passed to the network.
+	 */
+	public static final String FILLED_PAUSE_WORD = "uh";
+
+	private final String[] words;
+	private final int[] wordIds;
+	private final int[] posIds;
+	private final int[] chunkIOBIds;
+	private final boolean[] filledPause;
+	private final boolean[] editingTerm;
+
+	/**
+	 *
+	 * @param words
+	 *            the words of the utterance
+	 * @param posIds
+	 *            the index of the POS tag of each word
+	 * @param chunkIOBIds
+	 *            the index of the chunk IOB tag of each word
+	 */
+	public InternedUtterance(String[] words, int[] posIds, int[] chunkIOBIds) {
+		if (words.length != posIds.length || words.length != chunkIOBIds.length) {
+			throw new IllegalArgumentException("There must be exactly one POS tag and one chunk IOB tag per word");
+		}
+		this.words = words.clone();
+		this.posIds = posIds.clone();
+		this.chunkIOBIds = chunkIOBIds.clone();
+		wordIds = new int[words.length];
+		filledPause = new boolean[words.length];
+		editingTerm = new boolean[words.length];
+		Map<String, Integer> ids = new HashMap<>();
+		for (int i = 0; i < words.length; i++) {
+			Integer id = ids.get(words[i]);
+			if (id == null) {
+				id = ids.size();
+				ids.put(words[i], id);
+			}
+			wordIds[i] = id;
+			filledPause[i] = WordUtils.FILLED_PAUSES.contains(words[i]);
+			editingTerm[i] = WordUtils.EXPLICIT_EDITING_TERMS.contains(words[i]);
+		}
+	}
+
+	/**
+	 * Creates an utterance from the lists of the words and the already indexed
+	 * tags.
+	 *
+	 * @param wordList
+	 *            the words of the utterance
+	 * @param posList
+	 *            the index of the POS tag of each word
+	 * @param chunkIOBList
+	 *            the index of the chunk IOB tag of each word
+	 * @return the interned utterance
+	 */
+	public static InternedUtterance of(List<String> wordList, List<Integer> posList, List<Integer> chunkIOBList) {
+		return new InternedUtterance(wordList.toArray(new String[wordList.size()]), toArray(posList), toArray(chunkIOBList));
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 *
+	 * @return the number of words of the utterance
+	 */
+	public int size() {
+		return words.length;
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            the position of the word
+	 * @return the word at the given position
+	 */
+	public String word(int i) {
+		return words[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            the position of the word
+	 * @return the id of the word at the given position
+	 */
+	public int wordId(int i) {
+		return wordIds[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            the position of the word
+	 * @return the index of the POS tag of the word or -1 if the tag is undefined
+	 */
+	public int posId(int i) {
+		return posIds[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            the position of the word
+	 * @return the index of the chunk IOB tag of the word or -1 if the tag is
+	 *         undefined
+	 */
+	public int chunkIOBId(int i) {
+		return chunkIOBIds[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            the position of the word
+	 * @return true if the word is a filled pause
+	 */
+	public boolean isFilledPause(int i) {
+		return filledPause[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            the position of the word
+	 * @return true if the word is an explicit editing term
+	 */
+	public boolean isEditingTerm(int i) {
+		return editingTerm[i];
+	}
+
+	/**
+	 * Checks whether the words at the given positions are equal.
+	 *
+	 * @param a
+	 *            the position of the first word
+	 * @param b
+	 *            the position of the second word
+	 * @return true if both words are equal
+	 */
+	public boolean sameWord(int a, int b) {
+		return wordIds[a] == wordIds[b];
+	}
+
+	/**
+	 * Checks whether the word at position a starts with the word at position b.
+	 *
+	 * @param a
+	 *            the position of the word
+	 * @param b
+	 *            the position of the possible prefix
+	 * @return true if the word at a starts with the word at b
+	 */
+	public boolean startsWith(int a, int b) {
+		return wordIds[a] == wordIds[b] || words[a].startsWith(words[b]);
+	}
+
+	/**
+	 * Returns the positions of the words that are no filled pauses. They are the
+	 * words that are passed to the network if the filled pauses are removed
+	 * before the classification.
+	 *
+	 * @return the positions of the kept words, in ascending order
+	 */
+	public int[] positionsWithoutFilledPauses() {
+		int[] positions = new int[words.length];
+		int kept = 0;
+		for (int i = 0; i < words.length; i++) {
+			if (!filledPause[i]) {
+				positions[kept++] = i;
+			}
+		}
+		return kept == words.length ? positions : Arrays.copyOf(positions, kept);
+	}
+
+	/**
+	 * Returns a view of this utterance that only contains the words at the given
+	 * positions. The word ids are assigned again for the selected words.
+	 *
+	 * @param positions
+	 *            the positions to keep, in ascending order
+	 * @return the utterance of the selected words or this utterance if all words
+	 *         are selected
+	 */
+	public InternedUtterance select(int[] positions) {
+		if (positions.length == words.length) {
+			return this;
+		}
+		String[] keptWords = new String[positions.length];
+		int[] keptPOS = new int[positions.length];
+		int[] keptChunkIOB = new int[positions.length];
+		for (int k = 0; k < positions.length; k++) {
+			keptWords[k] = words[positions[k]];
+			keptPOS[k] = posIds[positions[k]];
+			keptChunkIOB[k] = chunkIOBIds[positions[k]];
+		}
+		return new InternedUtterance(keptWords, keptPOS, keptChunkIOB);
+	}
+
+	/**
+	 * Scatters the values for the selected words of a view (see
+	 * {@link #select(int[])}) back to the positions of the complete utterance.
+	 *
+	 * @param values
+	 *            the value of each selected word
+	 * @param positions
+	 *            the selected positions, in ascending order
+	 * @param size
+	 *            the size of the complete utterance
+	 * @param fill
+	 *            the value for the positions that were not selected
+	 * @return the value of each word of the complete utterance
+	 */
+	public static int[] scatter(int[] values, int[] positions, int size, int fill) {
+		if (positions.length != values.length) {
+			throw new IllegalArgumentException("There must be exactly one value per selected position");
+		}
+		if (positions.length == size) {
+			return values;
+		}
+		int[] scattered = new int[size];
+		Arrays.fill(scattered, fill);
+		for (int k = 0; k < positions.length; k++) {
+			scattered[positions[k]] = values[k];
+		}
+		return scattered;
+	}
+
+	/**
+	 * Scatters the values for the selected words of a view back to the positions
+	 * of the complete utterance, see {@link #scatter(int[], int[], int, int)}.
+	 *
+	 * @param values
+	 *            the value of each selected word
+	 * @param positions
+	 *            the selected positions, in ascending order
+	 * @param size
+	 *            the size of the complete utterance
+	 * @param fill
+	 *            the value for the positions that were not selected
+	 * @return the value of each word of the complete utterance
+	 */
+	public static float[] scatter(float[] values, int[] positions, int size, float fill) {
+		if (positions.length != values.length) {
+			throw new IllegalArgumentException("There must be exactly one value per selected position");
+		}
+		if (positions.length == size) {
+			return values;
+		}
+		float[] scattered = new float[size];
+		Arrays.fill(scattered, fill);
+		for (int k = 0; k < positions.length; k++) {
+			scattered[positions[k]] = values[k];
+		}
+		return scattered;
+	}
+
+	/**
+	 * Returns a copy of this utterance where all filled pauses are replaced by
+	 * {@link #FILLED_PAUSE_WORD}, as they are passed to the network.
+	 *
+	 * @return the normalised utterance or this utterance if it is already
+	 *         normalised
+	 */
+	public InternedUtterance withNormalizedFilledPauses() {
+		String[] normalized = null;
+		for (int i = 0; i < words.length; i++) {
+			if (filledPause[i] && !FILLED_PAUSE_WORD.equals(words[i])) {
+				if (normalized == null) {
+					normalized = words.clone();
+				}
+				normalized[i] = FILLED_PAUSE_WORD;
+			}
+		}
+		return normalized == null ? this : new InternedUtterance(normalized, posIds, chunkIOBIds);
+	}
+
+}
@@ -0,0 +1,128 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.features;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.util.WordUtils;
+
+/**
+ * Converts the words and tags of an input sequence into an
+ * {@link InternedUtterance}. The POS and chunk IOB tags are resolved once with
+ * hash lookups instead of searching the tag lists for each word, all later
+ * stages only compare the integer ids. The interner also provides the
+ * precomputed similarity of all pairs of POS tags. Instances are immutable and
+ * can be shared between threads.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class TokenInterner {
+
+	private final Map<String, Integer> posIds;
+	private final Map<String, Integer> chunkIOBIds;
+	private final boolean[][] similarPOS;
+
+	/**
+	 *
+	 * @param posTags
+	 *            all defined POS tags
+	 * @param chunkIOBTags
+	 *            all defined chunk IOB tags
+	 */
+	public TokenInterner(List<String> posTags, List<String> chunkIOBTags) {
+		posIds = indexMap(posTags);
+		chunkIOBIds = indexMap(chunkIOBTags);
+		int n = posTags.size();
+		similarPOS = new boolean[n][n];
+		for (int a = 0; a < n; a++) {
+			for (int b = 0; b < n; b++) {
+				similarPOS[a][b] = hasSimilarPOS(posTags.get(a), posTags.get(b));
+			}
+		}
+	}
+
+	// The index of the first occurrence of each tag, like List.indexOf
+	private static Map<String, Integer> indexMap(List<String> tags) {
+		Map<String, Integer> ids = new HashMap<>();
+		for (int i = 0; i < tags.size(); i++) {
+			ids.putIfAbsent(tags.get(i), i);
+		}
+		return Collections.unmodifiableMap(ids);
+	}
+
+	/*
+	 * Tags with less than two characters (punctuation) can only be similar to
+	 * themselves, WordUtils.hasSimilarPOS cannot compare their prefixes
+	 */
+	private static boolean hasSimilarPOS(String leftPOS, String rightPOS) {
+		if (leftPOS.equals(rightPOS)) {
+			return true;
+		}
+		if (leftPOS.length() < 2 || rightPOS.length() < 2) {
+			return false;
+		}
+		return WordUtils.hasSimilarPOS(leftPOS, rightPOS);
+	}
+
+	/**
+	 *
+	 * @param posTag
+	 *            the POS tag
+	 * @return the index of the POS tag or -1 if the tag is undefined
+	 */
+	public int posId(String posTag) {
+		return posIds.getOrDefault(posTag, -1);
+	}
+
+	/**
+	 *
+	 * @param chunkIOBTag
+	 *            the chunk IOB tag
+	 * @return the index of the chunk IOB tag or -1 if the tag is undefined
+	 */
+	public int chunkIOBId(String chunkIOBTag) {
+		return chunkIOBIds.getOrDefault(chunkIOBTag, -1);
+	}
+
+	/**
+	 * Checks whether the POS tags with the given indices are similar, see
+	 * {@link WordUtils#hasSimilarPOS(String, String)}.
+	 *
+	 * @param leftPOS
+	 *            the index of the left POS tag
+	 * @param rightPOS
+	 *            the index of the right POS tag
+	 * @return true if the tags are similar, false if not or if one of them is
+	 *         undefined
+	 */
+	public boolean isSimilarPOS(int leftPOS, int rightPOS) {
+		return leftPOS >= 0 && rightPOS >= 0 && similarPOS[leftPOS][rightPOS];
+	}
+
+	/**
+	 * Interns the given input sequence.
+	 *
+	 * @param wordList
+	 *            the words of the sequence
+	 * @param posList
+	 *            the POS tag of each word
+	 * @param chunkIOBList
+	 *            the chunk IOB tag of each word
+	 * @return the interned sequence
+	 */
+	public InternedUtterance intern(List<String> wordList, List<String> posList, List<String> chunkIOBList) {
+		int size = wordList.size();
+		int[] pos = new int[posList.size()];
+		for (int i = 0; i < pos.length; i++) {
+			pos[i] = posId(posList.get(i));
+		}
+		int[] chunkIOB = new int[chunkIOBList.size()];
+		for (int i = 0; i < chunkIOB.length; i++) {
+			chunkIOB[i] = chunkIOBId(chunkIOBList.get(i));
+		}
+		return new InternedUtterance(wordList.toArray(new String[size]), pos, chunkIOB);
+	}
+
+}
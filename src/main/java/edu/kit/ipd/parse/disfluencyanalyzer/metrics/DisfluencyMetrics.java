@@ -0,0 +1,260 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.bytedeco.javacpp.Pointer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.TaggingCache;
+
+/**
+ * The metrics of the disfluency detection of the JVM: the latencies of the
+ * {@link Stage}s, the number of classified utterances and tokens, the hit rate
+ * of the tagging cache, the off-heap memory of ND4J and the state of the
+ * warm-up of the classifiers. The metrics are
+ * published as MBeans in the domain {@value #DOMAIN}, one for each stage
+ * (type=Stage) and one for the overall values (type=Metrics).
+ * <p>
+ * The metrics are enabled unless the system property {@value #ENABLED_PROPERTY}
+ * is false. Then no time is measured and no MBeans are registered. Instances
+ * are thread-safe.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class DisfluencyMetrics implements DisfluencyMetricsMBean {
+
+	/**
+	 * The system property that disables the metrics if it is false.
+	 */
+	public static final String ENABLED_PROPERTY = "disfluencyanalyzer.metrics";
+	/**
+	 * The JMX domain of the MBeans.
+	 */
+	public static final String DOMAIN = "edu.kit.ipd.parse.disfluencyanalyzer";
+
+	private static final Logger logger = LoggerFactory.getLogger(DisfluencyMetrics.class);
+	private static DisfluencyMetrics instance;
+
+	private final boolean enabled;
+	private final Map<Stage, StageMetrics> stages = new EnumMap<>(Stage.class);
+	private final LongAdder utterances = new LongAdder();
+	private final LongAdder tokens = new LongAdder();
+	private volatile TaggingCache taggingCache;
+	private final AtomicInteger runningWarmUps = new AtomicInteger();
+	private volatile long warmUpDuration = -1;
+
+	/**
+	 * Creates metrics that are not registered as MBeans.
+	 *
+	 * @param enabled
+	 *            false if nothing should be recorded
+	 */
+	public DisfluencyMetrics(boolean enabled) {
+		this.enabled = enabled;
+		for (Stage stage : Stage.values()) {
+			stages.put(stage, new StageMetrics());
+		}
+	}
+
+	/**
+	 * Returns the metrics of the JVM. They are created and registered as MBeans
+	 * with the first call.
+	 *
+	 * @return the metrics
+	 */
+	public static synchronized DisfluencyMetrics getInstance() {
+		if (instance == null) {
+			instance = new DisfluencyMetrics(!"false".equalsIgnoreCase(System.getProperty(ENABLED_PROPERTY, "true").trim()));
+			if (instance.enabled) {
+				instance.register();
+			}
+		}
+		return instance;
+	}
+
+	private void register() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.registerMBean(this, new ObjectName(DOMAIN + ":type=Metrics"));
+			for (Stage stage : Stage.values()) {
+				server.registerMBean(stages.get(stage), new ObjectName(DOMAIN + ":type=Stage,name=" + stage.getName()));
+			}
+		} catch (JMException e) {
+			logger.warn("The metrics could not be registered", e);
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the metrics are recorded
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Returns the start time of a stage, to be passed to
+	 * {@link #record(Stage, long, int)}.
+	 *
+	 * @return the current time in nanoseconds or 0 if the metrics are disabled
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the execution of a stage that started at the given time.
+	 *
+	 * @param stage
+	 *            the stage
+	 * @param start
+	 *            the start time from {@link #start()}
+	 * @param tokenCount
+	 *            the number of tokens processed by the stage
+	 */
+	public void record(Stage stage, long start, int tokenCount) {
+		if (enabled) {
+			stages.get(stage).record(System.nanoTime() - start, tokenCount);
+		}
+	}
+
+	/**
+	 * Counts utterances that were classified by the network.
+	 *
+	 * @param utteranceCount
+	 *            the number of utterances
+	 * @param tokenCount
+	 *            the total number of tokens of the utterances
+	 */
+	public void countUtterances(int utteranceCount, int tokenCount) {
+		if (enabled) {
+			utterances.add(utteranceCount);
+			tokens.add(tokenCount);
+		}
+	}
+
+	/**
+	 * Sets the tagging cache whose hit rate is published.
+	 *
+	 * @param taggingCache
+	 *            the cache or null if there is no cache
+	 */
+	public void setTaggingCache(TaggingCache taggingCache) {
+		this.taggingCache = taggingCache;
+	}
+
+	/**
+	 * Notes the start of the warm-up of a classifier. Each call has to be
+	 * followed by a call of {@link #warmUpFinished(long)}.
+	 */
+	public void warmUpStarted() {
+		runningWarmUps.incrementAndGet();
+	}
+
+	/**
+	 * Notes the end of the warm-up of a classifier.
+	 *
+	 * @param durationMillis
+	 *            the duration of the warm-up in milliseconds or -1 if it failed or
+	 *            was cancelled
+	 */
+	public void warmUpFinished(long durationMillis) {
+		if (durationMillis >= 0) {
+			warmUpDuration = durationMillis;
+		}
+		runningWarmUps.decrementAndGet();
+	}
+
+	/**
+	 *
+	 * @param stage
+	 *            the stage
+	 * @return the metrics of the stage
+	 */
+	public StageMetrics getStage(Stage stage) {
+		return stages.get(stage);
+	}
+
+	@Override
+	public long getUtterances() {
+		return utterances.sum();
+	}
+
+	@Override
+	public long getTokens() {
+		return tokens.sum();
+	}
+
+	@Override
+	public long getCacheHits() {
+		TaggingCache cache = taggingCache;
+		return cache == null ? 0 : cache.getHits();
+	}
+
+	@Override
+	public long getCacheMisses() {
+		TaggingCache cache = taggingCache;
+		return cache == null ? 0 : cache.getMisses();
+	}
+
+	@Override
+	public double getCacheHitRate() {
+		TaggingCache cache = taggingCache;
+		if (cache == null) {
+			return 0;
+		}
+		long hits = cache.getHits();
+		long lookups = hits + cache.getMisses();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public long getOffHeapBytes() {
+		return Pointer.totalBytes();
+	}
+
+	@Override
+	public long getMaxOffHeapBytes() {
+		return Pointer.maxBytes();
+	}
+
+	@Override
+	public long getPhysicalBytes() {
+		try {
+			return Pointer.physicalBytes();
+		} catch (UnsatisfiedLinkError e) {
+			// The native library of javacpp is only loaded with the ND4J backend
+			return -1;
+		}
+	}
+
+	@Override
+	public boolean isReady() {
+		return warmUpDuration >= 0 && runningWarmUps.get() == 0;
+	}
+
+	@Override
+	public long getWarmUpDuration() {
+		return warmUpDuration;
+	}
+
+	@Override
+	public void reset() {
+		for (StageMetrics stage : stages.values()) {
+			stage.reset();
+		}
+		utterances.reset();
+		tokens.reset();
+	}
+
+}
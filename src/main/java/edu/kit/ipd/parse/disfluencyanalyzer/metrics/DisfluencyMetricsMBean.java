@@ -0,0 +1,78 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.metrics;
+
+/**
+ * The JMX view of the overall metrics of the disfluency detection.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public interface DisfluencyMetricsMBean {
+
+	/**
+	 *
+	 * @return the number of utterances classified by the network
+	 */
+	long getUtterances();
+
+	/**
+	 *
+	 * @return the number of tokens classified by the network
+	 */
+	long getTokens();
+
+	/**
+	 *
+	 * @return the number of utterances answered from the tagging cache
+	 */
+	long getCacheHits();
+
+	/**
+	 *
+	 * @return the number of utterances that were not in the tagging cache
+	 */
+	long getCacheMisses();
+
+	/**
+	 *
+	 * @return the ratio of the cache hits to all lookups, 0 if there is no cache
+	 */
+	double getCacheHitRate();
+
+	/**
+	 *
+	 * @return the number of bytes currently allocated off-heap by ND4J
+	 */
+	long getOffHeapBytes();
+
+	/**
+	 *
+	 * @return the maximal number of bytes ND4J may allocate off-heap
+	 */
+	long getMaxOffHeapBytes();
+
+	/**
+	 *
+	 * @return the physical memory used by the process in bytes or -1 if the ND4J
+	 *         backend is not loaded
+	 */
+	long getPhysicalBytes();
+
+	/**
+	 *
+	 * @return true if a classifier has been warmed up and no warm-up is running
+	 */
+	boolean isReady();
+
+	/**
+	 *
+	 * @return the duration of the last successful warm-up of a classifier in
+	 *         milliseconds or -1 if no warm-up has finished yet
+	 */
+	long getWarmUpDuration();
+
+	/**
+	 * Removes all recorded values of all stages. The warm-up state is kept.
+	 */
+	void reset();
+
+}
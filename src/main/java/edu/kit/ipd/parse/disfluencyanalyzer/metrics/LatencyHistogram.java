@@ -0,0 +1,108 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies. The buckets have exponentially growing
+ * bounds (powers of two of microseconds), so recording is a single increment
+ * and the quantiles are accurate to a factor of two. Instances are
+ * thread-safe.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class LatencyHistogram {
+
+	// Bucket i holds the latencies below 2^i microseconds, the last one all larger latencies
+	private static final int NUM_BUCKETS = 40;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param nanos
+	 *            the latency in nanoseconds
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+		int bucket = Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		buckets.incrementAndGet(bucket);
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	/**
+	 *
+	 * @return the number of recorded latencies
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 *
+	 * @return the sum of all recorded latencies in nanoseconds
+	 */
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	/**
+	 *
+	 * @return the largest recorded latency in nanoseconds
+	 */
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/**
+	 * Returns an upper bound of the given quantile of the recorded latencies.
+	 *
+	 * @param quantile
+	 *            the quantile, between 0 and 1
+	 * @return the upper bound of the bucket that contains the quantile in
+	 *         nanoseconds, 0 if there are no latencies
+	 */
+	public long getQuantileNanos(double quantile) {
+		long[] snapshot = new long[NUM_BUCKETS];
+		long total = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			snapshot[i] = buckets.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(quantile * total);
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS - 1; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				// The bound is never larger than the largest latency
+				return Math.min(TimeUnit.MICROSECONDS.toNanos(1L << i), getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	/**
+	 * Removes all recorded latencies.
+	 */
+	public void reset() {
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		totalNanos.reset();
+		maxNanos.reset();
+	}
+
+}
@@ -0,0 +1,46 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.metrics;
+
+/**
+ * The stages of the disfluency detection that are measured.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public enum Stage {
+
+	/**
+	 * Reading the tokens and their tags from the graph.
+	 */
+	GRAPH_EXTRACTION("graphExtraction"),
+	/**
+	 * Creating the input features of the network.
+	 */
+	FEATURIZATION("featurization"),
+	/**
+	 * The forward pass of the network.
+	 */
+	INFERENCE("inference"),
+	/**
+	 * Decoding and adjusting the network output.
+	 */
+	POST_PROCESSING("postProcessing"),
+	/**
+	 * Writing the tags and repair arcs to the graph.
+	 */
+	GRAPH_WRITE_BACK("graphWriteBack");
+
+	private final String name;
+
+	Stage(String name) {
+		this.name = name;
+	}
+
+	/**
+	 *
+	 * @return the name of the stage in the JMX object names
+	 */
+	public String getName() {
+		return name;
+	}
+
+}
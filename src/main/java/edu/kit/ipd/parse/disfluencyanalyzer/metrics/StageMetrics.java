@@ -0,0 +1,72 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latencies and the processed tokens of a {@link Stage}. Instances are
+ * thread-safe.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class StageMetrics implements StageMetricsMBean {
+
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final LongAdder tokens = new LongAdder();
+
+	void record(long nanos, int tokenCount) {
+		latencies.record(nanos);
+		tokens.add(tokenCount);
+	}
+
+	@Override
+	public long getCount() {
+		return latencies.getCount();
+	}
+
+	@Override
+	public long getTokens() {
+		return tokens.sum();
+	}
+
+	@Override
+	public double getMeanMillis() {
+		long count = latencies.getCount();
+		return count == 0 ? 0 : latencies.getTotalNanos() / NANOS_PER_MILLI / count;
+	}
+
+	@Override
+	public double getP50Millis() {
+		return latencies.getQuantileNanos(0.5) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getP95Millis() {
+		return latencies.getQuantileNanos(0.95) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getP99Millis() {
+		return latencies.getQuantileNanos(0.99) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return latencies.getMaxNanos() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getTokensPerSecond() {
+		long nanos = latencies.getTotalNanos();
+		return nanos == 0 ? 0 : tokens.sum() * 1e9 / nanos;
+	}
+
+	@Override
+	public void reset() {
+		latencies.reset();
+		tokens.reset();
+	}
+
+}
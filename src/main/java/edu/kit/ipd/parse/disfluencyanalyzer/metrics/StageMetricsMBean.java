@@ -0,0 +1,64 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.metrics;
+
+/**
+ * The JMX view of the metrics of a {@link Stage}.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public interface StageMetricsMBean {
+
+	/**
+	 *
+	 * @return the number of executions of the stage
+	 */
+	long getCount();
+
+	/**
+	 *
+	 * @return the number of tokens processed by the stage
+	 */
+	long getTokens();
+
+	/**
+	 *
+	 * @return the mean latency in milliseconds
+	 */
+	double getMeanMillis();
+
+	/**
+	 *
+	 * @return the median latency in milliseconds (upper bound)
+	 */
+	double getP50Millis();
+
+	/**
+	 *
+	 * @return the 95th percentile of the latency in milliseconds (upper bound)
+	 */
+	double getP95Millis();
+
+	/**
+	 *
+	 * @return the 99th percentile of the latency in milliseconds (upper bound)
+	 */
+	double getP99Millis();
+
+	/**
+	 *
+	 * @return the largest latency in milliseconds
+	 */
+	double getMaxMillis();
+
+	/**
+	 *
+	 * @return the number of tokens processed per second of stage time
+	 */
+	double getTokensPerSecond();
+
+	/**
+	 * Removes all recorded values.
+	 */
+	void reset();
+
+}
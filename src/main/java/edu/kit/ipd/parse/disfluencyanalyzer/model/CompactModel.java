@@ -0,0 +1,394 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.graph.GraphVertex;
+import org.deeplearning4j.nn.conf.graph.LayerVertex;
+import org.deeplearning4j.nn.conf.layers.AbstractLSTM;
+import org.deeplearning4j.nn.conf.layers.BaseLayer;
+import org.deeplearning4j.nn.conf.layers.GravesBidirectionalLSTM;
+import org.deeplearning4j.nn.conf.layers.Layer;
+import org.deeplearning4j.nn.conf.layers.recurrent.Bidirectional;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+/**
+ * Reads and writes a network model in a compact format for the inference. In
+ * contrast to the files of the DL4J ModelSerializer the format only contains
+ * the configuration and the parameters of the network (no updater state), and
+ * the weight matrices of the layers can be stored with a reduced precision
+ * (see {@link Precision}). Parameters with a single row (the biases) are always
+ * stored in float32. The header also describes the layers with the settings
+ * that the forward pass depends on (e.g. the activation functions), so that
+ * they can be checked without parsing the configuration (see
+ * {@link LSTMNetwork#load(File)}).
+ * <p>
+ * The format (big-endian):
+ *
+ * <pre>
+ * int     magic number "DFM1"
+ * int     format version
+ * byte    precision of the weights (ordinal of Precision)
+ * int     length of the configuration
+ * byte[]  configuration as UTF-8 JSON
+ * int     number of layers (since version 2)
+ * per layer:
+ *   UTF     name of the vertex (e.g. hiddenLayer)
+ *   UTF     description of the vertex (e.g. GravesLSTM(activation=tanh,
+ *           gate=sigmoid) &lt;- merge)
+ * int     number of parameters
+ * per parameter:
+ *   UTF     name of the parameter (e.g. hiddenLayer_fW)
+ *   byte    precision of the parameter
+ *   int     rows
+ *   int     columns
+ *   FP32:   rows * columns floats (row-major)
+ *   FP16:   rows * columns half precision floats (row-major)
+ *   INT8:   rows float scales, rows * columns bytes (row-major),
+ *           the value is byte * scale of its row
+ * </pre>
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class CompactModel {
+
+	/**
+	 * The file extension of compact models.
+	 */
+	public static final String EXTENSION = ".dfm";
+
+	private static final int MAGIC = 0x44464d31;
+	private static final int VERSION = 2;
+
+	private CompactModel() {
+	}
+
+	/**
+	 * Writes the configuration and the parameters of the given network.
+	 *
+	 * @param net
+	 *            the network
+	 * @param precision
+	 *            the precision of the weight matrices
+	 * @param file
+	 *            the file to be written
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public static void write(ComputationGraph net, Precision precision, File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath()), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeByte(precision.ordinal());
+			byte[] configuration = net.getConfiguration().toJson().getBytes(StandardCharsets.UTF_8);
+			out.writeInt(configuration.length);
+			out.write(configuration);
+			Map<String, String> layers = layers(net.getConfiguration());
+			out.writeInt(layers.size());
+			for (Map.Entry<String, String> layer : layers.entrySet()) {
+				out.writeUTF(layer.getKey());
+				out.writeUTF(layer.getValue());
+			}
+			Map<String, INDArray> parameters = net.paramTable();
+			out.writeInt(parameters.size());
+			for (Map.Entry<String, INDArray> parameter : parameters.entrySet()) {
+				INDArray value = parameter.getValue();
+				if (value.rank() != 2) {
+					throw new IOException("Parameter " + parameter.getKey() + " is not a matrix");
+				}
+				int rows = (int) value.size(0);
+				int columns = (int) value.size(1);
+				Precision parameterPrecision = rows == 1 ? Precision.FP32 : precision;
+				out.writeUTF(parameter.getKey());
+				out.writeByte(parameterPrecision.ordinal());
+				out.writeInt(rows);
+				out.writeInt(columns);
+				writeValues(out, value.dup('c').data().asFloat(), rows, columns, parameterPrecision);
+			}
+		}
+	}
+
+	private static void writeValues(DataOutputStream out, float[] values, int rows, int columns, Precision precision) throws IOException {
+		switch (precision) {
+		case FP32:
+			for (float value : values) {
+				out.writeFloat(value);
+			}
+			break;
+		case FP16:
+			for (float value : values) {
+				out.writeShort(toHalf(value));
+			}
+			break;
+		case INT8:
+			float[] scales = rowScales(values, rows, columns);
+			for (float scale : scales) {
+				out.writeFloat(scale);
+			}
+			for (int r = 0; r < rows; r++) {
+				for (int c = 0; c < columns; c++) {
+					out.writeByte(quantize(values[r * columns + c], scales[r]));
+				}
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown precision " + precision);
+		}
+	}
+
+	/**
+	 * Reads a network. The network is initialized with the stored parameters and
+	 * computes in float32. The file must contain exactly the parameters of the
+	 * stored configuration, otherwise some parameters would keep their random
+	 * initial values.
+	 *
+	 * @param file
+	 *            the compact model file
+	 * @return the network
+	 * @throws IOException
+	 *             if the file cannot be read, is not a compact model or its
+	 *             parameters do not fit to its configuration
+	 */
+	public static ComputationGraph read(File file) throws IOException {
+		Contents contents = readContents(file);
+		ComputationGraph net = new ComputationGraph(ComputationGraphConfiguration.fromJson(contents.configuration));
+		net.init();
+		Set<String> names = net.paramTable().keySet();
+		if (!contents.weights.keySet().equals(names)) {
+			Set<String> missing = new TreeSet<>(names);
+			missing.removeAll(contents.weights.keySet());
+			Set<String> unknown = new TreeSet<>(contents.weights.keySet());
+			unknown.removeAll(names);
+			throw new IOException("The parameters of the compact model " + file + " do not fit to its configuration, missing: " + missing
+					+ ", unknown: " + unknown);
+		}
+		for (Map.Entry<String, Weights> entry : contents.weights.entrySet()) {
+			Weights weights = entry.getValue();
+			INDArray parameter = net.getParam(entry.getKey());
+			if (parameter == null || parameter.size(0) != weights.rows || parameter.size(1) != weights.columns) {
+				throw new IOException("Parameter " + entry.getKey() + " does not fit to the configuration of the compact model " + file);
+			}
+			parameter.assign(Nd4j.create(weights.values, new int[] { weights.rows, weights.columns }, 'c'));
+		}
+		return net;
+	}
+
+	/*
+	 * Describes each vertex of the configuration by its type, the settings of
+	 * the forward pass and its inputs
+	 */
+	static Map<String, String> layers(ComputationGraphConfiguration configuration) {
+		Map<String, String> layers = new TreeMap<>();
+		for (Map.Entry<String, GraphVertex> vertex : configuration.getVertices().entrySet()) {
+			String description;
+			if (vertex.getValue() instanceof LayerVertex) {
+				description = describe(((LayerVertex) vertex.getValue()).getLayerConf().getLayer());
+			} else {
+				description = vertex.getValue().getClass().getSimpleName();
+			}
+			List<String> inputs = configuration.getVertexInputs().get(vertex.getKey());
+			layers.put(vertex.getKey(), description + " <- " + (inputs == null ? "" : String.join(", ", inputs)));
+		}
+		return layers;
+	}
+
+	private static String describe(Layer layer) {
+		String name = layer.getClass().getSimpleName();
+		if (layer instanceof Bidirectional) {
+			Bidirectional bidirectional = (Bidirectional) layer;
+			return name + "(mode=" + bidirectional.getMode() + ", forward=" + describe(bidirectional.getFwd()) + ", backward="
+					+ describe(bidirectional.getBwd()) + ")";
+		} else if (layer instanceof AbstractLSTM) {
+			AbstractLSTM lstm = (AbstractLSTM) layer;
+			return name + "(activation=" + lstm.getActivationFn() + ", gate=" + lstm.getGateActivationFn() + ")";
+		} else if (layer instanceof GravesBidirectionalLSTM) {
+			GravesBidirectionalLSTM lstm = (GravesBidirectionalLSTM) layer;
+			return name + "(activation=" + lstm.getActivationFn() + ", gate=" + lstm.getGateActivationFn() + ")";
+		} else if (layer instanceof BaseLayer) {
+			return name + "(activation=" + ((BaseLayer) layer).getActivationFn() + ")";
+		}
+		return name;
+	}
+
+	/*
+	 * Reads only the layers and the parameters, without creating a network (and
+	 * without initializing ND4J)
+	 */
+	static Contents readContents(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not a compact model: " + file);
+			}
+			int version = in.readInt();
+			if (version < 1 || version > VERSION) {
+				throw new IOException("Unsupported version " + version + " of the compact model " + file);
+			}
+			precision(in.readByte());
+			byte[] configuration = new byte[in.readInt()];
+			in.readFully(configuration);
+			// Version 1 does not describe the layers
+			Map<String, String> layers = null;
+			if (version >= 2) {
+				layers = new TreeMap<>();
+				int numLayers = in.readInt();
+				for (int l = 0; l < numLayers; l++) {
+					layers.put(in.readUTF(), in.readUTF());
+				}
+			}
+			int numParameters = in.readInt();
+			Map<String, Weights> weights = new LinkedHashMap<>();
+			for (int p = 0; p < numParameters; p++) {
+				String name = in.readUTF();
+				Precision precision = precision(in.readByte());
+				int rows = in.readInt();
+				int columns = in.readInt();
+				weights.put(name, new Weights(rows, columns, readValues(in, rows, columns, precision)));
+			}
+			return new Contents(new String(configuration, StandardCharsets.UTF_8), layers, weights);
+		}
+	}
+
+	static final class Contents {
+
+		final String configuration;
+		// null if the file does not describe its layers
+		final Map<String, String> layers;
+		final Map<String, Weights> weights;
+
+		private Contents(String configuration, Map<String, String> layers, Map<String, Weights> weights) {
+			this.configuration = configuration;
+			this.layers = layers;
+			this.weights = weights;
+		}
+	}
+
+	private static Precision precision(byte ordinal) throws IOException {
+		if (ordinal < 0 || ordinal >= Precision.values().length) {
+			throw new IOException("Unknown precision " + ordinal);
+		}
+		return Precision.values()[ordinal];
+	}
+
+	private static float[] readValues(DataInputStream in, int rows, int columns, Precision precision) throws IOException {
+		float[] values = new float[rows * columns];
+		switch (precision) {
+		case FP32:
+			for (int i = 0; i < values.length; i++) {
+				values[i] = in.readFloat();
+			}
+			break;
+		case FP16:
+			for (int i = 0; i < values.length; i++) {
+				values[i] = fromHalf(in.readShort());
+			}
+			break;
+		case INT8:
+			float[] scales = new float[rows];
+			for (int r = 0; r < rows; r++) {
+				scales[r] = in.readFloat();
+			}
+			for (int r = 0; r < rows; r++) {
+				for (int c = 0; c < columns; c++) {
+					values[r * columns + c] = in.readByte() * scales[r];
+				}
+			}
+			break;
+		default:
+			throw new IOException("Unknown precision " + precision);
+		}
+		return values;
+	}
+
+	/*
+	 * The scale of a row maps its largest absolute value to 127, rows of zeros
+	 * get the scale 0
+	 */
+	static float[] rowScales(float[] values, int rows, int columns) {
+		float[] scales = new float[rows];
+		for (int r = 0; r < rows; r++) {
+			float max = 0;
+			for (int c = 0; c < columns; c++) {
+				max = Math.max(max, Math.abs(values[r * columns + c]));
+			}
+			scales[r] = max / 127;
+		}
+		return scales;
+	}
+
+	static byte quantize(float value, float scale) {
+		if (scale == 0) {
+			return 0;
+		}
+		return (byte) Math.max(-127, Math.min(127, Math.round(value / scale)));
+	}
+
+	/*
+	 * Converts a float into the bits of a half precision float, rounding to the
+	 * nearest value (ties to even)
+	 */
+	static short toHalf(float value) {
+		int bits = Float.floatToIntBits(value);
+		int sign = (bits >>> 16) & 0x8000;
+		int exponent = (bits >>> 23) & 0xff;
+		int mantissa = bits & 0x7fffff;
+		if (exponent == 0xff) {
+			// Infinity or NaN
+			return (short) (sign | 0x7c00 | (mantissa != 0 ? 0x200 : 0));
+		}
+		int halfExponent = exponent - 127 + 15;
+		if (halfExponent >= 0x1f) {
+			return (short) (sign | 0x7c00);
+		}
+		if (halfExponent <= 0) {
+			// Subnormal half or zero
+			if (halfExponent < -10) {
+				return (short) sign;
+			}
+			mantissa |= 0x800000;
+			int shift = 14 - halfExponent;
+			return (short) (sign | round(mantissa >> shift, mantissa & ((1 << shift) - 1), 1 << (shift - 1)));
+		}
+		// A carry of the rounding correctly increments the exponent
+		return (short) (sign | round((halfExponent << 10) | (mantissa >> 13), mantissa & 0x1fff, 0x1000));
+	}
+
+	private static int round(int truncated, int rest, int halfway) {
+		if (rest > halfway || (rest == halfway && (truncated & 1) != 0)) {
+			return truncated + 1;
+		}
+		return truncated;
+	}
+
+	// Converts the bits of a half precision float into a float
+	static float fromHalf(short half) {
+		int bits = half & 0xffff;
+		int sign = (bits & 0x8000) << 16;
+		int exponent = (bits >>> 10) & 0x1f;
+		int mantissa = bits & 0x3ff;
+		if (exponent == 0x1f) {
+			return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+		}
+		if (exponent == 0) {
+			float subnormal = mantissa * 0x1p-24f;
+			return sign != 0 ? -subnormal : subnormal;
+		}
+		return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+	}
+
+}
@@ -0,0 +1,155 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.util.ModelSerializer;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.ops.transforms.Transforms;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.DisfluencyDataSetIterator;
+import edu.kit.ipd.parse.disfluencyanalyzer.LSTMClassifier;
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.MappedWordVectors;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.InternedUtterance;
+
+/**
+ * One-time exporter that turns a network model saved by the DL4J
+ * ModelSerializer into a {@link CompactModel}. After the export it reports the
+ * difference between the original and the compact model: the largest error of
+ * each parameter and the differences of the output probabilities and the most
+ * probable tags for random utterances. The utterances consist of the most
+ * frequent words of a binary word vector table (see
+ * {@link MappedWordVectors}), repetitions and filled pauses, and are featurized
+ * like the input of the classifier.
+ * <p>
+ * Usage:
+ * {@code CompactModelExporter <model.net> <output.dfm> <wordvectors.bin> [fp32|fp16|int8]},
+ * the default precision is fp16.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class CompactModelExporter {
+
+	private static final Logger logger = LoggerFactory.getLogger(CompactModelExporter.class);
+
+	private static final String USAGE = "Usage: CompactModelExporter <model.net> <output.dfm> <wordvectors.bin> [fp32|fp16|int8]";
+	private static final int REPORT_SEQUENCES = 200;
+	private static final int REPORT_MAX_LENGTH = 40;
+	private static final int REPORT_BATCH_SIZE = 50;
+	// The words of the report utterances are taken from the most frequent words
+	private static final int REPORT_TOP_WORDS = 5000;
+	// The share of the words of the report utterances that repeat one of the previous words
+	private static final double REPORT_REPETITIONS = 0.15;
+	private static final double REPORT_FILLED_PAUSES = 0.05;
+
+	private CompactModelExporter() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3 || args.length > 4) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		File modelFile = new File(args[0]);
+		File compactFile = new File(args[1]);
+		MappedWordVectors wordVectors = MappedWordVectors.open(new File(args[2]));
+		Precision precision = args.length > 3 ? Precision.of(args[3]) : Precision.FP16;
+		long start = System.nanoTime();
+		ComputationGraph original = ModelSerializer.restoreComputationGraph(modelFile, false);
+		long originalLoad = System.nanoTime() - start;
+		CompactModel.write(original, precision, compactFile);
+		start = System.nanoTime();
+		ComputationGraph compact = CompactModel.read(compactFile);
+		long compactLoad = System.nanoTime() - start;
+		logger.info("{}: {} bytes, loaded in {} ms", modelFile, modelFile.length(), originalLoad / 1_000_000);
+		logger.info("{} ({}): {} bytes, loaded in {} ms", compactFile, precision, compactFile.length(), compactLoad / 1_000_000);
+		report(original, compact, wordVectors);
+	}
+
+	/**
+	 * Logs the differences between the parameters and the outputs of the given
+	 * networks. The outputs are compared on the words of random utterances, the
+	 * padding positions of the batches are skipped.
+	 *
+	 * @param original
+	 *            the original network
+	 * @param compact
+	 *            the network restored from the compact model
+	 * @param wordVectors
+	 *            the word vectors of the input of the networks
+	 */
+	public static void report(ComputationGraph original, ComputationGraph compact, MappedWordVectors wordVectors) {
+		for (Map.Entry<String, INDArray> parameter : original.paramTable().entrySet()) {
+			INDArray difference = parameter.getValue().sub(compact.getParam(parameter.getKey()));
+			logger.info("Parameter {}: max |error| {}, max |value| {}", parameter.getKey(), difference.amaxNumber(),
+					parameter.getValue().amaxNumber());
+		}
+		List<String> posTags = LSTMClassifier.definedPosTags();
+		List<String> chunkIOBTags = LSTMClassifier.definedChunkIOBTags();
+		DisfluencyDataSetIterator iterator = new DisfluencyDataSetIterator(REPORT_BATCH_SIZE, REPORT_MAX_LENGTH, wordVectors, posTags,
+				chunkIOBTags, LSTMClassifier.definedDisfluencyTags());
+		Random random = new Random(42);
+		int topWords = Math.min(wordVectors.vocabSize(), REPORT_TOP_WORDS);
+		for (int s = 0; s < REPORT_SEQUENCES; s++) {
+			int length = 1 + random.nextInt(REPORT_MAX_LENGTH);
+			List<String> wordList = new ArrayList<>(length);
+			List<Integer> posList = new ArrayList<>(length);
+			List<Integer> chunkIOBList = new ArrayList<>(length);
+			for (int i = 0; i < length; i++) {
+				if (i > 0 && random.nextDouble() < REPORT_REPETITIONS) {
+					wordList.add(wordList.get(i - 1 - random.nextInt(Math.min(i, 3))));
+				} else if (random.nextDouble() < REPORT_FILLED_PAUSES) {
+					wordList.add(InternedUtterance.FILLED_PAUSE_WORD);
+				} else {
+					wordList.add(wordVectors.wordAtIndex(random.nextInt(topWords)));
+				}
+				posList.add(random.nextInt(posTags.size()));
+				chunkIOBList.add(random.nextInt(chunkIOBTags.size()));
+			}
+			iterator.addInputSequenceList(wordList, posList, chunkIOBList);
+		}
+		double maxDifference = 0;
+		double sumDifference = 0;
+		long words = 0;
+		long sameTags = 0;
+		long outputs = 0;
+		while (iterator.hasNext()) {
+			MultiDataSet features = iterator.next();
+			INDArray expected = original.output(false, features.getFeatures(), features.getFeaturesMaskArrays())[0];
+			INDArray actual = compact.output(false, features.getFeatures(), features.getFeaturesMaskArrays())[0];
+			INDArray difference = Transforms.abs(expected.sub(actual));
+			INDArray expectedTags = Nd4j.argMax(expected, 1);
+			INDArray actualTags = Nd4j.argMax(actual, 1);
+			// All inputs have the same mask, 0 for the padding positions
+			INDArray mask = features.getFeaturesMaskArray(0);
+			for (int i = 0; i < mask.size(0); i++) {
+				for (int j = 0; j < mask.size(1) && mask.getDouble(i, j) != 0; j++) {
+					for (int c = 0; c < difference.size(1); c++) {
+						double d = difference.getDouble(i, c, j);
+						maxDifference = Math.max(maxDifference, d);
+						sumDifference += d;
+						outputs++;
+					}
+					if (expectedTags.getInt(i, j) == actualTags.getInt(i, j)) {
+						sameTags++;
+					}
+					words++;
+				}
+			}
+		}
+		logger.info("Output probabilities of {} words: max |difference| {}, mean |difference| {}", words, maxDifference,
+				sumDifference / outputs);
+		logger.info("Same most probable tag for {} of {} words ({}%)", sameTags, words, 100.0 * sameTags / words);
+	}
+
+}
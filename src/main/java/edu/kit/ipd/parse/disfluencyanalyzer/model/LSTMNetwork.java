@@ -0,0 +1,356 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.nd4j.linalg.api.ndarray.INDArray;
+
+/**
+ * The forward pass of the disfluency network in plain Java, without ND4J and
+ * its native libraries. It computes the same output as the ComputationGraph of
+ * the model:
+ * <ul>
+ * <li>a GravesLSTM for each of the word vectors, the one-hot POS tags and the
+ * one-hot chunk IOB tags,</li>
+ * <li>their outputs merged with the discrete features,</li>
+ * <li>a bidirectional GravesLSTM whose directions are added and</li>
+ * <li>a softmax output layer.</li>
+ * </ul>
+ * The one-hot inputs are not multiplied with the input weights: the input of a
+ * word is the row of its tag in the weight matrix. Dense inputs skip their zero
+ * values (most of the discrete features). The inner loops run over contiguous
+ * rows of the weight matrices, so that the JIT compiler can vectorize them.
+ * <p>
+ * Only this architecture with these activation functions is implemented, the
+ * layers of a model are checked before its parameters are used.
+ * <p>
+ * An instance is immutable and can be shared between threads, each call of
+ * {@link #output(float[], int[], int[], float[], int)} uses its own buffers.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class LSTMNetwork {
+
+	private static final String LSTM = "GravesLSTM(activation=tanh, gate=sigmoid)";
+
+	// The layers of the forward pass, as described by CompactModel#layers
+	private static final Map<String, String> LAYERS = new TreeMap<>();
+
+	static {
+		LAYERS.put("wordInputLayer", LSTM + " <- wordFeatures");
+		LAYERS.put("posInputLayer", LSTM + " <- posFeatures");
+		LAYERS.put("chunkIOBInputLayer", LSTM + " <- chunkIOBFeatures");
+		LAYERS.put("merge", "MergeVertex <- wordInputLayer, posInputLayer, chunkIOBInputLayer, discreteFeatures");
+		LAYERS.put("hiddenLayer", "Bidirectional(mode=ADD, forward=" + LSTM + ", backward=" + LSTM + ") <- merge");
+		LAYERS.put("outputLayer", "RnnOutputLayer(activation=softmax) <- hiddenLayer");
+	}
+
+	private final GravesLSTM wordLayer;
+	private final GravesLSTM posLayer;
+	private final GravesLSTM chunkIOBLayer;
+	private final GravesLSTM forwardLayer;
+	private final GravesLSTM backwardLayer;
+	private final Weights outputWeights;
+	private final Weights outputBias;
+	private final int numDiscreteFeatures;
+
+	LSTMNetwork(Map<String, Weights> weights) {
+		wordLayer = new GravesLSTM(weights, "wordInputLayer_");
+		posLayer = new GravesLSTM(weights, "posInputLayer_");
+		chunkIOBLayer = new GravesLSTM(weights, "chunkIOBInputLayer_");
+		forwardLayer = new GravesLSTM(weights, "hiddenLayer_f");
+		backwardLayer = new GravesLSTM(weights, "hiddenLayer_b");
+		outputWeights = parameter(weights, "outputLayer_W");
+		outputBias = parameter(weights, "outputLayer_b");
+		numDiscreteFeatures = forwardLayer.nIn - wordLayer.nOut - posLayer.nOut - chunkIOBLayer.nOut;
+		if (numDiscreteFeatures < 0 || backwardLayer.nIn != forwardLayer.nIn || backwardLayer.nOut != forwardLayer.nOut
+				|| outputWeights.rows != forwardLayer.nOut || outputBias.columns != outputWeights.columns) {
+			throw new IllegalArgumentException("The parameters do not fit to the disfluency network");
+		}
+	}
+
+	/**
+	 * Loads the network from a {@link CompactModel}. Only the parameters are read,
+	 * ND4J is not needed.
+	 *
+	 * @param file
+	 *            the compact model file
+	 * @return the network
+	 * @throws IOException
+	 *             if the file cannot be read or does not contain the disfluency
+	 *             network
+	 */
+	public static LSTMNetwork load(File file) throws IOException {
+		CompactModel.Contents contents = CompactModel.readContents(file);
+		if (contents.layers == null) {
+			throw new IOException("The compact model " + file + " does not describe its layers, it has to be exported again");
+		}
+		try {
+			checkLayers(contents.layers);
+			return new LSTMNetwork(contents.weights);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("The compact model " + file + " does not contain the disfluency network", e);
+		}
+	}
+
+	/**
+	 * Creates the network from the parameters of the given ComputationGraph.
+	 *
+	 * @param net
+	 *            the restored network
+	 * @return the network, it does not share its parameters with the given one
+	 * @throws IllegalArgumentException
+	 *             if the layers of the given network are not the ones of the
+	 *             disfluency network (e.g. other activation functions)
+	 */
+	public static LSTMNetwork of(ComputationGraph net) {
+		checkLayers(CompactModel.layers(net.getConfiguration()));
+		Map<String, Weights> weights = new LinkedHashMap<>();
+		for (Map.Entry<String, INDArray> parameter : net.paramTable().entrySet()) {
+			INDArray value = parameter.getValue();
+			weights.put(parameter.getKey(), new Weights((int) value.size(0), (int) value.size(1), value.dup('c').data().asFloat()));
+		}
+		return new LSTMNetwork(weights);
+	}
+
+	private static void checkLayers(Map<String, String> layers) {
+		if (layers.equals(LAYERS)) {
+			return;
+		}
+		Set<String> names = new TreeSet<>(LAYERS.keySet());
+		names.addAll(layers.keySet());
+		StringBuilder differences = new StringBuilder();
+		for (String name : names) {
+			if (!Objects.equals(LAYERS.get(name), layers.get(name))) {
+				differences.append(System.lineSeparator()).append(name).append(": expected ").append(LAYERS.get(name)).append(", found ")
+						.append(layers.get(name));
+			}
+		}
+		throw new IllegalArgumentException("The layers are not the ones of the disfluency network:" + differences);
+	}
+
+	private static Weights parameter(Map<String, Weights> weights, String name) {
+		Weights parameter = weights.get(name);
+		if (parameter == null) {
+			throw new IllegalArgumentException("Missing parameter " + name);
+		}
+		return parameter;
+	}
+
+	/**
+	 *
+	 * @return the size of the word vectors
+	 */
+	public int getWordVectorSize() {
+		return wordLayer.nIn;
+	}
+
+	/**
+	 *
+	 * @return the number of POS tags
+	 */
+	public int getNumPosTags() {
+		return posLayer.nIn;
+	}
+
+	/**
+	 *
+	 * @return the number of chunk IOB tags
+	 */
+	public int getNumChunkIOBTags() {
+		return chunkIOBLayer.nIn;
+	}
+
+	/**
+	 *
+	 * @return the number of discrete features per word
+	 */
+	public int getNumDiscreteFeatures() {
+		return numDiscreteFeatures;
+	}
+
+	/**
+	 *
+	 * @return the number of output classes (disfluency tags)
+	 */
+	public int getNumClasses() {
+		return outputWeights.columns;
+	}
+
+	/**
+	 * Computes the probabilities of the output classes for each word of a
+	 * sequence.
+	 *
+	 * @param wordVectors
+	 *            the word vector of each word, the vector of word j starts at j *
+	 *            {@link #getWordVectorSize()}
+	 * @param posIds
+	 *            the index of the POS tag of each word, -1 if it is undefined
+	 * @param chunkIOBIds
+	 *            the index of the chunk IOB tag of each word, -1 if it is
+	 *            undefined
+	 * @param discreteFeatures
+	 *            the discrete features of each word, the features of word j start
+	 *            at j * {@link #getNumDiscreteFeatures()}
+	 * @param length
+	 *            the number of words
+	 * @return the probabilities, the probability of class c of word j is at j *
+	 *         {@link #getNumClasses()} + c
+	 */
+	public float[] output(float[] wordVectors, int[] posIds, int[] chunkIOBIds, float[] discreteFeatures, int length) {
+		// The outputs of the input layers and the discrete features of a word are next to each other
+		int mergedSize = forwardLayer.nIn;
+		float[] merged = new float[length * mergedSize];
+		int offset = 0;
+		wordLayer.activate(wordLayer.project(wordVectors, length), length, false, merged, offset, mergedSize);
+		offset += wordLayer.nOut;
+		posLayer.activate(posLayer.lookup(posIds, length), length, false, merged, offset, mergedSize);
+		offset += posLayer.nOut;
+		chunkIOBLayer.activate(chunkIOBLayer.lookup(chunkIOBIds, length), length, false, merged, offset, mergedSize);
+		offset += chunkIOBLayer.nOut;
+		for (int j = 0; j < length; j++) {
+			System.arraycopy(discreteFeatures, j * numDiscreteFeatures, merged, j * mergedSize + offset, numDiscreteFeatures);
+		}
+		// Both directions are added into the same buffer
+		int hiddenSize = forwardLayer.nOut;
+		float[] hidden = new float[length * hiddenSize];
+		forwardLayer.activate(forwardLayer.project(merged, length), length, false, hidden, 0, hiddenSize);
+		backwardLayer.activate(backwardLayer.project(merged, length), length, true, hidden, 0, hiddenSize);
+		return softmaxOutput(hidden, length);
+	}
+
+	private float[] softmaxOutput(float[] hidden, int length) {
+		int numClasses = getNumClasses();
+		int hiddenSize = forwardLayer.nOut;
+		float[] probabilities = new float[length * numClasses];
+		for (int j = 0; j < length; j++) {
+			int out = j * numClasses;
+			System.arraycopy(outputBias.values, 0, probabilities, out, numClasses);
+			for (int k = 0; k < hiddenSize; k++) {
+				axpy(hidden[j * hiddenSize + k], outputWeights.values, k * numClasses, probabilities, out, numClasses);
+			}
+			float max = Float.NEGATIVE_INFINITY;
+			for (int c = 0; c < numClasses; c++) {
+				max = Math.max(max, probabilities[out + c]);
+			}
+			float sum = 0;
+			for (int c = 0; c < numClasses; c++) {
+				float e = (float) Math.exp(probabilities[out + c] - max);
+				probabilities[out + c] = e;
+				sum += e;
+			}
+			for (int c = 0; c < numClasses; c++) {
+				probabilities[out + c] /= sum;
+			}
+		}
+		return probabilities;
+	}
+
+	// y[yOffset, yOffset + n) += a * x[xOffset, xOffset + n)
+	private static void axpy(float a, float[] x, int xOffset, float[] y, int yOffset, int n) {
+		if (a == 0) {
+			return;
+		}
+		for (int i = 0; i < n; i++) {
+			y[yOffset + i] += a * x[xOffset + i];
+		}
+	}
+
+	private static float sigmoid(float x) {
+		return (float) (1 / (1 + Math.exp(-x)));
+	}
+
+	/*
+	 * A GravesLSTM layer with peephole connections, like the one of DL4J: the
+	 * columns of the input weights (nIn x 4 nOut), the recurrent weights (nOut x 4
+	 * nOut + 3) and the bias (4 nOut) are ordered as block input, forget gate,
+	 * output gate and input gate, the last three columns of the recurrent weights
+	 * are the peephole weights of the forget, output and input gate.
+	 */
+	private static final class GravesLSTM {
+
+		private final int nIn;
+		private final int nOut;
+		private final float[] inputWeights;
+		private final float[] recurrentWeights;
+		private final float[] bias;
+
+		private GravesLSTM(Map<String, Weights> weights, String prefix) {
+			Weights w = parameter(weights, prefix + "W");
+			Weights rw = parameter(weights, prefix + "RW");
+			Weights b = parameter(weights, prefix + "b");
+			nIn = w.rows;
+			nOut = rw.rows;
+			if (w.columns != 4 * nOut || rw.columns != 4 * nOut + 3 || b.rows != 1 || b.columns != 4 * nOut) {
+				throw new IllegalArgumentException("The parameters " + prefix + "* are not the parameters of a GravesLSTM");
+			}
+			inputWeights = w.values;
+			recurrentWeights = rw.values;
+			bias = b.values;
+		}
+
+		// The input activations of the gates for dense inputs (nIn values per word)
+		private float[] project(float[] input, int length) {
+			int gates = 4 * nOut;
+			float[] activations = new float[length * gates];
+			for (int j = 0; j < length; j++) {
+				System.arraycopy(bias, 0, activations, j * gates, gates);
+				for (int k = 0; k < nIn; k++) {
+					axpy(input[j * nIn + k], inputWeights, k * gates, activations, j * gates, gates);
+				}
+			}
+			return activations;
+		}
+
+		// The input activations of the gates for one-hot inputs (the index per word)
+		private float[] lookup(int[] ids, int length) {
+			int gates = 4 * nOut;
+			float[] activations = new float[length * gates];
+			for (int j = 0; j < length; j++) {
+				System.arraycopy(bias, 0, activations, j * gates, gates);
+				if (ids[j] >= 0 && ids[j] < nIn) {
+					axpy(1, inputWeights, ids[j] * gates, activations, j * gates, gates);
+				}
+			}
+			return activations;
+		}
+
+		/*
+		 * Runs the layer over the sequence (from the end to the start if reverse is
+		 * set) and adds the output of word j to target[offset + j * stride, ... +
+		 * nOut). The input activations are overwritten.
+		 */
+		private void activate(float[] activations, int length, boolean reverse, float[] target, int offset, int stride) {
+			int gates = 4 * nOut;
+			int recurrentColumns = gates + 3;
+			float[] output = new float[nOut];
+			float[] cell = new float[nOut];
+			for (int s = 0; s < length; s++) {
+				int j = reverse ? length - 1 - s : s;
+				int a = j * gates;
+				for (int k = 0; k < nOut; k++) {
+					axpy(output[k], recurrentWeights, k * recurrentColumns, activations, a, gates);
+				}
+				for (int u = 0; u < nOut; u++) {
+					int peepholes = u * recurrentColumns + gates;
+					float blockInput = (float) Math.tanh(activations[a + u]);
+					float forgetGate = sigmoid(activations[a + nOut + u] + cell[u] * recurrentWeights[peepholes]);
+					float inputGate = sigmoid(activations[a + 3 * nOut + u] + cell[u] * recurrentWeights[peepholes + 2]);
+					cell[u] = forgetGate * cell[u] + inputGate * blockInput;
+					float outputGate = sigmoid(activations[a + 2 * nOut + u] + cell[u] * recurrentWeights[peepholes + 1]);
+					output[u] = outputGate * (float) Math.tanh(cell[u]);
+					target[offset + j * stride + u] += output[u];
+				}
+			}
+		}
+	}
+
+}
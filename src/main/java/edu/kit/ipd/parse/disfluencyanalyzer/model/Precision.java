@@ -0,0 +1,40 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.model;
+
+import java.util.Locale;
+
+/**
+ * The precisions in which the weights of a {@link CompactModel} can be stored.
+ * The network always computes in float32, the weights are converted when the
+ * model is loaded.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public enum Precision {
+
+	/**
+	 * 32 bit floating point numbers, the weights are stored without loss.
+	 */
+	FP32,
+	/**
+	 * 16 bit floating point numbers (IEEE 754 half precision).
+	 */
+	FP16,
+	/**
+	 * 8 bit integers with a float32 scale per row of a weight matrix.
+	 */
+	INT8;
+
+	/**
+	 *
+	 * @param name
+	 *            the name of the precision, case-insensitive (e.g. fp16)
+	 * @return the precision
+	 * @throws IllegalArgumentException
+	 *             if there is no precision with the name
+	 */
+	public static Precision of(String name) {
+		return valueOf(name.trim().toUpperCase(Locale.ROOT));
+	}
+
+}
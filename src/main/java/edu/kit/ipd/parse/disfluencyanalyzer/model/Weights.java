@@ -0,0 +1,24 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.model;
+
+/**
+ * A parameter of the network as matrix of float32 values in row-major order.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+final class Weights {
+
+	final int rows;
+	final int columns;
+	final float[] values;
+
+	Weights(int rows, int columns, float[] values) {
+		if (values.length != rows * columns) {
+			throw new IllegalArgumentException("There must be rows * columns values");
+		}
+		this.rows = rows;
+		this.columns = columns;
+		this.values = values;
+	}
+
+}
@@ -1,20 +1,18 @@
 package edu.kit.ipd.parse.disfluencyanalyzer.util;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
+import edu.kit.ipd.parse.disfluencyanalyzer.DisfluencyTag;
 import edu.kit.ipd.parse.luna.graph.IArc;
 import edu.kit.ipd.parse.luna.graph.IArcType;
 import edu.kit.ipd.parse.luna.graph.IGraph;
 import edu.kit.ipd.parse.luna.graph.INode;
 import edu.kit.ipd.parse.luna.graph.INodeType;
 
-/*
- * TODO: More code cleanup, 
- * change accessing process for the graph (with next arc between the nodes), 
- * add more conditions for checking  whether the graph has changed, 
- * maybe a different search process for corresponding RS-RM blocks ?
- */
-
 /**
  * A utility class that provides some methods for accessing and modifying the
  * PARSE graph.
@@ -25,6 +23,8 @@ import edu.kit.ipd.parse.luna.graph.INodeType;
  */
 public final class GraphUtils {
 
+	private static final String REPAIR = "REPAIR";
+
 	private GraphUtils() {
 	}
 
@@ -51,36 +51,27 @@ public final class GraphUtils {
 	 *         utterance (new utterance or a change in the graph) otherwise false
 	 */
 	public static boolean extractInputFromGraph(IGraph graph, List<INode> tokenList, List<String> posList, List<String> chunkIOBList) {
-		INodeType nodeType = graph.getNodeType("token");
-		boolean hasToPredict = false;
-		if (nodeType != null) {
-			List<INode> tokenNodes = graph.getNodesOfType(nodeType);
-			for (INode token : tokenNodes) {
-				// Check if the tokens contains attribute for the disfluency
-				// tags
-				if (!token.getAttributeNames().contains("disfluencyTag")) {
-					hasToPredict = true;
-				}
-			}
-			if (hasToPredict) {
-				for (INode token : tokenNodes) {
-					tokenList.add(token);
-					posList.add(token.getAttributeValue("pos").toString());
-					chunkIOBList.add(token.getAttributeValue("chunkIOB").toString());
-				}
-			}
-
+		TokenSequence sequence = TokenSequence.fromGraph(graph);
+		boolean hasToPredict = !sequence.isTagged();
+		if (hasToPredict) {
+			tokenList.addAll(sequence.getTokens());
+			posList.addAll(sequence.getPosTags());
+			chunkIOBList.addAll(sequence.getChunkIOBTags());
 		}
 		return hasToPredict;
 	}
 
-	// Implement it better later, graph can be changed !
 	/**
 	 * This method prints the result of the disfluency classification to the graph.
 	 * It adds the attribute "disfluencyTag" to each token (it does not exist
 	 * already). It also creates a "repair" arc that starts at the first word of an
 	 * reparans an ends at the corresponding first word of an reprandum (if it does
 	 * exist).
+	 * <p>
+	 * The graph can already contain the results of a previous classification of
+	 * (a part of) the tokens. Only the tags that changed are written again, repair
+	 * arcs that do not fit to the new tags are deleted and only the missing repair
+	 * arcs are created.
 	 * 
 	 * @param graph
 	 *            the graph where the results are printed to
@@ -92,7 +83,6 @@ public final class GraphUtils {
 	 *            word
 	 */
 	public static void printToGraph(IGraph graph, List<INode> tokenList, List<String> predictions) {
-		// Look for B-RS B-RM pairs
 		INodeType nodeType = graph.getNodeType("token");
 		if (nodeType != null) {
 			if (!nodeType.containsAttribute("disfluencyTag", "String")) {
@@ -100,32 +90,84 @@ public final class GraphUtils {
 			}
 			for (int i = 0; i < tokenList.size(); i++) {
 				INode token = tokenList.get(i);
-				token.setAttributeValue("disfluencyTag", predictions.get(i));
+				if (!predictions.get(i).equals(token.getAttributeValue("disfluencyTag"))) {
+					token.setAttributeValue("disfluencyTag", predictions.get(i));
+				}
 			}
 			if (!graph.hasArcType("disfluency")) {
 				IArcType dfArc = graph.createArcType("disfluency");
 				dfArc.addAttributeToType("String", "value");
 			}
-			for (int g = tokenList.size() - 1; g > 0; g--) {
-				if (tokenList.get(g).getAttributeValue("disfluencyTag") != null) {
-					if (tokenList.get(g).getAttributeValue("disfluencyTag").toString().equals("B-RS")) {
-						// Search (backwards) for the corresponding B-RM
-						for (int t = g - 1; t >= 0; t--) {
-							if (tokenList.get(t).getAttributeValue("disfluencyTag").toString().equals("B-RM")) {
-								IArc repairArc = graph.createArc(tokenList.get(g), tokenList.get(t), graph.getArcType("disfluency"));
-								repairArc.setAttributeValue("value", "REPAIR");
-							}
-							// Abort search if a prior reparans block is found
-							// (no corresponding reparandum)
-							if (tokenList.get(t).getAttributeValue("disfluencyTag").toString().equals("B-RS")
-									|| tokenList.get(t).getAttributeValue("disfluencyTag").toString().equals("I-RS")) {
-								break;
-							}
-						}
+			IArcType dfArcType = graph.getArcType("disfluency");
+			int n = tokenList.size();
+			// The existing repair arcs between the tokens (source index * n + target index)
+			Map<INode, Integer> tokenIndices = new IdentityHashMap<>();
+			for (int i = 0; i < n; i++) {
+				tokenIndices.put(tokenList.get(i), i);
+			}
+			Map<Long, IArc> existingArcs = new HashMap<>();
+			List<IArc> staleArcs = new ArrayList<>();
+			for (int g = 0; g < n; g++) {
+				for (IArc arc : tokenList.get(g).getOutgoingArcsOfType(dfArcType)) {
+					if (!REPAIR.equals(arc.getAttributeValue("value"))) {
+						continue;
+					}
+					Integer t = tokenIndices.get(arc.getTargetNode());
+					if (t == null || existingArcs.put((long) g * n + t, arc) != null) {
+						staleArcs.add(arc);
 					}
 				}
 			}
+			// Look for B-RS B-RM pairs
+			List<int[]> missingArcs = new ArrayList<>();
+			for (int[] pair : repairLinks(predictions)) {
+				// An existing arc is kept
+				if (existingArcs.remove((long) pair[0] * n + pair[1]) == null) {
+					missingArcs.add(pair);
+				}
+			}
+			// The remaining existing arcs do not fit to the tags anymore
+			staleArcs.addAll(existingArcs.values());
+			for (IArc arc : staleArcs) {
+				graph.deleteArc(arc);
+			}
+			for (int[] pair : missingArcs) {
+				IArc repairArc = graph.createArc(tokenList.get(pair[0]), tokenList.get(pair[1]), dfArcType);
+				repairArc.setAttributeValue("value", REPAIR);
+			}
+		}
+	}
+
+	/**
+	 * Links each B-RS to the B-RMs of its reparandum: all B-RMs after the
+	 * previous reparans (B-RS or I-RS) are linked to the B-RS. The tags are
+	 * visited once from the end, the B-RS seen last is the one the next B-RMs
+	 * belong to, until a reparans closes the search.
+	 *
+	 * @param predictions
+	 *            the disfluency tag of each word
+	 * @return the pairs of the index of the B-RS and the index of the B-RM, in
+	 *         descending order of the B-RS and then of the B-RM
+	 */
+	static List<int[]> repairLinks(List<String> predictions) {
+		List<int[]> links = new ArrayList<>();
+		// The B-RS the next B-RMs belong to, -1 if there is none
+		int reparans = -1;
+		for (int i = predictions.size() - 1; i >= 0; i--) {
+			DisfluencyTag tag = DisfluencyTag.getTagObject(predictions.get(i));
+			if (tag == DisfluencyTag.REPARANDUM_BEGIN) {
+				if (reparans >= 0) {
+					links.add(new int[] { reparans, i });
+				}
+			} else if (tag == DisfluencyTag.REPARANS_BEGIN) {
+				reparans = i;
+			} else if (tag == DisfluencyTag.REPARANS_INSIDE) {
+				// Abort search if a prior reparans block is found
+				// (no corresponding reparandum)
+				reparans = -1;
+			}
 		}
+		return links;
 	}
 
 }
@@ -0,0 +1,282 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.kit.ipd.parse.luna.graph.IArc;
+import edu.kit.ipd.parse.luna.graph.IArcType;
+import edu.kit.ipd.parse.luna.graph.IGraph;
+import edu.kit.ipd.parse.luna.graph.INode;
+import edu.kit.ipd.parse.luna.graph.INodeType;
+
+/**
+ * A snapshot of the token sequence of the PARSE graph with the input of the
+ * classifier (word, part of speech tag and chunk IOB tag) of each token. Each
+ * token has a hash of its input and the sequence has a fingerprint of all
+ * tokens, so that two snapshots can be compared to find the tokens that were
+ * changed by other agents. The tokens are in the order of the NEXT relation
+ * arcs of the graph.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public final class TokenSequence {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final String NEXT = "NEXT";
+
+	private final List<INode> tokens;
+	private final List<String> words;
+	private final List<String> posTags;
+	private final List<String> chunkIOBTags;
+	private final long[] tokenHashes;
+	private final long fingerprint;
+	private final boolean tagged;
+
+	/**
+	 *
+	 * @param tokens
+	 *            the token nodes
+	 * @param words
+	 *            the word of each token
+	 * @param posTags
+	 *            the POS tag of each token
+	 * @param chunkIOBTags
+	 *            the chunk IOB tag of each token
+	 * @param tagged
+	 *            whether all tokens already have a disfluency tag
+	 */
+	public TokenSequence(List<INode> tokens, List<String> words, List<String> posTags, List<String> chunkIOBTags, boolean tagged) {
+		this(tagged, new ArrayList<>(tokens), new ArrayList<>(words), new ArrayList<>(posTags), new ArrayList<>(chunkIOBTags));
+	}
+
+	// Takes the given lists without copying them
+	private TokenSequence(boolean tagged, List<INode> tokens, List<String> words, List<String> posTags, List<String> chunkIOBTags) {
+		if (tokens.size() != words.size() || words.size() != posTags.size() || words.size() != chunkIOBTags.size()) {
+			throw new IllegalArgumentException("There must be exactly one word, POS tag and chunk IOB tag per token");
+		}
+		this.tokens = Collections.unmodifiableList(tokens);
+		this.words = Collections.unmodifiableList(words);
+		this.posTags = Collections.unmodifiableList(posTags);
+		this.chunkIOBTags = Collections.unmodifiableList(chunkIOBTags);
+		this.tagged = tagged;
+		tokenHashes = new long[words.size()];
+		long h = FNV_OFFSET;
+		for (int i = 0; i < tokenHashes.length; i++) {
+			tokenHashes[i] = hash(hash(hash(FNV_OFFSET, words.get(i)), posTags.get(i)), chunkIOBTags.get(i));
+			h = (h ^ tokenHashes[i]) * FNV_PRIME;
+		}
+		fingerprint = h;
+	}
+
+	/**
+	 * Extracts the token sequence from the given graph. The tokens are read in a
+	 * single walk along the NEXT relation arcs, starting at the first token. If
+	 * the arcs do not connect all tokens to one sequence, the tokens are read in
+	 * the order of the nodes of the graph.
+	 *
+	 * @param graph
+	 *            the PARSE graph
+	 * @return the tokens of the graph, an empty sequence if the graph has no
+	 *         tokens
+	 */
+	public static TokenSequence fromGraph(IGraph graph) {
+		INodeType nodeType = graph.getNodeType("token");
+		if (nodeType == null) {
+			return wrap(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), true);
+		}
+		List<INode> nodes = graph.getNodesOfType(nodeType);
+		List<INode> tokens = inTokenOrder(graph, nodeType, nodes);
+		if (tokens == null) {
+			tokens = new ArrayList<>(nodes);
+		}
+		int n = tokens.size();
+		List<String> words = new ArrayList<>(n);
+		List<String> posTags = new ArrayList<>(n);
+		List<String> chunkIOBTags = new ArrayList<>(n);
+		boolean tagged = true;
+		for (INode token : tokens) {
+			words.add(token.getAttributeValue("value").toString());
+			posTags.add(token.getAttributeValue("pos").toString());
+			chunkIOBTags.add(token.getAttributeValue("chunkIOB").toString());
+			if (token.getAttributeValue("disfluencyTag") == null) {
+				tagged = false;
+			}
+		}
+		return wrap(tokens, words, posTags, chunkIOBTags, tagged);
+	}
+
+	/*
+	 * Creates a sequence of lists that are not used anywhere else, they are not
+	 * copied
+	 */
+	private static TokenSequence wrap(List<INode> tokens, List<String> words, List<String> posTags, List<String> chunkIOBTags,
+			boolean tagged) {
+		return new TokenSequence(tagged, tokens, words, posTags, chunkIOBTags);
+	}
+
+	/*
+	 * Follows the NEXT arcs from the first token. The first node of the graph is
+	 * usually the first token, otherwise the walk goes back to it first. Returns
+	 * null if the arcs do not form one sequence of all tokens.
+	 */
+	private static List<INode> inTokenOrder(IGraph graph, INodeType nodeType, List<INode> nodes) {
+		if (nodes.isEmpty() || !graph.hasArcType("relation")) {
+			return null;
+		}
+		IArcType relationType = graph.getArcType("relation");
+		int n = nodes.size();
+		INode first = nodes.get(0);
+		INode previous;
+		int steps = 0;
+		while ((previous = neighbour(first, relationType, nodeType, false)) != null) {
+			first = previous;
+			// A cycle
+			if (++steps > n) {
+				return null;
+			}
+		}
+		List<INode> ordered = new ArrayList<>(n);
+		for (INode token = first; token != null; token = neighbour(token, relationType, nodeType, true)) {
+			if (ordered.size() == n) {
+				return null;
+			}
+			ordered.add(token);
+		}
+		return ordered.size() == n ? ordered : null;
+	}
+
+	private static INode neighbour(INode token, IArcType relationType, INodeType nodeType, boolean next) {
+		for (IArc arc : next ? token.getOutgoingArcsOfType(relationType) : token.getIncomingArcsOfType(relationType)) {
+			INode neighbour = next ? arc.getTargetNode() : arc.getSourceNode();
+			if (NEXT.equals(arc.getAttributeValue("value")) && neighbour.getType().equals(nodeType)) {
+				return neighbour;
+			}
+		}
+		return null;
+	}
+
+	// FNV-1a over the characters of the string and a separator
+	private static long hash(long h, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			h = (h ^ value.charAt(i)) * FNV_PRIME;
+		}
+		return (h ^ 0xFFFF) * FNV_PRIME;
+	}
+
+	/**
+	 *
+	 * @return the number of tokens
+	 */
+	public int size() {
+		return tokenHashes.length;
+	}
+
+	/**
+	 *
+	 * @return the token nodes
+	 */
+	public List<INode> getTokens() {
+		return tokens;
+	}
+
+	/**
+	 *
+	 * @return the word of each token
+	 */
+	public List<String> getWords() {
+		return words;
+	}
+
+	/**
+	 *
+	 * @return the POS tag of each token
+	 */
+	public List<String> getPosTags() {
+		return posTags;
+	}
+
+	/**
+	 *
+	 * @return the chunk IOB tag of each token
+	 */
+	public List<String> getChunkIOBTags() {
+		return chunkIOBTags;
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            the position of the token
+	 * @return the hash of the word, the POS tag and the chunk IOB tag of the token
+	 */
+	public long tokenHash(int i) {
+		return tokenHashes[i];
+	}
+
+	/**
+	 *
+	 * @return the fingerprint of the input of all tokens
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 *
+	 * @return true if all tokens had a disfluency tag when the snapshot was taken
+	 */
+	public boolean isTagged() {
+		return tagged;
+	}
+
+	/**
+	 * Checks whether the input of the tokens of both sequences is the same.
+	 *
+	 * @param other
+	 *            the other sequence
+	 * @return true if both sequences have the same input
+	 */
+	public boolean hasSameInput(TokenSequence other) {
+		return fingerprint == other.fingerprint && commonPrefixLength(other) == size() && size() == other.size();
+	}
+
+	/**
+	 * Returns the number of leading tokens with the same input in both sequences.
+	 *
+	 * @param other
+	 *            the other sequence
+	 * @return the length of the common prefix
+	 */
+	public int commonPrefixLength(TokenSequence other) {
+		int length = Math.min(size(), other.size());
+		int i = 0;
+		while (i < length && tokenHashes[i] == other.tokenHashes[i] && words.get(i).equals(other.words.get(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Returns the number of trailing tokens with the same input in both
+	 * sequences. The suffix does not overlap with the given prefix.
+	 *
+	 * @param other
+	 *            the other sequence
+	 * @param prefixLength
+	 *            the length of the common prefix
+	 * @return the length of the common suffix
+	 */
+	public int commonSuffixLength(TokenSequence other, int prefixLength) {
+		int length = Math.min(size(), other.size()) - prefixLength;
+		int i = 0;
+		while (i < length && tokenHashes[size() - 1 - i] == other.tokenHashes[other.size() - 1 - i]
+				&& words.get(size() - 1 - i).equals(other.words.get(other.size() - 1 - i))) {
+			i++;
+		}
+		return i;
+	}
+
+}
@@ -0,0 +1,117 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.BinaryWordVectorConverter;
+
+/**
+ * Test data for the tests that run the trained network of the classifier: a
+ * small binary word vector table with random vectors of the size of the GloVe
+ * vectors of the model and random utterances over its vocabulary with
+ * repetitions and filled pauses.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+final class ClassifierTestData {
+
+	static final List<String> VOCABULARY = Arrays.asList("put", "the", "green", "cup", "in", "on", "dishwasher", "go", "to", "fridge", "i",
+			"mean", "sorry", "open", "it", "okay", "and", "then", "take", "a", "red", "table", "dish", "robot", "please", "bring", "me", "plate",
+			"well", "so", "turn", "left", "right");
+	// The filled pauses are not in the word vector table
+	private static final List<String> FILLED_PAUSES = Arrays.asList("uh", "um", "er");
+	private static final int VECTOR_SIZE = 50;
+
+	private ClassifierTestData() {
+	}
+
+	/**
+	 * Writes a binary word vector table with random vectors.
+	 *
+	 * @param folder
+	 *            the folder of the table
+	 * @param words
+	 *            the words of the table
+	 * @return the path of the table
+	 * @throws IOException
+	 *             if the table cannot be written
+	 */
+	static String wordVectors(File folder, List<String> words) throws IOException {
+		Random random = new Random(7);
+		List<String> lines = new ArrayList<>(words.size());
+		for (String word : words) {
+			StringBuilder line = new StringBuilder(word);
+			for (int i = 0; i < VECTOR_SIZE; i++) {
+				line.append(' ').append((float) random.nextGaussian());
+			}
+			lines.add(line.toString());
+		}
+		File text = File.createTempFile("vectors", ".txt", folder);
+		Files.write(text.toPath(), lines, StandardCharsets.UTF_8);
+		File binary = new File(folder, text.getName().replace(".txt", ".bin"));
+		BinaryWordVectorConverter.convert(text, binary);
+		return binary.getPath();
+	}
+
+	/**
+	 * Creates a classifier with the model of the classpath and a word vector
+	 * table of the vocabulary.
+	 *
+	 * @param folder
+	 *            the folder of the word vector table
+	 * @param maxReplicas
+	 *            the maximal number of network replicas
+	 * @return the classifier
+	 * @throws IOException
+	 *             if the word vector table cannot be written
+	 */
+	static LSTMClassifier classifier(File folder, int maxReplicas) throws IOException {
+		return new LSTMClassifier(LSTMClassifier.defaultModelPath(), wordVectors(folder, VOCABULARY), maxReplicas);
+	}
+
+	/**
+	 * Creates random utterances of 1 to 40 words. A word repeats one of the
+	 * previous words or is a filled pause now and then, like in disfluent
+	 * utterances.
+	 *
+	 * @param count
+	 *            the number of utterances
+	 * @param seed
+	 *            the seed of the random words and tags
+	 * @return the utterances
+	 */
+	static List<Utterance> utterances(int count, long seed) {
+		Random random = new Random(seed);
+		List<String> posTags = LSTMClassifier.definedPosTags();
+		List<String> chunkIOBTags = LSTMClassifier.definedChunkIOBTags();
+		List<Utterance> utterances = new ArrayList<>(count);
+		for (int u = 0; u < count; u++) {
+			int length = 1 + random.nextInt(random.nextInt(5) == 0 ? 40 : 12);
+			List<String> words = new ArrayList<>(length);
+			List<String> pos = new ArrayList<>(length);
+			List<String> chunkIOB = new ArrayList<>(length);
+			for (int i = 0; i < length; i++) {
+				int kind = random.nextInt(8);
+				if (kind == 0) {
+					words.add(FILLED_PAUSES.get(random.nextInt(FILLED_PAUSES.size())));
+				} else if (kind == 1 && i > 0) {
+					words.add(words.get(i - 1 - random.nextInt(Math.min(i, 3))));
+				} else {
+					words.add(VOCABULARY.get(random.nextInt(VOCABULARY.size())));
+				}
+				pos.add(posTags.get(random.nextInt(posTags.size())));
+				chunkIOB.add(chunkIOBTags.get(random.nextInt(chunkIOBTags.size())));
+			}
+			utterances.add(new Utterance(words, pos, chunkIOB));
+		}
+		return utterances;
+	}
+
+}
@@ -0,0 +1,124 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import static edu.kit.ipd.parse.disfluencyanalyzer.ConstrainedDecoder.NUM_TAGS;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.B_RM;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.B_RS;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.EE;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.FP;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.I_RM;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.I_RS;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.O_DF;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class ConstrainedDecoderTest {
+
+	private static final ConstrainedDecoder DECODER = new ConstrainedDecoder();
+
+	@Test
+	public void validityTest() {
+		Assert.assertTrue(ConstrainedDecoder.isValid(new int[] { O_DF, B_RM, I_RM, FP, EE, B_RS, I_RS, O_DF }));
+		Assert.assertTrue(ConstrainedDecoder.isValid(new int[] { B_RM, B_RM, B_RS }));
+		// I-RM without B-RM
+		Assert.assertFalse(ConstrainedDecoder.isValid(new int[] { O_DF, I_RM, B_RS }));
+		// B-RM without B-RS
+		Assert.assertFalse(ConstrainedDecoder.isValid(new int[] { B_RM, I_RM, O_DF }));
+		Assert.assertFalse(ConstrainedDecoder.isValid(new int[] { O_DF, B_RM }));
+		// I-RS without B-RS
+		Assert.assertFalse(ConstrainedDecoder.isValid(new int[] { O_DF, I_RS }));
+		Assert.assertFalse(ConstrainedDecoder.isValid(new int[] { B_RM, B_RS, FP, I_RS }));
+	}
+
+	@Test
+	public void mostProbableValidSequenceTest() {
+		Random random = new Random(4711);
+		for (int n = 0; n < 300; n++) {
+			int length = 1 + random.nextInt(5);
+			float[] probabilities = randomProbabilities(random, length);
+			int[] tags = DECODER.decode(probabilities, 0, 1, NUM_TAGS, length);
+			Assert.assertTrue(ConstrainedDecoder.isValid(tags));
+			Assert.assertEquals(bestValidScore(probabilities, length), score(probabilities, tags), 1e-4);
+		}
+	}
+
+	@Test
+	public void stridedLongSequencesTest() {
+		Random random = new Random(42);
+		for (int n = 0; n < 100; n++) {
+			int length = 1 + random.nextInt(200);
+			float[] probabilities = randomProbabilities(random, length);
+			// the same probabilities as the second of three sequences in 'f' order
+			float[] strided = new float[3 * probabilities.length];
+			for (int j = 0; j < length; j++) {
+				for (int c = 0; c < NUM_TAGS; c++) {
+					strided[1 + c * 3 + j * 3 * NUM_TAGS] = probabilities[c + j * NUM_TAGS];
+				}
+			}
+			int[] tags = DECODER.decode(probabilities, 0, 1, NUM_TAGS, length);
+			Assert.assertTrue(ConstrainedDecoder.isValid(tags));
+			Assert.assertArrayEquals(tags, DECODER.decode(strided, 1, 3, 3 * NUM_TAGS, length));
+		}
+	}
+
+	@Test
+	public void validArgmaxTest() {
+		int[] expected = { O_DF, B_RM, FP, B_RS, I_RS, O_DF };
+		float[] probabilities = new float[expected.length * NUM_TAGS];
+		for (int j = 0; j < expected.length; j++) {
+			for (int c = 0; c < NUM_TAGS; c++) {
+				probabilities[c + j * NUM_TAGS] = c == expected[j] ? 0.51f : 0.07f;
+			}
+		}
+		Assert.assertArrayEquals(expected, DECODER.decode(probabilities, 0, 1, NUM_TAGS, expected.length));
+	}
+
+	private static float[] randomProbabilities(Random random, int length) {
+		float[] probabilities = new float[length * NUM_TAGS];
+		for (int j = 0; j < length; j++) {
+			float sum = 0;
+			for (int c = 0; c < NUM_TAGS; c++) {
+				probabilities[c + j * NUM_TAGS] = random.nextFloat();
+				sum += probabilities[c + j * NUM_TAGS];
+			}
+			for (int c = 0; c < NUM_TAGS; c++) {
+				probabilities[c + j * NUM_TAGS] /= sum;
+			}
+		}
+		return probabilities;
+	}
+
+	private static double score(float[] probabilities, int[] tags) {
+		double score = 0;
+		for (int j = 0; j < tags.length; j++) {
+			score += Math.log(probabilities[tags[j] + j * NUM_TAGS]);
+		}
+		return score;
+	}
+
+	// Enumerates all tag sequences
+	private static double bestValidScore(float[] probabilities, int length) {
+		double best = Double.NEGATIVE_INFINITY;
+		int[] tags = new int[length];
+		int combinations = (int) Math.pow(NUM_TAGS, length);
+		for (int k = 0; k < combinations; k++) {
+			int rest = k;
+			for (int j = 0; j < length; j++) {
+				tags[j] = rest % NUM_TAGS;
+				rest /= NUM_TAGS;
+			}
+			if (ConstrainedDecoder.isValid(tags)) {
+				best = Math.max(best, score(probabilities, tags));
+			}
+		}
+		return best;
+	}
+
+}
@@ -0,0 +1,139 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.WordVectorLookup;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.InternedUtterance;
+
+/**
+ * Tests the labelled sequences and the length bucketing of the iterator.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class DisfluencyDataSetIteratorTest {
+
+	private static final List<String> POS_TAGS = Arrays.asList("NN", "VB");
+	private static final List<String> CHUNK_IOB_TAGS = Arrays.asList("B-NP", "I-NP");
+	private static final List<String> DF_TAGS = Arrays.asList("O-DF", "B-RM");
+
+	@Test
+	public void lengthBucketingTest() {
+		DisfluencyDataSetIterator iterator = new DisfluencyDataSetIterator(2, 100, new NoWordVectors(), POS_TAGS, CHUNK_IOB_TAGS, DF_TAGS);
+		// the sequences of the same length differ in the position of their B-RM label
+		int[] lengths = { 3, 5, 3, 5, 3, 2, 5 };
+		int[] labelPositions = { 0, 0, 1, 1, 2, 0, 2 };
+		List<String> expectedSequences = new ArrayList<>();
+		for (int i = 0; i < lengths.length; i++) {
+			iterator.addLabelledSequence(sequence(lengths[i]), labels(lengths[i], labelPositions[i]));
+			expectedSequences.add(lengths[i] + ":" + labelPositions[i]);
+		}
+		Collections.sort(expectedSequences);
+		iterator.enableLengthBucketing(1);
+		Assert.assertEquals(7, iterator.numSequences());
+		Assert.assertEquals(26, iterator.numWords());
+		Set<Set<Integer>> pairsOfLengthThree = new HashSet<>();
+		for (int epoch = 0; epoch < 10; epoch++) {
+			iterator.reset();
+			List<String> sequences = new ArrayList<>();
+			int batches = 0;
+			while (iterator.hasNext()) {
+				MultiDataSet batch = iterator.next();
+				INDArray mask = batch.getLabelsMaskArray(0);
+				// a batch only contains sequences of the same length, nothing is padded
+				long length = mask.size(1);
+				Assert.assertEquals(mask.size(0) * length, mask.sumNumber().longValue());
+				Set<Integer> positions = new HashSet<>();
+				for (int i = 0; i < mask.size(0); i++) {
+					int position = labelPosition(batch.getLabels(0), i, length);
+					positions.add(position);
+					sequences.add(length + ":" + position);
+				}
+				if (length == 3 && positions.size() == 2) {
+					pairsOfLengthThree.add(positions);
+				}
+				batches++;
+			}
+			// the batches (2), (3, 3), (3), (5, 5), (5) cover each sequence once
+			Assert.assertEquals(5, batches);
+			Collections.sort(sequences);
+			Assert.assertEquals(expectedSequences, sequences);
+		}
+		// the sequences of the same length are shuffled before they are cut into batches
+		Assert.assertTrue(pairsOfLengthThree.size() > 1);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void mixedSequencesTest() {
+		DisfluencyDataSetIterator iterator = new DisfluencyDataSetIterator(2, 100, new NoWordVectors(), POS_TAGS, CHUNK_IOB_TAGS, DF_TAGS);
+		iterator.addLabelledSequence(sequence(2), labels(2, 0));
+		iterator.addInputSequence(sequence(2));
+	}
+
+	private static InternedUtterance sequence(int length) {
+		List<String> words = new ArrayList<>();
+		List<Integer> posIds = new ArrayList<>();
+		List<Integer> chunkIOBIds = new ArrayList<>();
+		for (int j = 0; j < length; j++) {
+			words.add("w" + j);
+			posIds.add(j % 2);
+			chunkIOBIds.add(0);
+		}
+		return InternedUtterance.of(words, posIds, chunkIOBIds);
+	}
+
+	private static int[] labels(int length, int position) {
+		int[] labels = new int[length];
+		labels[position] = 1;
+		return labels;
+	}
+
+	// The time step of the B-RM label of the given sequence of the batch
+	private static int labelPosition(INDArray labels, int sequence, long length) {
+		for (int j = 0; j < length; j++) {
+			if (labels.getDouble(sequence, 1, j) == 1.0) {
+				return j;
+			}
+		}
+		return -1;
+	}
+
+	private static final class NoWordVectors implements WordVectorLookup {
+
+		@Override
+		public boolean hasWord(String word) {
+			return false;
+		}
+
+		@Override
+		public int vectorSize() {
+			return 3;
+		}
+
+		@Override
+		public double[] getWordVector(String word) {
+			return null;
+		}
+
+		@Override
+		public INDArray getWordVectorMatrix(String word) {
+			return null;
+		}
+
+		@Override
+		public boolean copyWordVector(String word, float[] target, int offset, int stride) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import static edu.kit.ipd.parse.disfluencyanalyzer.DisfluencyTag.DISFLUENCY_OUTSIDE;
+import static edu.kit.ipd.parse.disfluencyanalyzer.DisfluencyTag.FILLED_PAUSE;
+import static edu.kit.ipd.parse.disfluencyanalyzer.DisfluencyTag.REPARANDUM_BEGIN;
+import static edu.kit.ipd.parse.disfluencyanalyzer.DisfluencyTag.REPARANS_BEGIN;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class DisfluencyEvaluatorTest {
+
+	@Test
+	public void reportTest() {
+		DisfluencyEvaluator.Report report = new DisfluencyEvaluator.Report();
+		report.add(Arrays.asList(REPARANDUM_BEGIN, REPARANS_BEGIN, DISFLUENCY_OUTSIDE, DISFLUENCY_OUTSIDE),
+				Arrays.asList("B-RM", "O-DF", "O-DF", "B-RS"));
+		report.add(Arrays.asList(FILLED_PAUSE, REPARANDUM_BEGIN), Arrays.asList("FP", "O-DF"));
+
+		Assert.assertEquals(6, report.getTokens());
+		Assert.assertEquals(0.5, report.accuracy(), 1e-9);
+		Assert.assertEquals(1.0, report.precision(REPARANDUM_BEGIN), 1e-9);
+		Assert.assertEquals(0.5, report.recall(REPARANDUM_BEGIN), 1e-9);
+		Assert.assertEquals(2.0 / 3, report.f1(REPARANDUM_BEGIN), 1e-9);
+		Assert.assertEquals(0.0, report.f1(REPARANS_BEGIN), 1e-9);
+		Assert.assertEquals(1.0 / 3, report.precision(DISFLUENCY_OUTSIDE), 1e-9);
+		Assert.assertEquals(0.5, report.recall(DISFLUENCY_OUTSIDE), 1e-9);
+		Assert.assertEquals(1.0, report.f1(FILLED_PAUSE), 1e-9);
+		// only the tags that occur in the corpus
+		Assert.assertEquals((2.0 / 3 + 0 + 0.4 + 1) / 4, report.macroF1(), 1e-9);
+		Assert.assertEquals(0, report.support(DisfluencyTag.DISCOURSE_MARKER));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wrongLengthTest() {
+		new DisfluencyEvaluator.Report().add(Arrays.asList(DISFLUENCY_OUTSIDE), Arrays.asList("O-DF", "O-DF"));
+	}
+
+}
@@ -0,0 +1,98 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.util.ModelSerializer;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.dataset.api.MultiDataSet;
+import org.nd4j.linalg.indexing.NDArrayIndex;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.MappedWordVectors;
+
+/**
+ * Tests the preparation of the training data of a corpus with filled pauses.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class DisfluencyTrainerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void iteratorTest() throws IOException {
+		File file = folder.newFile("corpus.txt");
+		Files.write(file.toPath(), Arrays.asList("go/VB/B-VP/B-RM uh/UH/O/FP go/VB/B-VP/B-RS to/TO/B-PP/O-DF", "uh/UH/O/FP um/UH/O/FP",
+				"um/UH/O/FP open/VB/B-VP/O-DF it/PRP/B-NP/EE er/UH/O/FP"), StandardCharsets.UTF_8);
+		TaggedCorpus corpus = TaggedCorpus.read(file);
+		String wordVectorsPath = ClassifierTestData.wordVectors(folder.getRoot(), ClassifierTestData.VOCABULARY);
+		MappedWordVectors wordVectors = MappedWordVectors.open(new File(wordVectorsPath));
+		DisfluencyDataSetIterator iterator = DisfluencyTrainer.iterator(corpus, wordVectors, 10);
+
+		// The utterance of filled pauses only is dropped, the other filled pauses are removed
+		Assert.assertEquals(2, iterator.numSequences());
+		Assert.assertEquals(5, iterator.numWords());
+		MultiDataSet batch = iterator.next();
+		Assert.assertFalse(iterator.hasNext());
+		INDArray words = batch.getFeatures(0);
+		INDArray labels = batch.getLabels(0);
+		INDArray labelsMask = batch.getLabelsMaskArray(0);
+		Assert.assertArrayEquals(new int[] { 2, 8, 3 }, labels.shape());
+		List<List<String>> expectedWords = Arrays.asList(Arrays.asList("go", "go", "to"), Arrays.asList("open", "it"));
+		List<List<DisfluencyTag>> expectedTags = Arrays.asList(
+				Arrays.asList(DisfluencyTag.REPARANDUM_BEGIN, DisfluencyTag.REPARANS_BEGIN, DisfluencyTag.DISFLUENCY_OUTSIDE),
+				Arrays.asList(DisfluencyTag.DISFLUENCY_OUTSIDE, DisfluencyTag.EXPLICIT_EDITING_TERM));
+		for (int i = 0; i < expectedWords.size(); i++) {
+			for (int j = 0; j < 3; j++) {
+				if (j >= expectedWords.get(i).size()) {
+					Assert.assertEquals(0.0, labelsMask.getDouble(i, j), 0.0);
+					// A padding position of the shorter utterance
+					Assert.assertEquals(0.0, labels.get(NDArrayIndex.point(i), NDArrayIndex.all(), NDArrayIndex.point(j)).sumNumber().doubleValue(),
+							0.0);
+					continue;
+				}
+				Assert.assertEquals(1.0, labelsMask.getDouble(i, j), 0.0);
+				// The one-hot label is the tag of the word at the same time step
+				for (int c = 0; c < 8; c++) {
+					Assert.assertEquals(c == expectedTags.get(i).get(j).ordinal() ? 1.0 : 0.0, labels.getDouble(i, c, j), 0.0);
+				}
+				double[] vector = wordVectors.getWordVector(expectedWords.get(i).get(j));
+				for (int k = 0; k < vector.length; k++) {
+					Assert.assertEquals(vector[k], words.getDouble(i, k, j), 1e-6);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void evaluateTest() throws IOException, InterruptedException {
+		File file = folder.newFile("eval.txt");
+		Files.write(file.toPath(), Arrays.asList("go/VB/B-VP/B-RM uh/UH/O/FP go/VB/B-VP/B-RS to/TO/B-PP/O-DF",
+				"open/VB/B-VP/O-DF the/DT/B-NP/O-DF fridge/NN/I-NP/O-DF"), StandardCharsets.UTF_8);
+		TaggedCorpus corpus = TaggedCorpus.read(file);
+		String wordVectorsPath = ClassifierTestData.wordVectors(folder.getRoot(), ClassifierTestData.VOCABULARY);
+		DisfluencyEvaluator.Report expected;
+		try (LSTMClassifier classifier = new LSTMClassifier(LSTMClassifier.defaultModelPath(), wordVectorsPath, 1)) {
+			expected = DisfluencyEvaluator.evaluate(classifier, corpus, 1);
+		}
+		// The network is evaluated like the classifier of the same model
+		ComputationGraph net = ModelSerializer.restoreComputationGraph(LSTMClassifier.defaultModelPath(), false);
+		DisfluencyEvaluator.Report actual = DisfluencyTrainer.evaluate(net, corpus, wordVectorsPath);
+		Assert.assertTrue(actual.getTokens() > 0);
+		Assert.assertEquals(expected.getTokens(), actual.getTokens());
+		Assert.assertEquals(expected.accuracy(), actual.accuracy(), 0.0);
+		Assert.assertEquals(expected.macroF1(), actual.macroF1(), 0.0);
+	}
+
+}
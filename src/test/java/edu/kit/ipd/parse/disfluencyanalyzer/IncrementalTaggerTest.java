@@ -0,0 +1,185 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.util.TokenSequence;
+import edu.kit.ipd.parse.luna.graph.INode;
+
+/**
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class IncrementalTaggerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private List<Integer> taggedLengths;
+	private IncrementalTagger tagger;
+
+	@Before
+	public void setUp() {
+		taggedLengths = new ArrayList<>();
+		// The words w0, w1, ... are fluent, the other words are tagged with their upper case form
+		tagger = new IncrementalTagger((words, posTags, chunkIOBTags) -> {
+			taggedLengths.add(words.size());
+			return tags(words);
+		});
+	}
+
+	private static TokenSequence sequence(List<String> words) {
+		List<String> posTags = Collections.nCopies(words.size(), "NN");
+		List<String> chunkIOBTags = Collections.nCopies(words.size(), "O");
+		return sequence(words, posTags, chunkIOBTags);
+	}
+
+	private static TokenSequence sequence(List<String> words, List<String> posTags, List<String> chunkIOBTags) {
+		return new TokenSequence(Collections.nCopies(words.size(), (INode) null), words, posTags, chunkIOBTags, false);
+	}
+
+	private static List<String> words(int n) {
+		List<String> words = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			words.add("w" + i);
+		}
+		return words;
+	}
+
+	private static List<String> tags(List<String> words) {
+		List<String> tags = new ArrayList<>();
+		for (String word : words) {
+			tags.add(word.startsWith("w") ? "O-DF" : word.toUpperCase());
+		}
+		return tags;
+	}
+
+	@Test
+	public void unchangedTest() {
+		List<String> words = words(10);
+		Assert.assertEquals(tags(words), tagger.tag(sequence(words)));
+		Assert.assertTrue(tagger.isUnchanged(sequence(words(10))));
+		Assert.assertEquals(tags(words), tagger.tag(sequence(words(10))));
+		Assert.assertEquals(1, taggedLengths.size());
+	}
+
+	@Test
+	public void windowTest() {
+		List<String> words = words(100);
+		tagger.tag(sequence(words));
+		// replace one word and insert two words in the middle
+		words.set(50, "changed");
+		words.add(52, "new");
+		words.add(52, "new");
+		Assert.assertEquals(tags(words), tagger.tag(sequence(words)));
+		// tokens 50 to 53 changed
+		Assert.assertEquals(35, tagger.getRetaggedFrom());
+		Assert.assertEquals(69, tagger.getRetaggedTo());
+		Assert.assertEquals(Integer.valueOf(64), taggedLengths.get(1));
+		// removed at the start
+		words.remove(0);
+		Assert.assertEquals(tags(words), tagger.tag(sequence(words)));
+		Assert.assertEquals(0, tagger.getRetaggedFrom());
+		Assert.assertEquals(15, tagger.getRetaggedTo());
+		Assert.assertEquals(Integer.valueOf(30), taggedLengths.get(2));
+	}
+
+	@Test
+	public void smallSequenceTest() {
+		List<String> words = words(20);
+		tagger.tag(sequence(words));
+		words.set(10, "changed");
+		Assert.assertEquals(tags(words), tagger.tag(sequence(words)));
+		// the window covers the whole sequence
+		Assert.assertEquals(Integer.valueOf(20), taggedLengths.get(1));
+	}
+
+	@Test
+	public void disfluentBorderTest() {
+		List<String> words = words(100);
+		words.set(34, "B-RM");
+		words.set(76, "EE");
+		tagger.tag(sequence(words));
+		// the re-tagged tokens would start at 35, right after a disfluent tag
+		words.set(50, "changed");
+		Assert.assertEquals(tags(words), tagger.tag(sequence(words)));
+		Assert.assertEquals(0, tagger.getRetaggedFrom());
+		Assert.assertEquals(66, tagger.getRetaggedTo());
+		Assert.assertEquals(Integer.valueOf(81), taggedLengths.get(taggedLengths.size() - 1));
+		// the re-tagged tokens would end at 76, a disfluent tag
+		words.set(60, "changed");
+		Assert.assertEquals(tags(words), tagger.tag(sequence(words)));
+		Assert.assertEquals(45, tagger.getRetaggedFrom());
+		Assert.assertEquals(100, tagger.getRetaggedTo());
+		Assert.assertEquals(Integer.valueOf(70), taggedLengths.get(taggedLengths.size() - 1));
+		Assert.assertEquals(5, taggedLengths.size());
+	}
+
+	@Test
+	public void classifierAgreementTest() throws IOException {
+		Random random = new Random(42);
+		List<Utterance> parts = ClassifierTestData.utterances(400, 42);
+		long tokens = 0;
+		long differences = 0;
+		long retagged = 0;
+		try (LSTMClassifier classifier = ClassifierTestData.classifier(folder.getRoot(), 1)) {
+			for (int s = 0; s < 10; s++) {
+				// Utterances of about 100 words, changed by an edit at a random position
+				List<String> words = new ArrayList<>();
+				List<String> posTags = new ArrayList<>();
+				List<String> chunkIOBTags = new ArrayList<>();
+				while (words.size() < 100) {
+					Utterance part = parts.get(random.nextInt(parts.size()));
+					words.addAll(part.getWords());
+					posTags.addAll(part.getPosTags());
+					chunkIOBTags.addAll(part.getChunkIOBTags());
+				}
+				IncrementalTagger incrementalTagger = new IncrementalTagger(classifier::tagInputSequenceRaw);
+				incrementalTagger.tag(sequence(words, posTags, chunkIOBTags));
+				for (int edit = 0; edit < 10; edit++) {
+					Utterance part = parts.get(random.nextInt(parts.size()));
+					int position = random.nextInt(words.size());
+					int k = random.nextInt(part.size());
+					switch (random.nextInt(3)) {
+					case 0:
+						words.set(position, part.getWords().get(k));
+						break;
+					case 1:
+						words.add(position, part.getWords().get(k));
+						posTags.add(position, part.getPosTags().get(k));
+						chunkIOBTags.add(position, part.getChunkIOBTags().get(k));
+						break;
+					default:
+						words.remove(position);
+						posTags.remove(position);
+						chunkIOBTags.remove(position);
+						break;
+					}
+					List<String> actual = incrementalTagger.tag(sequence(words, posTags, chunkIOBTags));
+					List<String> expected = classifier.tagInputSequenceRaw(words, posTags, chunkIOBTags);
+					for (int i = 0; i < expected.size(); i++) {
+						if (!expected.get(i).equals(actual.get(i))) {
+							differences++;
+						}
+					}
+					tokens += expected.size();
+					retagged += incrementalTagger.getRetaggedTo() - incrementalTagger.getRetaggedFrom();
+				}
+			}
+		}
+		// Only relations between words farther apart than the context change tags
+		Assert.assertTrue(differences + " of " + tokens + " tags differ", differences * 100 <= tokens);
+		Assert.assertTrue(retagged < tokens);
+	}
+
+}
@@ -0,0 +1,216 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.metrics.DisfluencyMetrics;
+import edu.kit.ipd.parse.disfluencyanalyzer.metrics.Stage;
+
+/**
+ * Tests the classifier with the trained network of the classpath and the word
+ * vectors of {@link ClassifierTestData}.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class LSTMClassifierTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void warmUpTest() throws IOException {
+		// None of the words of the warm-up utterances is in the word vector table
+		String wordVectors = ClassifierTestData.wordVectors(folder.getRoot(), Arrays.asList("robot", "kitchen"));
+		try (LSTMClassifier classifier = new LSTMClassifier(LSTMClassifier.defaultModelPath(), wordVectors, 2)) {
+			Assert.assertEquals(0, classifier.getCreatedReplicas());
+			DisfluencyMetrics metrics = DisfluencyMetrics.getInstance();
+			long utterances = metrics.getUtterances();
+			long inferences = metrics.getStage(Stage.INFERENCE).getCount();
+			classifier.warmUp();
+			// One replica was created and used for all warm-up utterances
+			Assert.assertEquals(1, classifier.getCreatedReplicas());
+			// The warm-up is not recorded in the metrics, the tagging afterwards is
+			Assert.assertEquals(utterances, metrics.getUtterances());
+			Assert.assertEquals(inferences, metrics.getStage(Stage.INFERENCE).getCount());
+			classifier.tagInputSequenceRaw(Arrays.asList("robot"), Arrays.asList("NN"), Arrays.asList("B-NP"));
+			Assert.assertEquals(utterances + 1, metrics.getUtterances());
+		}
+	}
+
+	@Test
+	public void tagBatchTest() throws IOException {
+		List<Utterance> utterances = new ArrayList<>(ClassifierTestData.utterances(150, 42));
+		// Only filled pauses and no words at all, both are not passed to the network
+		utterances.add(40, new Utterance(Arrays.asList("uh", "um"), Arrays.asList("UH", "UH"), Arrays.asList("O", "O")));
+		utterances.add(80, new Utterance(Collections.emptyList(), Collections.emptyList(), Collections.emptyList()));
+		try (LSTMClassifier classifier = ClassifierTestData.classifier(folder.getRoot(), 1)) {
+			List<List<String>> expected = new ArrayList<>();
+			for (Utterance utterance : utterances) {
+				expected.add(classifier.tagInputSequenceRaw(utterance.getWords(), utterance.getPosTags(), utterance.getChunkIOBTags()));
+			}
+			Assert.assertEquals(Arrays.asList("FP", "FP"), expected.get(40));
+			Assert.assertEquals(Collections.emptyList(), expected.get(80));
+			// Buckets of one sequence, buckets that are cut by the batch size and buckets of all sequences of a length
+			for (int batchSize : new int[] { 1, 3, 1000 }) {
+				Assert.assertEquals("batch size " + batchSize, expected, classifier.tagBatch(utterances, batchSize));
+			}
+			Assert.assertEquals(expected, classifier.tagBatch(utterances));
+			Assert.assertEquals(Collections.emptyList(), classifier.tagBatch(Collections.emptyList()));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidBatchSizeTest() throws IOException {
+		try (LSTMClassifier classifier = ClassifierTestData.classifier(folder.getRoot(), 1)) {
+			classifier.tagBatch(ClassifierTestData.utterances(1, 42), 0);
+		}
+	}
+
+	@Test(expected = UncheckedIOException.class)
+	public void missingWordVectorsTest() {
+		String missingWordVectors = new File(folder.getRoot(), "missing.bin").getPath();
+		new LSTMClassifier(LSTMClassifier.defaultModelPath(), missingWordVectors, 1).close();
+	}
+
+	@Test
+	public void taggingCacheWithoutFingerprintTest() throws IOException {
+		String wordVectors = ClassifierTestData.wordVectors(folder.getRoot(), ClassifierTestData.VOCABULARY);
+		String missingModel = new File(folder.getRoot(), "missing.net").getPath();
+		try (LSTMClassifier classifier = new LSTMClassifier(missingModel, wordVectors, 1)) {
+			// Without the fingerprint of the model the tags cannot be cached
+			classifier.setTaggingCache(new TaggingCache());
+			Assert.assertNull(classifier.getTaggingCache());
+		}
+	}
+
+	@Test
+	public void tagWithConfidenceTest() throws IOException {
+		List<Utterance> utterances = new ArrayList<>(ClassifierTestData.utterances(150, 42));
+		utterances.add(new Utterance(Arrays.asList("uh", "um"), Arrays.asList("UH", "UH"), Arrays.asList("O", "O")));
+		List<String> dfTags = LSTMClassifier.definedDisfluencyTags();
+		try (LSTMClassifier classifier = ClassifierTestData.classifier(folder.getRoot(), 1)) {
+			for (boolean constrainedDecoding : new boolean[] { false, true }) {
+				classifier.setConstrainedDecoding(constrainedDecoding);
+				int adjusted = 0;
+				for (Utterance utterance : utterances) {
+					List<String> words = utterance.getWords();
+					TaggingResult result = classifier.tagWithConfidence(words, utterance.getPosTags(), utterance.getChunkIOBTags());
+					Assert.assertEquals(classifier.tagInputSequenceRaw(words, utterance.getPosTags(), utterance.getChunkIOBTags()),
+							result.getTags());
+					float[] output = classifier.networkOutput(words, utterance.getPosTags(), utterance.getChunkIOBTags());
+					int j = 0;
+					for (int i = 0; i < words.size(); i++) {
+						float probability = result.getProbability(i);
+						Assert.assertTrue(probability >= 0 && probability <= 1);
+						if (Arrays.asList("uh", "um", "er").contains(words.get(i))) {
+							// The removed filled pauses are not passed to the network
+							Assert.assertEquals("FP", result.getTag(i));
+							Assert.assertEquals(1.0f, probability, 0.0f);
+							continue;
+						}
+						// The probability the network assigned to the reported tag
+						int tag = dfTags.indexOf(result.getTag(i));
+						Assert.assertEquals(output[tag + j * dfTags.size()], probability, 0.0f);
+						int maxIdx = 0;
+						for (int c = 1; c < dfTags.size(); c++) {
+							if (output[c + j * dfTags.size()] > output[maxIdx + j * dfTags.size()]) {
+								maxIdx = c;
+							}
+						}
+						if (maxIdx != tag) {
+							adjusted++;
+						}
+						j++;
+					}
+					Assert.assertEquals(j * dfTags.size(), output.length);
+				}
+				// Some tags are not the most probable tags of their words
+				Assert.assertTrue(adjusted > 0);
+			}
+		}
+	}
+
+	@Test
+	public void decodeBatchOutputTest() {
+		// Three sequences of a batch, the shorter sequences are padded
+		int[] lengths = { 5, 3, 1 };
+		int numClasses = 8;
+		INDArray networkOutput = Nd4j.rand(new int[] { lengths.length, numClasses, 5 }, 7);
+		float[] output = LSTMClassifier.outputData(networkOutput);
+		for (int row = 0; row < lengths.length; row++) {
+			int[] predictions = LSTMClassifier.decodePredictions(output, lengths.length, row, lengths[row], numClasses);
+			Assert.assertEquals(lengths[row], predictions.length);
+			int[] otherClasses = new int[lengths[row]];
+			for (int j = 0; j < lengths[row]; j++) {
+				int maxIdx = 0;
+				for (int c = 1; c < numClasses; c++) {
+					if (networkOutput.getDouble(row, c, j) > networkOutput.getDouble(row, maxIdx, j)) {
+						maxIdx = c;
+					}
+				}
+				Assert.assertEquals(maxIdx, predictions[j]);
+				otherClasses[j] = (maxIdx + 1 + j) % numClasses;
+			}
+			float[] probabilities = LSTMClassifier.probabilitiesOf(output, lengths.length, row, predictions, numClasses);
+			float[] otherProbabilities = LSTMClassifier.probabilitiesOf(output, lengths.length, row, otherClasses, numClasses);
+			for (int j = 0; j < lengths[row]; j++) {
+				Assert.assertEquals(networkOutput.getDouble(row, predictions[j], j), probabilities[j], 0.0);
+				Assert.assertEquals(networkOutput.getDouble(row, otherClasses[j], j), otherProbabilities[j], 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void concurrentTaggingTest() throws IOException, InterruptedException, ExecutionException {
+		List<Utterance> utterances = ClassifierTestData.utterances(100, 42);
+		int threads = 6;
+		try (LSTMClassifier classifier = ClassifierTestData.classifier(folder.getRoot(), 3)) {
+			List<List<String>> expected = new ArrayList<>();
+			for (Utterance utterance : utterances) {
+				expected.add(classifier.tagInputSequenceRaw(utterance.getWords(), utterance.getPosTags(), utterance.getChunkIOBTags()));
+			}
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				List<Future<List<List<String>>>> futures = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					int first = t * utterances.size() / threads;
+					// Each thread starts at another utterance, so that the threads tag different utterances at the same time
+					futures.add(executor.submit(() -> {
+						List<List<String>> tags = new ArrayList<>(Collections.nCopies(utterances.size(), null));
+						for (int k = 0; k < utterances.size(); k++) {
+							int i = (first + k) % utterances.size();
+							Utterance utterance = utterances.get(i);
+							tags.set(i, classifier.tagInputSequenceRaw(utterance.getWords(), utterance.getPosTags(), utterance.getChunkIOBTags()));
+						}
+						return tags;
+					}));
+				}
+				for (Future<List<List<String>>> future : futures) {
+					Assert.assertEquals(expected, future.get());
+				}
+			} finally {
+				executor.shutdown();
+			}
+			Assert.assertTrue(classifier.getCreatedReplicas() >= 1);
+			Assert.assertTrue(classifier.getCreatedReplicas() <= 3);
+		}
+	}
+
+}
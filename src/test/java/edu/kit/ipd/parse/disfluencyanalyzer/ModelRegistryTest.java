@@ -0,0 +1,113 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.BinaryWordVectorConverter;
+import edu.kit.ipd.parse.disfluencyanalyzer.embedding.WordVectorLookup;
+
+/**
+ * Tests the sharing and the reference counting of the resources of the
+ * registry. The models are loaded lazily, so the model files do not have to
+ * contain a model.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class ModelRegistryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String wordVectorsPath;
+	private String modelPath;
+
+	@Before
+	public void setUp() throws IOException {
+		File text = folder.newFile("vectors.txt");
+		Files.write(text.toPath(), Arrays.asList("the 1 0", "cup 0 1"), StandardCharsets.UTF_8);
+		File binary = new File(folder.getRoot(), "vectors.bin");
+		BinaryWordVectorConverter.convert(text, binary);
+		wordVectorsPath = binary.getPath();
+		modelPath = folder.newFile("model.net").getPath();
+	}
+
+	@Test
+	public void sharedTest() throws IOException {
+		try (ModelRegistry.Handle first = ModelRegistry.acquire(modelPath, wordVectorsPath);
+				ModelRegistry.Handle second = ModelRegistry.acquire(modelPath, new File(wordVectorsPath).getAbsolutePath());
+				ModelRegistry.Handle otherModel = ModelRegistry.acquire(modelPath + ".other", wordVectorsPath)) {
+			WordVectorLookup wordVectors = first.getWordVectors();
+			Assert.assertSame(wordVectors, second.getWordVectors());
+			Assert.assertSame(wordVectors, otherModel.getWordVectors());
+			Assert.assertEquals(first.getModelPath(), second.getModelPath());
+			Assert.assertNotEquals(first.getModelPath(), otherModel.getModelPath());
+			Assert.assertEquals(first.getFingerprint(), second.getFingerprint());
+			// a chain with a fallback table is another resource
+			try (ModelRegistry.Handle chain = ModelRegistry.acquire(modelPath, wordVectorsPath + File.pathSeparator + wordVectorsPath)) {
+				Assert.assertNotSame(wordVectors, chain.getWordVectors());
+			}
+		}
+	}
+
+	@Test
+	public void releaseTest() throws IOException {
+		ModelRegistry.Handle first = ModelRegistry.acquire(modelPath, wordVectorsPath);
+		ModelRegistry.Handle second = ModelRegistry.acquire(modelPath, wordVectorsPath);
+		WordVectorLookup wordVectors = first.getWordVectors();
+		// releasing a handle twice only drops its own reference
+		first.release();
+		first.close();
+		ModelRegistry.Handle third = ModelRegistry.acquire(modelPath, wordVectorsPath);
+		Assert.assertSame(wordVectors, third.getWordVectors());
+		second.close();
+		third.close();
+		// all handles are released, the word vectors are loaded again
+		try (ModelRegistry.Handle fourth = ModelRegistry.acquire(modelPath, wordVectorsPath)) {
+			Assert.assertNotSame(wordVectors, fourth.getWordVectors());
+		}
+	}
+
+	@Test
+	public void releaseAllTest() throws IOException {
+		ModelRegistry.Handle first = ModelRegistry.acquire(modelPath, wordVectorsPath);
+		WordVectorLookup wordVectors = first.getWordVectors();
+		// like at the shutdown of the JVM, the handle is not released
+		ModelRegistry.releaseAll();
+		try (ModelRegistry.Handle second = ModelRegistry.acquire(modelPath, wordVectorsPath)) {
+			WordVectorLookup reloaded = second.getWordVectors();
+			Assert.assertNotSame(wordVectors, reloaded);
+			// the late release of the old handle keeps the new resources
+			first.release();
+			try (ModelRegistry.Handle third = ModelRegistry.acquire(modelPath, wordVectorsPath)) {
+				Assert.assertSame(reloaded, third.getWordVectors());
+			}
+		}
+	}
+
+	@Test
+	public void sharedJavaNetworkTest() throws IOException {
+		String defaultModelPath = LSTMClassifier.defaultModelPath();
+		try (ModelRegistry.Handle first = ModelRegistry.acquire(defaultModelPath, wordVectorsPath);
+				ModelRegistry.Handle second = ModelRegistry.acquire(defaultModelPath, wordVectorsPath)) {
+			Assert.assertSame(first.getJavaNetwork(), second.getJavaNetwork());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void missingFileTest() throws IOException {
+		try (ModelRegistry.Handle handle = ModelRegistry.acquire(modelPath + ".missing", wordVectorsPath)) {
+			handle.getFingerprint();
+		}
+	}
+
+}
@@ -0,0 +1,237 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.B_RM;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.B_RS;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.DM;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.EE;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.FP;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.I_RM;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.I_RS;
+import static edu.kit.ipd.parse.disfluencyanalyzer.PredictionAdjuster.O_DF;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.features.InternedUtterance;
+import edu.kit.ipd.parse.disfluencyanalyzer.features.TokenInterner;
+
+/**
+ * Differential test that compares the {@link PredictionAdjuster} with the
+ * original adjustment of the predictions in four passes.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class PredictionAdjusterTest {
+
+	private static final List<String> POS_TAGS = Arrays.asList("DT", "NN", "NNS", "VB", "VBD", "VBG", "IN", "PRP", "PRP$", "UH", ".", ",");
+	private static final TokenInterner INTERNER = new TokenInterner(POS_TAGS, Arrays.asList("B-NP", "I-NP", "O"));
+	private static final List<String> VOCABULARY = Arrays.asList("put", "the", "green", "cup", "cupboard", "in", "dish", "dishwasher", "go",
+			"gone", "to", "i", "mean", "sorry", "excuse", "uh", "well", "fridge", "fri", "and");
+	private static final boolean[] SKIP_CLASSES = new boolean[DisfluencyTag.values().length];
+
+	static {
+		SKIP_CLASSES[FP] = true;
+		SKIP_CLASSES[EE] = true;
+		SKIP_CLASSES[DM] = true;
+	}
+
+	@Test
+	public void sameAdjustmentsAsOriginalTest() {
+		Random random = new Random(4711);
+		PredictionAdjuster adjuster = new PredictionAdjuster(INTERNER);
+		for (int n = 0; n < 20000; n++) {
+			int length = random.nextInt(40);
+			List<String> words = new ArrayList<>();
+			List<Integer> pos = new ArrayList<>();
+			int[] predictions = new int[length];
+			for (int i = 0; i < length; i++) {
+				// many repetitions and RM/RS tags
+				if (i > 0 && random.nextInt(4) == 0) {
+					words.add(words.get(i - 1 - random.nextInt(Math.min(i, 3))));
+				} else {
+					words.add(VOCABULARY.get(random.nextInt(VOCABULARY.size())));
+				}
+				pos.add(random.nextInt(POS_TAGS.size() + 1) - 1);
+				predictions[i] = random.nextInt(3) == 0 ? O_DF : random.nextInt(SKIP_CLASSES.length);
+			}
+			InternedUtterance sequence = InternedUtterance.of(words, pos, pos);
+			int[] original = predictions.clone();
+			Assert.assertArrayEquals(words + " " + Arrays.toString(predictions), originalAdjustPredictions(sequence, predictions),
+					adjuster.adjust(sequence, predictions));
+			Assert.assertArrayEquals(original, predictions);
+		}
+	}
+
+	@Test
+	public void repetitionTest() {
+		List<String> words = Arrays.asList("go", "to", "the", "the", "fridge", "now");
+		List<Integer> pos = Arrays.asList(3, 6, 0, 0, 1, 1);
+		int[] adjusted = new PredictionAdjuster(INTERNER).adjust(InternedUtterance.of(words, pos, pos), new int[6]);
+		Assert.assertArrayEquals(new int[] { O_DF, O_DF, B_RM, B_RS, O_DF, O_DF }, adjusted);
+	}
+
+	/*
+	 * The original adjustment of the LSTMClassifier
+	 */
+	private static int[] originalAdjustPredictions(InternedUtterance sequence, int[] firstPredictions) {
+		int[] adjustedPredictions = firstPredictions.clone();
+		int size = sequence.size();
+		// Check for unrecognized repetitions
+		for (int i = 0; i < size - 1; i++) {
+			if ((i + 1) < ((size - 1))) {
+				if (sequence.sameWord(i, i + 1) || sequence.startsWith(i + 1, i)) {
+					if (!(firstPredictions[i] == B_RM)) {
+						adjustedPredictions[i] = B_RM;
+					}
+					if (!(firstPredictions[i + 1] == B_RS)) {
+						adjustedPredictions[i + 1] = B_RS;
+					}
+				}
+				if ((i + 2) < ((size - 1))) {
+					if ((SKIP_CLASSES[firstPredictions[i + 1]] && sequence.sameWord(i, i + 2))
+							|| (SKIP_CLASSES[firstPredictions[i + 1]] && sequence.startsWith(i + 2, i))) {
+						if (!(firstPredictions[i] == B_RM)) {
+							adjustedPredictions[i] = B_RM;
+						}
+						if (!(firstPredictions[i + 2] == B_RS)) {
+							adjustedPredictions[i + 2] = B_RS;
+						}
+					}
+				}
+			}
+		}
+
+		// Check for not correctly recognized explicit editing terms
+		for (int i = 0; i < size; i++) {
+			if (sequence.isEditingTerm(i)) {
+				adjustedPredictions[i] = EE;
+			}
+		}
+
+		// Now check for uncompleted RM or RS blocks
+		for (int i = 0; i <= size - 1; i++) {
+			// future probable I-RM tags (at most 3)
+			int[] newTags = new int[3];
+			int numNewTags = 0;
+			boolean correspondenceReached = false;
+			switch (firstPredictions[i]) {
+			case B_RM:
+				for (int j = i + 1; j < i + 3; j++) {
+					if (j >= adjustedPredictions.length) {
+						break;
+					}
+					if (adjustedPredictions[j] == I_RM) {
+						continue;
+					}
+					if (adjustedPredictions[j] == B_RS) {
+						correspondenceReached = true;
+						break;
+					}
+					if (adjustedPredictions[j] == B_RM) {
+						break;
+					}
+					if (sequence.sameWord(i, j) || INTERNER.isSimilarPOS(sequence.posId(i), sequence.posId(j))) {
+						correspondenceReached = true;
+						adjustedPredictions[j] = B_RS;
+						break;
+					}
+					// add future probable I-RM tags
+					if (!SKIP_CLASSES[adjustedPredictions[j]]) {
+						newTags[numNewTags++] = j;
+					}
+				}
+				if (correspondenceReached) {
+					for (int n = 0; n < numNewTags; n++) {
+						adjustedPredictions[newTags[n]] = I_RM;
+					}
+				}
+				break;
+			case I_RM:
+				if (i > 0) {
+					// There cannot be a I-Tag without the corresponding B-Tag
+					if (!((adjustedPredictions[i - 1] == B_RM) || (adjustedPredictions[i - 1] == I_RM))) {
+						if (!SKIP_CLASSES[adjustedPredictions[i - 1]]) {
+							adjustedPredictions[i - 1] = B_RM;
+						}
+
+					}
+				}
+				// now search for the next B-RS
+				int k = i + 1;
+				boolean rsReached = false;
+				for (int j = k; j < k + 5; j++) {
+					if (j >= adjustedPredictions.length) {
+						break;
+					}
+					if (adjustedPredictions[j] == B_RS) {
+						rsReached = true;
+						// save position of the B-RS tag
+						k = j;
+						break;
+					}
+				}
+				if (rsReached) {
+					for (int j = k + 1; j < k + 4; j++) {
+						if (j >= adjustedPredictions.length) {
+							break;
+						}
+						if ((adjustedPredictions[j] == I_RS) || (SKIP_CLASSES[adjustedPredictions[j]])) {
+							continue;
+						}
+						if (sequence.sameWord(j, i) || INTERNER.isSimilarPOS(sequence.posId(j), sequence.posId(i))) {
+							if (firstPredictions[j] == O_DF) {
+								adjustedPredictions[j] = I_RS;
+							}
+							break;
+						}
+					}
+				}
+				break;
+			case B_RS:
+				for (int j = i - 1; j > i - 4; j--) {
+					if (j < 0) {
+						break;
+					}
+					if ((adjustedPredictions[j] == I_RM)) {
+						continue;
+					}
+					if (adjustedPredictions[j] == B_RM) {
+						correspondenceReached = true;
+						break;
+					}
+					if ((adjustedPredictions[j] == B_RS) || (adjustedPredictions[j] == I_RS)) {
+						break;
+					}
+					if (sequence.sameWord(i, j) || INTERNER.isSimilarPOS(sequence.posId(i), sequence.posId(j))) {
+						correspondenceReached = true;
+						adjustedPredictions[j] = B_RM;
+						break;
+					}
+					// add future probable I-RM tags
+					if (!SKIP_CLASSES[adjustedPredictions[j]]) {
+						newTags[numNewTags++] = j;
+					}
+				}
+				if (correspondenceReached) {
+					for (int n = 0; n < numNewTags; n++) {
+						adjustedPredictions[newTags[n]] = I_RM;
+					}
+				}
+				break;
+			// I-RS is too seldom correctly recognized to consider using it for
+			// adjusting
+			default:
+				break;
+			}
+		}
+		return adjustedPredictions;
+	}
+
+
+}
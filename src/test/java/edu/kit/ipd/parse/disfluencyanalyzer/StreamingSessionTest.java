@@ -0,0 +1,56 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class StreamingSessionTest {
+
+	@Test
+	public void finalTagsTest() {
+		List<Integer> windowSizes = new ArrayList<>();
+		// Tags each word with its upper case form
+		StreamingSession session = new StreamingSession((words, posTags, chunkIOBTags) -> {
+			windowSizes.add(words.size());
+			List<String> tags = new ArrayList<>();
+			for (String word : words) {
+				tags.add(word.toUpperCase());
+			}
+			return tags;
+		});
+		List<String> finalTags = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			List<String> tags = session.addWord("w" + i, "NN", "O");
+			Assert.assertEquals(i < StreamingSession.LOOKAHEAD ? 0 : 1, tags.size());
+			finalTags.addAll(tags);
+			Assert.assertEquals(i + 1 - finalTags.size(), session.getProvisionalTags().size());
+		}
+		Assert.assertEquals(100 - StreamingSession.LOOKAHEAD, session.getFinalCount());
+		finalTags.addAll(session.finish());
+		Assert.assertTrue(session.isFinished());
+		Assert.assertEquals(100, finalTags.size());
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals("W" + i, finalTags.get(i));
+		}
+		// bounded windows, one classification per word
+		Assert.assertEquals(100, windowSizes.size());
+		for (int size : windowSizes) {
+			Assert.assertTrue(size <= 2 * StreamingSession.LOOKAHEAD + 1);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void finishedTest() {
+		StreamingSession session = new StreamingSession((words, posTags, chunkIOBTags) -> new ArrayList<>(words));
+		Assert.assertTrue(session.finish().isEmpty());
+		session.addWord("go", "VB", "B-VP");
+	}
+
+}
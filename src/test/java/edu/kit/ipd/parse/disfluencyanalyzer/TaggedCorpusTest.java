@@ -0,0 +1,59 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class TaggedCorpusTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void readTest() throws IOException {
+		File file = folder.newFile("corpus.txt");
+		Files.write(file.toPath(), Arrays.asList("# comment", "go/VB/B-VP/B-RM uh/UH/O/FP go/VB/B-VP/B-RS", "", "1/2/CD/B-NP/O-DF"),
+				StandardCharsets.UTF_8);
+		TaggedCorpus corpus = TaggedCorpus.read(file);
+
+		Assert.assertEquals(2, corpus.size());
+		Assert.assertEquals(4, corpus.numWords());
+		Utterance first = corpus.getUtterances().get(0);
+		Assert.assertEquals(Arrays.asList("go", "uh", "go"), first.getWords());
+		Assert.assertEquals(Arrays.asList("VB", "UH", "VB"), first.getPosTags());
+		Assert.assertEquals(Arrays.asList("B-VP", "O", "B-VP"), first.getChunkIOBTags());
+		Assert.assertEquals(
+				Arrays.asList(DisfluencyTag.REPARANDUM_BEGIN, DisfluencyTag.FILLED_PAUSE, DisfluencyTag.REPARANS_BEGIN),
+				corpus.getTags().get(0));
+		// the word can contain slashes
+		Assert.assertEquals(Collections.singletonList("1/2"), corpus.getUtterances().get(1).getWords());
+	}
+
+	@Test(expected = IOException.class)
+	public void unknownTagTest() throws IOException {
+		File file = folder.newFile("unknown.txt");
+		Files.write(file.toPath(), Collections.singletonList("go/VB/B-VP/XX"), StandardCharsets.UTF_8);
+		TaggedCorpus.read(file);
+	}
+
+	@Test(expected = IOException.class)
+	public void missingTagTest() throws IOException {
+		File file = folder.newFile("missing.txt");
+		Files.write(file.toPath(), Collections.singletonList("go/VB/O-DF"), StandardCharsets.UTF_8);
+		TaggedCorpus.read(file);
+	}
+
+}
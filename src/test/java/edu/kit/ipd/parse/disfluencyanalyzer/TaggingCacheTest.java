@@ -0,0 +1,62 @@
+package edu.kit.ipd.parse.disfluencyanalyzer;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class TaggingCacheTest {
+
+	private static final List<String> WORDS = Arrays.asList("go", "go", "to", "the", "fridge");
+	private static final List<String> POS = Arrays.asList("VB", "VB", "TO", "DT", "NN");
+	private static final List<String> CHUNKS = Arrays.asList("B-VP", "B-VP", "B-PP", "B-NP", "I-NP");
+	private static final List<String> TAGS = Arrays.asList("B-RM", "B-RS", "O-DF", "O-DF", "O-DF");
+
+	@Test
+	public void hitAndMissTest() {
+		TaggingCache cache = new TaggingCache();
+		Assert.assertNull(cache.get(1L, WORDS, POS, CHUNKS));
+		cache.put(1L, WORDS, POS, CHUNKS, TAGS);
+		Assert.assertEquals(TAGS, cache.get(1L, Arrays.asList("go", "go", "to", "the", "fridge"), POS, CHUNKS));
+		// other model
+		Assert.assertNull(cache.get(2L, WORDS, POS, CHUNKS));
+		// other POS tags
+		Assert.assertNull(cache.get(1L, WORDS, Arrays.asList("VB", "VB", "TO", "DT", "NNS"), CHUNKS));
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(3, cache.getMisses());
+		// the returned tags are a copy
+		cache.get(1L, WORDS, POS, CHUNKS).clear();
+		Assert.assertEquals(TAGS, cache.get(1L, WORDS, POS, CHUNKS));
+	}
+
+	@Test
+	public void weightEvictionTest() {
+		// room for two entries of weight 6
+		TaggingCache cache = new TaggingCache(12);
+		cache.put(1L, WORDS, POS, CHUNKS, TAGS);
+		cache.put(2L, WORDS, POS, CHUNKS, TAGS);
+		// access the first entry, the second is now the least recently used one
+		Assert.assertNotNull(cache.get(1L, WORDS, POS, CHUNKS));
+		cache.put(3L, WORDS, POS, CHUNKS, TAGS);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(12, cache.getWeight());
+		Assert.assertEquals(1, cache.getEvictions());
+		Assert.assertNotNull(cache.get(1L, WORDS, POS, CHUNKS));
+		Assert.assertNull(cache.get(2L, WORDS, POS, CHUNKS));
+		Assert.assertNotNull(cache.get(3L, WORDS, POS, CHUNKS));
+		// too heavy for the cache, it is neither stored nor evicts other entries
+		TaggingCache small = new TaggingCache(5);
+		small.put(1L, WORDS, POS, CHUNKS, TAGS);
+		Assert.assertEquals(0, small.size());
+		Assert.assertEquals(0, small.getWeight());
+		Assert.assertEquals(0, small.getEvictions());
+		Assert.assertNull(small.get(1L, WORDS, POS, CHUNKS));
+	}
+
+}
@@ -0,0 +1,63 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.embedding;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the compact word vector table with the most frequent words and the
+ * domain words, and the fallback to the full table.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class CompactWordVectorBuilderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void buildTest() throws IOException {
+		File text = folder.newFile("full.txt");
+		Files.write(text.toPath(), Arrays.asList("the 1 0", "and 2 0", "you 3 0", "dishwasher 4 0", "cupboard 5 0", "fridge 6 0", "dish 7 0"),
+				StandardCharsets.UTF_8);
+		File full = new File(folder.getRoot(), "full.bin");
+		BinaryWordVectorConverter.convert(text, full);
+		File compact = new File(folder.getRoot(), "compact.bin");
+		CompactWordVectorBuilder.build(full, compact, Arrays.asList("Fridge", "dishwasher", "robot"), 2, 0);
+		MappedWordVectors vectors = MappedWordVectors.open(compact);
+
+		// the order of the full table is kept
+		Assert.assertEquals(4, vectors.vocabSize());
+		Assert.assertEquals("the", vectors.wordAtIndex(0));
+		Assert.assertEquals("and", vectors.wordAtIndex(1));
+		Assert.assertEquals("dishwasher", vectors.wordAtIndex(2));
+		Assert.assertEquals("fridge", vectors.wordAtIndex(3));
+		Assert.assertFalse(vectors.isQuantized());
+		Assert.assertArrayEquals(new double[] { 6, 0 }, vectors.getWordVector("fridge"), 0.0);
+		Assert.assertFalse(vectors.hasWord("cupboard"));
+
+		FallbackWordVectors fallback = new FallbackWordVectors(vectors, MappedWordVectors.open(full));
+		Assert.assertArrayEquals(new double[] { 5, 0 }, fallback.getWordVector("cupboard"), 0.0);
+		Assert.assertEquals(Arrays.asList("dishwasher", "dish"), fallback.wordsWithPrefix("dish", 5));
+		Assert.assertNull(fallback.getWordVector("robot"));
+	}
+
+	@Test(expected = IOException.class)
+	public void emptyTableTest() throws IOException {
+		File text = folder.newFile("words.txt");
+		Files.write(text.toPath(), Collections.singletonList("the 1 0"), StandardCharsets.UTF_8);
+		File full = new File(folder.getRoot(), "words.bin");
+		BinaryWordVectorConverter.convert(text, full);
+		CompactWordVectorBuilder.build(full, new File(folder.getRoot(), "empty.bin"), Collections.singletonList("robot"), 0, 0);
+	}
+
+}
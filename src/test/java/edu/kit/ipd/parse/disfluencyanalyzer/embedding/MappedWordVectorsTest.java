@@ -0,0 +1,121 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.embedding;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Round trip test for the conversion of word vector text files into the
+ * memory-mapped binary format.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class MappedWordVectorsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void roundTripTest() throws IOException {
+		File text = folder.newFile("vectors.txt");
+		Files.write(text.toPath(),
+				Arrays.asList("the 0.1 0.2 0.3", "put -1.5 2.0 0.25", "broken 1.0", "gr\u00fcn 4.0 5.0 6.0", "the 9.0 9.0 9.0", "uh 0 0 1"),
+				StandardCharsets.UTF_8);
+		File binary = new File(folder.getRoot(), "vectors.bin");
+		BinaryWordVectorConverter.convert(text, binary);
+		MappedWordVectors vectors = MappedWordVectors.open(binary);
+
+		Assert.assertEquals(3, vectors.vectorSize());
+		Assert.assertEquals(4, vectors.vocabSize());
+		Assert.assertTrue(vectors.hasWord("put"));
+		Assert.assertTrue(vectors.hasWord("gr\u00fcn"));
+		Assert.assertFalse(vectors.hasWord("broken"));
+		Assert.assertFalse(vectors.hasWord("pu"));
+		Assert.assertNull(vectors.getWordVector("dishwasher"));
+		// the first occurrence of a duplicate word wins
+		Assert.assertArrayEquals(new double[] { 0.1f, 0.2f, 0.3f }, vectors.getWordVector("the"), 0.0);
+		Assert.assertArrayEquals(new double[] { -1.5, 2.0, 0.25 }, vectors.getWordVector("put"), 0.0);
+		Assert.assertEquals("gr\u00fcn", vectors.wordAtIndex(2));
+		Assert.assertEquals(3, vectors.indexOf("uh"));
+	}
+
+	@Test
+	public void prefixSearchTest() throws IOException {
+		File text = folder.newFile("prefix.txt");
+		Files.write(text.toPath(), Arrays.asList("dish 1 0", "the 0 1", "dishwasher 2 0", "dishes 3 0", "dis 4 0", "do 5 0", "dishwäsche 6 0"),
+				StandardCharsets.UTF_8);
+		File binary = new File(folder.getRoot(), "prefix.bin");
+		BinaryWordVectorConverter.convert(text, binary);
+		MappedWordVectors vectors = MappedWordVectors.open(binary);
+
+		// the most frequent (first) words of the file first
+		Assert.assertEquals(Arrays.asList("dish", "dishwasher", "dishes", "dis"), vectors.wordsWithPrefix("dis", 4));
+		Assert.assertEquals(Arrays.asList("dish", "dishwasher"), vectors.wordsWithPrefix("dis", 2));
+		Assert.assertEquals(Arrays.asList("dishwasher", "dishw\u00e4sche"), vectors.wordsWithPrefix("dishw", 5));
+		Assert.assertTrue(vectors.wordsWithPrefix("dishwashers", 5).isEmpty());
+		Assert.assertTrue(vectors.wordsWithPrefix("z", 5).isEmpty());
+	}
+
+	@Test
+	public void longPrefixRangeTest() throws IOException {
+		// The most frequent words with the prefix are the last ones in the sorted order
+		List<String> lines = new ArrayList<>();
+		lines.add("azz 1 0");
+		lines.add("b 0 1");
+		lines.add("ayy 2 0");
+		for (int i = 0; i < 30000; i++) {
+			lines.add(String.format("a%05d 0 0", i));
+		}
+		lines.add("c 0 2");
+		File text = folder.newFile("range.txt");
+		Files.write(text.toPath(), lines, StandardCharsets.UTF_8);
+		File binary = new File(folder.getRoot(), "range.bin");
+		BinaryWordVectorConverter.convert(text, binary);
+		MappedWordVectors vectors = MappedWordVectors.open(binary);
+
+		Assert.assertEquals(Arrays.asList("azz", "ayy", "a00000"), vectors.wordsWithPrefix("a", 3));
+		Assert.assertEquals(Arrays.asList("a29999"), vectors.wordsWithPrefix("a29999", 3));
+		Assert.assertEquals(Arrays.asList("c"), vectors.wordsWithPrefix("c", 3));
+		Assert.assertEquals(Arrays.asList("azz", "b", "ayy"), vectors.wordsWithPrefix("", 3));
+	}
+
+	@Test
+	public void quantizedVectorsTest() throws IOException {
+		List<String> words = new ArrayList<>();
+		Random random = new Random(3);
+		float[] vectors = new float[300 * 4];
+		for (int i = 0; i < 300; i++) {
+			words.add("w" + i);
+			// two clusters in each subspace of two components
+			for (int k = 0; k < 4; k++) {
+				vectors[i * 4 + k] = (i % 2 == 0 ? 1 : -1) + 0.01f * (float) random.nextGaussian();
+			}
+		}
+		File binary = new File(folder.getRoot(), "quantized.bin");
+		BinaryWordVectorConverter.write(binary, words, vectors, 4, ProductQuantizer.train(vectors, 300, 4, 2, 10, 1));
+		MappedWordVectors quantized = MappedWordVectors.open(binary);
+
+		Assert.assertTrue(quantized.isQuantized());
+		Assert.assertEquals(300, quantized.vocabSize());
+		Assert.assertEquals("w17", quantized.wordAtIndex(17));
+		Assert.assertEquals(Arrays.asList("w29", "w290"), quantized.wordsWithPrefix("w29", 2));
+		float[] vector = new float[8];
+		Assert.assertTrue(quantized.copyWordVector("w17", vector, 1, 2));
+		for (int k = 0; k < 4; k++) {
+			Assert.assertEquals(vectors[17 * 4 + k], vector[1 + 2 * k], 0.05);
+		}
+		Assert.assertArrayEquals(new double[] { 1, 1, 1, 1 }, quantized.getWordVector("w42"), 0.05);
+	}
+
+}
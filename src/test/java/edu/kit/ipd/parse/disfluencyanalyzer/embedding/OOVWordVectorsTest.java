@@ -0,0 +1,65 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.embedding;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class OOVWordVectorsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MappedWordVectors known;
+
+	@Before
+	public void setUp() throws IOException {
+		File text = folder.newFile("vectors.txt");
+		Files.write(text.toPath(), Arrays.asList("dishwasher 2 0", "dishware 4 2", "grab 0 3", "i 1 1", "the 0 1"), StandardCharsets.UTF_8);
+		File binary = new File(folder.getRoot(), "vectors.bin");
+		BinaryWordVectorConverter.convert(text, binary);
+		known = MappedWordVectors.open(binary);
+	}
+
+	@Test
+	public void derivedVectorsTest() {
+		OOVWordVectors vectors = new OOVWordVectors(known);
+		Assert.assertArrayEquals(new double[] { 0, 1 }, vectors.getWordVector("the"), 0.0);
+		// lower case
+		Assert.assertArrayEquals(new double[] { 1, 1 }, vectors.getWordVector("I"), 0.0);
+		// truncated word
+		Assert.assertArrayEquals(new double[] { 3, 1 }, vectors.getWordVector("dishw"), 0.0);
+		// longest known prefix
+		Assert.assertArrayEquals(new double[] { 0, 3 }, vectors.getWordVector("grabbbed"), 0.0);
+		Assert.assertFalse(vectors.hasWord("xyz"));
+		float[] target = { 7, 7, 7, 7 };
+		Assert.assertFalse(vectors.copyWordVector("xyz", target, 0, 2));
+		Assert.assertTrue(vectors.copyWordVector("dishw", target, 1, 2));
+		Assert.assertArrayEquals(new float[] { 7, 3, 7, 1 }, target, 0.0f);
+		// the unknown words "I", "dishw", "grabbbed" and "xyz"
+		Assert.assertEquals(4, vectors.cachedWords());
+	}
+
+	@Test
+	public void boundedCacheTest() {
+		OOVWordVectors vectors = new OOVWordVectors(known, 2);
+		for (int i = 0; i < 100; i++) {
+			vectors.hasWord("grab" + i);
+		}
+		Assert.assertEquals(2, vectors.cachedWords());
+		Assert.assertArrayEquals(new double[] { 0, 3 }, vectors.getWordVector("grab1"), 0.0);
+	}
+
+}
@@ -0,0 +1,145 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.kit.ipd.parse.disfluencyanalyzer.util.WordUtils;
+import info.debatty.java.stringsimilarity.JaroWinkler;
+
+/**
+ * Differential test that compares the features of the
+ * {@link DiscreteFeatureExtractor} with the features of the original
+ * per-position implementation.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class DiscreteFeatureExtractorTest {
+
+	private static final List<String> VOCABULARY = Arrays.asList("put", "the", "green", "cup", "in", "dishwasher", "dish", "dishw",
+			"washer", "uh", "um", "uh-oh", "a", "i", "from", "form", "fridge", "fri", "mean", "go", "gone", "robot", "to", "too");
+
+	@Test
+	public void sameFeaturesAsOriginalTest() {
+		Random random = new Random(4711);
+		for (int n = 0; n < 2000; n++) {
+			int length = 1 + random.nextInt(40);
+			List<String> words = new ArrayList<>();
+			List<Integer> pos = new ArrayList<>();
+			for (int i = 0; i < length; i++) {
+				// many repetitions, similar words and equal POS tags
+				if (i > 0 && random.nextInt(4) == 0) {
+					words.add(words.get(i - 1 - random.nextInt(Math.min(i, 3))));
+				} else {
+					words.add(VOCABULARY.get(random.nextInt(VOCABULARY.size())));
+				}
+				pos.add(random.nextInt(6));
+			}
+			DiscreteFeatureExtractor extractor = new DiscreteFeatureExtractor(InternedUtterance.of(words, pos, pos));
+			for (int j = 0; j < length; j++) {
+				float[] features = new float[DiscreteFeatureExtractor.N_DISCRETE_FEATURES];
+				extractor.extract(j, features, 0, 1);
+				Assert.assertArrayEquals("Position " + j + " of " + words, originalFeatures(j, words, pos), features, 0.0f);
+			}
+		}
+	}
+
+	@Test
+	public void stridedOutputTest() {
+		List<String> words = Arrays.asList("put", "the", "the", "cup", "uh", "in", "the", "dishw", "dishwasher");
+		List<Integer> pos = Arrays.asList(0, 1, 1, 2, 3, 4, 1, 2, 2);
+		DiscreteFeatureExtractor extractor = new DiscreteFeatureExtractor(InternedUtterance.of(words, pos, pos));
+		int stride = 3;
+		for (int j = 0; j < words.size(); j++) {
+			float[] strided = new float[DiscreteFeatureExtractor.N_DISCRETE_FEATURES * stride];
+			extractor.extract(j, strided, 1, stride);
+			float[] expected = originalFeatures(j, words, pos);
+			for (int k = 0; k < expected.length; k++) {
+				Assert.assertEquals(expected[k], strided[1 + k * stride], 0.0f);
+			}
+		}
+	}
+
+	/*
+	 * The original feature generation of the DisfluencyDataSetIterator
+	 */
+	private static float[] originalFeatures(int curWordPos, List<String> wordList, List<Integer> posList) {
+		float[] featureBits = new float[80];
+		String curWord = wordList.get(curWordPos);
+		int curPOS = posList.get(curWordPos);
+		for (int i = 1; i <= 15; i++) {
+			if ((curWordPos - i) > 0) {
+				if (curWord.equals(wordList.get(curWordPos - i))) {
+					featureBits[15 - i] = 1.0f;
+				} else {
+					String nextWord = wordList.get(curWordPos - i);
+					if (!(WordUtils.FILLED_PAUSES.contains(curWord) || WordUtils.FILLED_PAUSES.contains(nextWord))
+							&& (curWord.startsWith(wordList.get(curWordPos - i)) || wordList.get(curWordPos - i).startsWith(curWord))
+							&& (i < 3) && (curWord.length() > 1) && (wordList.get(curWordPos - i).length() > 1)) {
+						featureBits[15 - i] = 1.0f;
+					}
+				}
+				if (curPOS == posList.get(curWordPos - i)) {
+					featureBits[30 + 15 - i] = 1.0f;
+				}
+			}
+			if ((curWordPos + i) < wordList.size()) {
+				if (curWord.equals(wordList.get(curWordPos + i))) {
+					featureBits[15 - 1 + i] = 1.0f;
+				} else {
+					String nextWord = wordList.get(curWordPos + i);
+					if (!(WordUtils.FILLED_PAUSES.contains(curWord) || WordUtils.FILLED_PAUSES.contains(nextWord))
+							&& (wordList.get(curWordPos + i).startsWith(curWord) || curWord.startsWith(wordList.get(curWordPos + i)))
+							&& (i < 3) && (curWord.length() > 1) && (wordList.get(curWordPos + i).length() > 1)) {
+						featureBits[15 - 1 + i] = 1.0f;
+					}
+				}
+				if (curPOS == posList.get(curWordPos + i)) {
+					featureBits[30 + 15 - 1 + i] = 1.0f;
+				}
+			}
+		}
+		if ((curWordPos + 1) < wordList.size()) {
+			String nextWord = wordList.get(curWordPos + 1);
+			int nextPOS = posList.get(curWordPos + 1);
+			for (int i = 1; i <= 4; i++) {
+				if ((curWordPos - i) > 0) {
+					if ((curWord.equals(wordList.get(curWordPos - i)) && (nextWord.equals(wordList.get(curWordPos + 1 - i))))) {
+						featureBits[60 + 4 - i] = 1.0f;
+					}
+					if ((curPOS == posList.get(curWordPos - i)) && (nextPOS == posList.get(curWordPos + 1 - i))) {
+						featureBits[60 + 8 + 4 - i] = 1.0f;
+					}
+				}
+				if ((curWordPos + 1 + i) < wordList.size()) {
+					if ((curWord.equals(wordList.get(curWordPos + i))) && (nextWord.equals(wordList.get(curWordPos + 1 + i)))) {
+						featureBits[60 + 4 - 1 + i] = 1.0f;
+					}
+					if ((curPOS == posList.get(curWordPos + i)) && (nextPOS == posList.get(curWordPos + 1 + i))) {
+						featureBits[60 + 8 + 4 - 1 + i] = 1.0f;
+					}
+				}
+			}
+		}
+		JaroWinkler distance = new JaroWinkler();
+		for (int i = 1; i <= 2; i++) {
+			if ((curWordPos - i) > 0) {
+				if (distance.similarity(curWord, wordList.get(curWordPos - i)) > 0.8) {
+					featureBits[76 + 2 - i] = 1.0f;
+				}
+			}
+			if ((curWordPos + i) < wordList.size()) {
+				if (distance.similarity(curWord, wordList.get(curWordPos + i)) > 0.8) {
+					featureBits[76 + 2 - 1 + i] = 1.0f;
+				}
+			}
+		}
+		return featureBits;
+	}
+
+}
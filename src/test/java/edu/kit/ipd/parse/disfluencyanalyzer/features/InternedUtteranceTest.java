@@ -0,0 +1,71 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.features;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class InternedUtteranceTest {
+
+	private static final TokenInterner INTERNER = new TokenInterner(Arrays.asList("DT", "NN", "NNS", "VB", "VBG", "UH", "."),
+			Arrays.asList("B-NP", "I-NP", "O"));
+
+	private static InternedUtterance intern(String... words) {
+		List<String> wordList = Arrays.asList(words);
+		String[] pos = new String[words.length];
+		String[] chunkIOB = new String[words.length];
+		Arrays.fill(pos, "NN");
+		Arrays.fill(chunkIOB, "O");
+		return INTERNER.intern(wordList, Arrays.asList(pos), Arrays.asList(chunkIOB));
+	}
+
+	@Test
+	public void wordIdsTest() {
+		InternedUtterance utterance = intern("the", "cup", "the", "cupboard");
+		Assert.assertTrue(utterance.sameWord(0, 2));
+		Assert.assertFalse(utterance.sameWord(1, 3));
+		Assert.assertTrue(utterance.startsWith(3, 1));
+		Assert.assertFalse(utterance.startsWith(1, 3));
+	}
+
+	@Test
+	public void tagIdsTest() {
+		Assert.assertEquals(1, INTERNER.posId("NN"));
+		Assert.assertEquals(-1, INTERNER.posId("XYZ"));
+		Assert.assertEquals(2, INTERNER.chunkIOBId("O"));
+		Assert.assertTrue(INTERNER.isSimilarPOS(INTERNER.posId("NN"), INTERNER.posId("NNS")));
+		Assert.assertFalse(INTERNER.isSimilarPOS(INTERNER.posId("VB"), INTERNER.posId("VBG")));
+		Assert.assertFalse(INTERNER.isSimilarPOS(INTERNER.posId("."), INTERNER.posId("NN")));
+		Assert.assertFalse(INTERNER.isSimilarPOS(-1, INTERNER.posId("NN")));
+	}
+
+	@Test
+	public void filledPausePositionsTest() {
+		// Consecutive filled pauses are all removed
+		InternedUtterance utterance = intern("uh", "um", "the", "cup", "uh", "uh", "uh");
+		int[] kept = utterance.positionsWithoutFilledPauses();
+		Assert.assertArrayEquals(new int[] { 2, 3 }, kept);
+		InternedUtterance selected = utterance.select(kept);
+		Assert.assertEquals(2, selected.size());
+		Assert.assertEquals("the", selected.word(0));
+		Assert.assertEquals("cup", selected.word(1));
+		Assert.assertArrayEquals(new int[] { 5, 5, 1, 2, 5, 5, 5 }, InternedUtterance.scatter(new int[] { 1, 2 }, kept, utterance.size(), 5));
+		// The input is not changed
+		Assert.assertEquals(7, utterance.size());
+		Assert.assertSame(utterance, utterance.select(new int[] { 0, 1, 2, 3, 4, 5, 6 }));
+	}
+
+	@Test
+	public void normalizedFilledPausesTest() {
+		InternedUtterance normalized = intern("um", "the", "cup", "uh").withNormalizedFilledPauses();
+		Assert.assertEquals(InternedUtterance.FILLED_PAUSE_WORD, normalized.word(0));
+		Assert.assertTrue(normalized.sameWord(0, 3));
+	}
+
+}
@@ -0,0 +1,68 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void quantilesTest() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(0, histogram.getQuantileNanos(0.5));
+		// 90 fast (100 µs) and 10 slow (50 ms) executions
+		for (int i = 0; i < 90; i++) {
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+		}
+		for (int i = 0; i < 10; i++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+		}
+		Assert.assertEquals(100, histogram.getCount());
+		Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(50), histogram.getMaxNanos());
+		// upper bounds within a factor of two
+		long median = histogram.getQuantileNanos(0.5);
+		Assert.assertTrue(median >= TimeUnit.MICROSECONDS.toNanos(100) && median <= TimeUnit.MICROSECONDS.toNanos(200));
+		Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(50), histogram.getQuantileNanos(0.99));
+		histogram.reset();
+		Assert.assertEquals(0, histogram.getCount());
+		Assert.assertEquals(0, histogram.getMaxNanos());
+	}
+
+	@Test
+	public void disabledMetricsTest() {
+		DisfluencyMetrics metrics = new DisfluencyMetrics(false);
+		Assert.assertEquals(0, metrics.start());
+		metrics.record(Stage.INFERENCE, 0, 10);
+		metrics.countUtterances(1, 10);
+		Assert.assertEquals(0, metrics.getStage(Stage.INFERENCE).getCount());
+		Assert.assertEquals(0, metrics.getTokens());
+		DisfluencyMetrics enabled = new DisfluencyMetrics(true);
+		enabled.record(Stage.INFERENCE, enabled.start(), 10);
+		Assert.assertEquals(1, enabled.getStage(Stage.INFERENCE).getCount());
+		Assert.assertEquals(10, enabled.getStage(Stage.INFERENCE).getTokens());
+	}
+
+	@Test
+	public void warmUpStateTest() {
+		DisfluencyMetrics metrics = new DisfluencyMetrics(true);
+		Assert.assertFalse(metrics.isReady());
+		metrics.warmUpStarted();
+		metrics.warmUpStarted();
+		metrics.warmUpFinished(120);
+		// another warm-up is still running
+		Assert.assertFalse(metrics.isReady());
+		Assert.assertEquals(120, metrics.getWarmUpDuration());
+		metrics.warmUpFinished(-1);
+		Assert.assertTrue(metrics.isReady());
+		Assert.assertEquals(120, metrics.getWarmUpDuration());
+		metrics.reset();
+		Assert.assertTrue(metrics.isReady());
+	}
+
+}
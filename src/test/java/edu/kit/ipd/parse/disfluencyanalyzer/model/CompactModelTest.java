@@ -0,0 +1,169 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.model;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.layers.GravesLSTM;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+/**
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class CompactModelTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void halfPrecisionTest() {
+		// Exactly representable values
+		float[] exact = { 0f, -0f, 1f, -2f, 0.5f, 65504f, 0x1p-14f, 0x1p-24f, 1.5f, Float.POSITIVE_INFINITY };
+		for (float value : exact) {
+			Assert.assertEquals(Float.floatToIntBits(value), Float.floatToIntBits(CompactModel.fromHalf(CompactModel.toHalf(value))));
+		}
+		Assert.assertTrue(Float.isNaN(CompactModel.fromHalf(CompactModel.toHalf(Float.NaN))));
+		Assert.assertEquals(Float.POSITIVE_INFINITY, CompactModel.fromHalf(CompactModel.toHalf(1e6f)), 0);
+		Assert.assertEquals(0f, CompactModel.fromHalf(CompactModel.toHalf(1e-9f)), 0);
+		// Ties to even: 1 + 2^-11 is between 1 and 1 + 2^-10
+		Assert.assertEquals(1f, CompactModel.fromHalf(CompactModel.toHalf(1f + 0x1p-11f)), 0);
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			float value = (float) (random.nextGaussian() * 10);
+			float restored = CompactModel.fromHalf(CompactModel.toHalf(value));
+			Assert.assertEquals(value, restored, Math.abs(value) * 0x1p-11f + 0x1p-25f);
+		}
+	}
+
+	@Test
+	public void quantizationTest() {
+		float[] values = { 1f, -0.5f, 0.25f, 0f, 0f, 0f };
+		float[] scales = CompactModel.rowScales(values, 2, 3);
+		Assert.assertEquals(1f / 127, scales[0], 0);
+		Assert.assertEquals(0f, scales[1], 0);
+		Assert.assertEquals(127, CompactModel.quantize(1f, scales[0]));
+		Assert.assertEquals(32, CompactModel.quantize(0.25f, scales[0]));
+		Assert.assertEquals(0, CompactModel.quantize(0f, scales[1]));
+	}
+
+	@Test
+	public void roundTripTest() throws IOException {
+		ComputationGraph net = network();
+		INDArray features = Nd4j.rand(new int[] { 2, 3, 5 });
+		INDArray expected = net.outputSingle(features);
+		for (Precision precision : Precision.values()) {
+			File file = folder.newFile("model-" + precision + CompactModel.EXTENSION);
+			CompactModel.write(net, precision, file);
+			ComputationGraph restored = CompactModel.read(file);
+			if (precision == Precision.FP32) {
+				Assert.assertEquals(net.params(), restored.params());
+			}
+			// The biases are always stored without loss
+			Assert.assertEquals(net.getParam("lstm_b"), restored.getParam("lstm_b"));
+			double tolerance = precision == Precision.INT8 ? 0.05 : 0.005;
+			Assert.assertTrue(precision + " error", expected.sub(restored.outputSingle(features)).amaxNumber().doubleValue() < tolerance);
+		}
+	}
+
+	@Test
+	public void precisionNameTest() {
+		Locale locale = Locale.getDefault();
+		try {
+			// The upper case of i is İ in Turkish
+			Locale.setDefault(new Locale("tr", "TR"));
+			Assert.assertEquals(Precision.INT8, Precision.of(" int8"));
+			Assert.assertEquals(Precision.FP16, Precision.of("Fp16"));
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void noCompactModelTest() throws IOException {
+		CompactModel.read(folder.newFile("empty" + CompactModel.EXTENSION));
+	}
+
+	@Test
+	public void missingParameterTest() throws IOException {
+		ComputationGraph net = network();
+		Map<String, INDArray> parameters = new LinkedHashMap<>(net.paramTable());
+		parameters.remove("out_b");
+		File file = folder.newFile("missing" + CompactModel.EXTENSION);
+		write(net, parameters, file);
+		try {
+			CompactModel.read(file);
+			Assert.fail("The bias of the output layer would keep its initial value");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("missing: [out_b]"));
+		}
+	}
+
+	@Test
+	public void unknownParameterTest() throws IOException {
+		ComputationGraph net = network();
+		Map<String, INDArray> parameters = new LinkedHashMap<>(net.paramTable());
+		parameters.put("dense_W", Nd4j.ones(2, 2));
+		File file = folder.newFile("unknown" + CompactModel.EXTENSION);
+		write(net, parameters, file);
+		try {
+			CompactModel.read(file);
+			Assert.fail("The file has a parameter that is not in the configuration");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("unknown: [dense_W]"));
+		}
+	}
+
+	// Writes the configuration of the network with the given parameters in float32
+	private static void write(ComputationGraph net, Map<String, INDArray> parameters, File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file.toPath()))) {
+			out.writeInt(0x44464d31);
+			out.writeInt(1);
+			out.writeByte(Precision.FP32.ordinal());
+			byte[] configuration = net.getConfiguration().toJson().getBytes(StandardCharsets.UTF_8);
+			out.writeInt(configuration.length);
+			out.write(configuration);
+			out.writeInt(parameters.size());
+			for (Map.Entry<String, INDArray> parameter : parameters.entrySet()) {
+				INDArray value = parameter.getValue();
+				out.writeUTF(parameter.getKey());
+				out.writeByte(Precision.FP32.ordinal());
+				out.writeInt((int) value.size(0));
+				out.writeInt((int) value.size(1));
+				for (float f : value.dup('c').data().asFloat()) {
+					out.writeFloat(f);
+				}
+			}
+		}
+	}
+
+	private static ComputationGraph network() {
+		ComputationGraphConfiguration configuration = new NeuralNetConfiguration.Builder().seed(42).graphBuilder().addInputs("in")
+				.addLayer("lstm", new GravesLSTM.Builder().nIn(3).nOut(4).activation(Activation.TANH).build(), "in")
+				.addLayer("out", new RnnOutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(4).nOut(2).activation(Activation.SOFTMAX).build(),
+						"lstm")
+				.setOutputs("out").build();
+		ComputationGraph net = new ComputationGraph(configuration);
+		net.init();
+		return net;
+	}
+
+}
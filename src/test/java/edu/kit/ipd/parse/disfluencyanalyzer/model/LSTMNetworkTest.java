@@ -0,0 +1,168 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.deeplearning4j.nn.conf.ComputationGraphConfiguration;
+import org.deeplearning4j.nn.conf.NeuralNetConfiguration;
+import org.deeplearning4j.nn.conf.graph.MergeVertex;
+import org.deeplearning4j.nn.conf.layers.GravesLSTM;
+import org.deeplearning4j.nn.conf.layers.RnnOutputLayer;
+import org.deeplearning4j.nn.conf.layers.recurrent.Bidirectional;
+import org.deeplearning4j.nn.graph.ComputationGraph;
+import org.deeplearning4j.util.ModelSerializer;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nd4j.linalg.activations.Activation;
+import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.io.ClassPathResource;
+import org.nd4j.linalg.lossfunctions.LossFunctions;
+
+/**
+ * Compares the network in plain Java with the ComputationGraph of ND4J.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class LSTMNetworkTest {
+
+	private static final float TOLERANCE = 1e-3f;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void smallNetworkTest() throws IOException {
+		ComputationGraph net = network(6, 5, 4, 3, 7, 5);
+		assertEquivalent(net, LSTMNetwork.of(net), new Random(42), 50);
+		// The same network read from a compact model
+		File file = folder.newFile("model" + CompactModel.EXTENSION);
+		CompactModel.write(net, Precision.FP32, file);
+		assertEquivalent(net, LSTMNetwork.load(file), new Random(43), 20);
+	}
+
+	@Test
+	public void disfluencyModelTest() throws IOException {
+		ComputationGraph net = ModelSerializer.restoreComputationGraph(new ClassPathResource("DisfluencyModel.net").getFile(), false);
+		assertEquivalent(net, LSTMNetwork.of(net), new Random(42), 30);
+	}
+
+	@Test(expected = IOException.class)
+	public void otherNetworkTest() throws IOException {
+		ComputationGraphConfiguration configuration = new NeuralNetConfiguration.Builder().graphBuilder().addInputs("in")
+				.addLayer("out", new RnnOutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(3).nOut(2).activation(Activation.SOFTMAX).build(),
+						"in")
+				.setOutputs("out").build();
+		ComputationGraph net = new ComputationGraph(configuration);
+		net.init();
+		File file = folder.newFile("other" + CompactModel.EXTENSION);
+		CompactModel.write(net, Precision.FP32, file);
+		LSTMNetwork.load(file);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void otherActivationTest() {
+		LSTMNetwork.of(network(6, 5, 4, 3, 7, 5, Activation.HARDSIGMOID));
+	}
+
+	@Test(expected = IOException.class)
+	public void otherActivationLoadTest() throws IOException {
+		File file = folder.newFile("hardSigmoid" + CompactModel.EXTENSION);
+		CompactModel.write(network(6, 5, 4, 3, 7, 5, Activation.HARDSIGMOID), Precision.FP32, file);
+		LSTMNetwork.load(file);
+	}
+
+	/*
+	 * Compares the probabilities and the most probable classes for random
+	 * sequences with one-hot POS and chunk IOB tags (including undefined tags)
+	 * and sparse binary discrete features
+	 */
+	private static void assertEquivalent(ComputationGraph net, LSTMNetwork network, Random random, int numSequences) {
+		int w = network.getWordVectorSize();
+		int p = network.getNumPosTags();
+		int c = network.getNumChunkIOBTags();
+		int d = network.getNumDiscreteFeatures();
+		int k = network.getNumClasses();
+		for (int s = 0; s < numSequences; s++) {
+			int length = 1 + random.nextInt(30);
+			float[] words = new float[length * w];
+			int[] posIds = new int[length];
+			int[] chunkIOBIds = new int[length];
+			float[] discrete = new float[length * d];
+			// The ND4J inputs [1, features, time steps]
+			float[] wordData = new float[w * length];
+			float[] posData = new float[p * length];
+			float[] chunkIOBData = new float[c * length];
+			float[] discreteData = new float[d * length];
+			for (int j = 0; j < length; j++) {
+				for (int i = 0; i < w; i++) {
+					words[j * w + i] = (float) random.nextGaussian() * 0.5f;
+					wordData[i + j * w] = words[j * w + i];
+				}
+				posIds[j] = random.nextInt(p + 1) - 1;
+				if (posIds[j] >= 0) {
+					posData[posIds[j] + j * p] = 1;
+				}
+				chunkIOBIds[j] = random.nextInt(c);
+				chunkIOBData[chunkIOBIds[j] + j * c] = 1;
+				for (int i = 0; i < d; i++) {
+					discrete[j * d + i] = random.nextInt(5) == 0 ? 1 : 0;
+					discreteData[i + j * d] = discrete[j * d + i];
+				}
+			}
+			INDArray expected = net.output(false, Nd4j.create(wordData, new int[] { 1, w, length }, 'f'),
+					Nd4j.create(posData, new int[] { 1, p, length }, 'f'), Nd4j.create(chunkIOBData, new int[] { 1, c, length }, 'f'),
+					Nd4j.create(discreteData, new int[] { 1, d, length }, 'f'))[0];
+			float[] actual = network.output(words, posIds, chunkIOBIds, discrete, length);
+			for (int j = 0; j < length; j++) {
+				int expectedClass = 0;
+				int actualClass = 0;
+				for (int i = 0; i < k; i++) {
+					float probability = expected.getFloat(new int[] { 0, i, j });
+					Assert.assertEquals(probability, actual[j * k + i], TOLERANCE);
+					if (probability > expected.getFloat(new int[] { 0, expectedClass, j })) {
+						expectedClass = i;
+					}
+					if (actual[j * k + i] > actual[j * k + actualClass]) {
+						actualClass = i;
+					}
+				}
+				Assert.assertEquals(expectedClass, actualClass);
+			}
+		}
+	}
+
+	// The architecture of the disfluency network with the given sizes
+	private static ComputationGraph network(int wordVectorSize, int numPosTags, int numChunkIOBTags, int numDiscreteFeatures, int hiddenSize,
+			int numClasses) {
+		return network(wordVectorSize, numPosTags, numChunkIOBTags, numDiscreteFeatures, hiddenSize, numClasses, Activation.SIGMOID);
+	}
+
+	// The same architecture with the given gate activation of the hidden layer
+	private static ComputationGraph network(int wordVectorSize, int numPosTags, int numChunkIOBTags, int numDiscreteFeatures, int hiddenSize,
+			int numClasses, Activation hiddenGateActivation) {
+		ComputationGraphConfiguration configuration = new NeuralNetConfiguration.Builder().seed(42).graphBuilder()
+				.addInputs("wordFeatures", "posFeatures", "chunkIOBFeatures", "discreteFeatures")
+				.addLayer("wordInputLayer", new GravesLSTM.Builder().nIn(wordVectorSize).nOut(4).activation(Activation.TANH).build(), "wordFeatures")
+				.addLayer("posInputLayer", new GravesLSTM.Builder().nIn(numPosTags).nOut(3).activation(Activation.TANH).build(), "posFeatures")
+				.addLayer("chunkIOBInputLayer", new GravesLSTM.Builder().nIn(numChunkIOBTags).nOut(2).activation(Activation.TANH).build(),
+						"chunkIOBFeatures")
+				.addVertex("merge", new MergeVertex(), "wordInputLayer", "posInputLayer", "chunkIOBInputLayer", "discreteFeatures")
+				.addLayer("hiddenLayer",
+						new Bidirectional(Bidirectional.Mode.ADD,
+								new GravesLSTM.Builder().nIn(4 + 3 + 2 + numDiscreteFeatures).nOut(hiddenSize).activation(Activation.TANH)
+										.gateActivationFunction(hiddenGateActivation).build()),
+						"merge")
+				.addLayer("outputLayer", new RnnOutputLayer.Builder(LossFunctions.LossFunction.MCXENT).nIn(hiddenSize).nOut(numClasses)
+						.activation(Activation.SOFTMAX).build(), "hiddenLayer")
+				.setOutputs("outputLayer").build();
+		ComputationGraph net = new ComputationGraph(configuration);
+		net.init();
+		return net;
+	}
+
+}
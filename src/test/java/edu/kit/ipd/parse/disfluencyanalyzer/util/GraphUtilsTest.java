@@ -0,0 +1,67 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class GraphUtilsTest {
+
+	private static final String[] TAGS = { "O-DF", "B-RM", "I-RM", "B-RS", "I-RS", "FP", "EE", "DM" };
+
+	@Test
+	public void repairLinksTest() {
+		List<String> predictions = Arrays.asList("B-RM", "B-RM", "FP", "B-RS", "O-DF", "B-RM", "I-RS", "B-RM", "B-RS");
+		List<int[]> links = GraphUtils.repairLinks(predictions);
+		Assert.assertEquals(3, links.size());
+		Assert.assertArrayEquals(new int[] { 8, 7 }, links.get(0));
+		Assert.assertArrayEquals(new int[] { 3, 1 }, links.get(1));
+		Assert.assertArrayEquals(new int[] { 3, 0 }, links.get(2));
+	}
+
+	@Test
+	public void sameLinksAsBackwardSearchTest() {
+		Random random = new Random(42);
+		for (int run = 0; run < 10000; run++) {
+			int n = random.nextInt(40);
+			List<String> predictions = new ArrayList<>(n);
+			for (int i = 0; i < n; i++) {
+				// Mostly fluent words, as in real utterances
+				predictions.add(random.nextInt(3) == 0 ? TAGS[random.nextInt(TAGS.length)] : TAGS[0]);
+			}
+			List<int[]> expected = backwardSearch(predictions);
+			List<int[]> actual = GraphUtils.repairLinks(predictions);
+			Assert.assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				Assert.assertArrayEquals(expected.get(i), actual.get(i));
+			}
+		}
+	}
+
+	// The former search: for each B-RS backwards to the previous reparans
+	private static List<int[]> backwardSearch(List<String> predictions) {
+		List<int[]> links = new ArrayList<>();
+		for (int g = predictions.size() - 1; g > 0; g--) {
+			if (predictions.get(g).equals("B-RS")) {
+				for (int t = g - 1; t >= 0; t--) {
+					if (predictions.get(t).equals("B-RM")) {
+						links.add(new int[] { g, t });
+					}
+					if (predictions.get(t).equals("B-RS") || predictions.get(t).equals("I-RS")) {
+						break;
+					}
+				}
+			}
+		}
+		return links;
+	}
+
+}
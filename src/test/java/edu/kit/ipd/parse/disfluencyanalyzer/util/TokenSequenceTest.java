@@ -0,0 +1,113 @@
+package edu.kit.ipd.parse.disfluencyanalyzer.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.kit.ipd.parse.luna.graph.IArcType;
+import edu.kit.ipd.parse.luna.graph.INode;
+import edu.kit.ipd.parse.luna.graph.INodeType;
+import edu.kit.ipd.parse.luna.graph.ParseGraph;
+
+/**
+ * Tests the extraction of the token sequence from graphs whose NEXT arcs are
+ * not in the order of the nodes or do not form one sequence.
+ *
+ * @author Sebastian Weigelt
+ *
+ */
+public class TokenSequenceTest {
+
+	private static final List<String> WORDS = Arrays.asList("go", "to", "the", "fridge");
+
+	private ParseGraph graph;
+	private INodeType tokenType;
+	private IArcType relationType;
+
+	@Before
+	public void setUp() {
+		graph = new ParseGraph();
+		tokenType = graph.createNodeType("token");
+		tokenType.addAttributeToType("String", "value");
+		tokenType.addAttributeToType("String", "pos");
+		tokenType.addAttributeToType("String", "chunkIOB");
+		relationType = graph.createArcType("relation");
+		relationType.addAttributeToType("String", "value");
+	}
+
+	/*
+	 * Creates a token node for each word of WORDS, in the given order of the
+	 * positions
+	 */
+	private List<INode> createTokens(int... order) {
+		INode[] tokens = new INode[order.length];
+		for (int i : order) {
+			INode token = graph.createNode(tokenType);
+			token.setAttributeValue("value", WORDS.get(i));
+			token.setAttributeValue("pos", "NN");
+			token.setAttributeValue("chunkIOB", "O");
+			tokens[i] = token;
+		}
+		return Arrays.asList(tokens);
+	}
+
+	private void next(INode from, INode to) {
+		graph.createArc(from, to, relationType).setAttributeValue("value", "NEXT");
+	}
+
+	private static List<String> words(List<INode> nodes) {
+		List<String> words = new ArrayList<>(nodes.size());
+		for (INode node : nodes) {
+			words.add(node.getAttributeValue("value").toString());
+		}
+		return words;
+	}
+
+	@Test
+	public void outOfOrderNodesTest() {
+		List<INode> tokens = createTokens(2, 0, 3, 1);
+		for (int i = 1; i < tokens.size(); i++) {
+			next(tokens.get(i - 1), tokens.get(i));
+		}
+		// The walk goes back from the first node of the graph to the first token
+		TokenSequence sequence = TokenSequence.fromGraph(graph);
+		Assert.assertEquals(WORDS, sequence.getWords());
+		Assert.assertEquals(tokens, sequence.getTokens());
+		Assert.assertFalse(sequence.isTagged());
+	}
+
+	@Test
+	public void brokenChainTest() {
+		List<INode> tokens = createTokens(2, 0, 3, 1);
+		next(tokens.get(0), tokens.get(1));
+		next(tokens.get(2), tokens.get(3));
+		// The tokens are read in the order of the nodes of the graph
+		TokenSequence sequence = TokenSequence.fromGraph(graph);
+		Assert.assertEquals(Arrays.asList("the", "go", "fridge", "to"), sequence.getWords());
+		Assert.assertEquals(words(graph.getNodesOfType(tokenType)), sequence.getWords());
+	}
+
+	@Test
+	public void cycleTest() {
+		List<INode> tokens = createTokens(1, 0, 2, 3);
+		for (int i = 1; i < tokens.size(); i++) {
+			next(tokens.get(i - 1), tokens.get(i));
+		}
+		next(tokens.get(3), tokens.get(0));
+		TokenSequence sequence = TokenSequence.fromGraph(graph);
+		Assert.assertEquals(Arrays.asList("to", "go", "the", "fridge"), sequence.getWords());
+		Assert.assertEquals(4, sequence.size());
+	}
+
+	@Test
+	public void noTokensTest() {
+		TokenSequence sequence = TokenSequence.fromGraph(new ParseGraph());
+		Assert.assertEquals(0, sequence.size());
+		Assert.assertTrue(sequence.isTagged());
+	}
+
+}